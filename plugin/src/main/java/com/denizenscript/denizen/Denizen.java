@@ -24,6 +24,7 @@ import com.denizenscript.denizen.tags.BukkitTagContext;
 import com.denizenscript.denizen.tags.core.NPCTagBase;
 import com.denizenscript.denizen.utilities.*;
 import com.denizenscript.denizen.utilities.blocks.FullBlockData;
+import com.denizenscript.denizen.utilities.blocks.SpongeSchematicHelper;
 import com.denizenscript.denizen.utilities.command.*;
 import com.denizenscript.denizen.utilities.command.manager.CommandManager;
 import com.denizenscript.denizen.utilities.command.manager.Injector;
@@ -33,10 +34,14 @@ import com.denizenscript.denizen.utilities.debugging.DebugSubmit;
 import com.denizenscript.denizen.utilities.debugging.StatsRecord;
 import com.denizenscript.denizen.utilities.depends.Depends;
 import com.denizenscript.denizen.utilities.entity.DenizenEntityType;
+import com.denizenscript.denizen.utilities.flags.DataPersistenceFlagCache;
+import com.denizenscript.denizen.utilities.flags.LocationFlagSearchHelper;
 import com.denizenscript.denizen.utilities.flags.PlayerFlagHandler;
+import com.denizenscript.denizen.utilities.flags.PlayerFlagIndex;
 import com.denizenscript.denizen.utilities.flags.WorldFlagHandler;
 import com.denizenscript.denizen.utilities.implementation.DenizenCoreImplementation;
 import com.denizenscript.denizen.utilities.maps.DenizenMapManager;
+import com.denizenscript.denizen.utilities.maps.MapImage;
 import com.denizenscript.denizen.utilities.packets.NetworkInterceptHelper;
 import com.denizenscript.denizen.utilities.world.VoidGenerator;
 import com.denizenscript.denizen.utilities.world.WorldListChangeTracker;
@@ -55,7 +60,6 @@ import com.denizenscript.denizencore.utilities.debugging.StrongWarning;
 import com.denizenscript.denizencore.utilities.text.ConfigUpdater;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -131,6 +135,7 @@ public class Denizen extends JavaPlugin {
         if (!PlayerFlagHandler.dataFolder.exists()) {
             PlayerFlagHandler.dataFolder.mkdir();
         }
+        PlayerFlagIndex.loadAsync(new File(getDataFolder(), "player_flag_index.dat"));
         DebugInternals.alternateTrimLogic = FormattedTextHelper::bukkitSafeDebugTrimming;
         String javaVersion = System.getProperty("java.version");
         Debug.log("Running on java version: " + javaVersion);
@@ -241,9 +246,9 @@ public class Denizen extends JavaPlugin {
             DenizenEntityType.registerEntityType("FAKE_ARROW", FakeArrow.class);
             DenizenEntityType.registerEntityType("FAKE_PLAYER", FakePlayer.class);
             // Track all player names for quick PlayerTag matching
-            for (OfflinePlayer player : Bukkit.getOfflinePlayers()) {
-                PlayerTag.notePlayer(player);
-            }
+            PlayerNameDirectory.load(new File(getDataFolder(), "player_names.dat"));
+            // Build the map color lookup table in the background, rather than on the main thread during the first map render
+            Bukkit.getScheduler().runTaskAsynchronously(this, MapImage.PaletteTable::warmUp);
         }
         catch (Exception e) {
             Debug.echoError(e);
@@ -368,6 +373,7 @@ public class Denizen extends JavaPlugin {
         ExSustainedCommandHandler exsCommand = new ExSustainedCommandHandler();
         exsCommand.enableFor(getCommand("exs"));
         FullBlockData.init();
+        SpongeSchematicHelper.preloadBlockDataCache();
         // Load script files without processing.
         DenizenCore.preloadScripts(false, null);
         // Load the saves.yml into memory
@@ -423,6 +429,8 @@ public class Denizen extends JavaPlugin {
                     BukkitWorldScriptHelper.cleanAllWorldChunkFlags();
                 }
                 Bukkit.getPluginManager().registerEvents(new PlayerFlagHandler(), this);
+                Bukkit.getPluginManager().registerEvents(new DataPersistenceFlagCache(), this);
+                Bukkit.getPluginManager().registerEvents(new LocationFlagSearchHelper(), this);
                 Debug.log("Denizen fully loaded at: " + TimeTag.now().format());
             }
             catch (Throwable ex) {
@@ -441,6 +449,7 @@ public class Denizen extends JavaPlugin {
             @Override
             public void run() {
                 PlayerFlagHandler.cleanCache();
+                DataPersistenceFlagCache.cleanStale();
             }
         }.runTaskTimer(this, 100, 20 * 60);
         new BukkitRunnable() {
@@ -552,6 +561,8 @@ public class Denizen extends JavaPlugin {
             Logger.getLogger(JavaPlugin.class.getName()).log(Level.SEVERE, "Could not save to " + scoreboardsConfigFile, ex);
         }
         PlayerFlagHandler.saveAllNow(lockUntilDone);
+        PlayerFlagIndex.save(lockUntilDone);
+        PlayerNameDirectory.save(lockUntilDone);
         worldFlags.saveAll(lockUntilDone);
         RunLaterCommand.saveToFile(!lockUntilDone);
     }
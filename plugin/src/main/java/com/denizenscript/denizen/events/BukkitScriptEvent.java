@@ -37,7 +37,9 @@ import org.bukkit.scheduler.BukkitRunnable;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 public abstract class BukkitScriptEvent extends ScriptEvent {
 
@@ -656,10 +658,51 @@ public abstract class BukkitScriptEvent extends ScriptEvent {
         public boolean bool;
     }
 
+    @FunctionalInterface
+    public interface LocationCheck {
+        boolean test(Location location);
+    }
+
+    public static final LocationCheck ALWAYS_TRUE = (location) -> true;
+
+    public record InCheckKey(ScriptPath path, String switchName) {
+    }
+
+    /**
+     * Compiled 'in:' (and 'location_flagged:') checks per script path and switch name, so the switch text is only parsed once rather than on every event firing.
+     * Cleared on script reload.
+     */
+    public static final Map<InCheckKey, LocationCheck> compiledInChecks = new ConcurrentHashMap<>();
+
+    public static boolean anyAreaContaining(Location location, Predicate<AreaContainmentObject> test) {
+        for (AreaContainmentObject area : NotedAreaTracker.getAreasContaining(location)) {
+            if (test.test(area)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public boolean runInCheck(ScriptPath path, Location location, String innote) {
-        if (!runLocationFlaggedCheck(path, "location_flagged", location)) {
-            return false;
+        InCheckKey key = new InCheckKey(path, innote);
+        LocationCheck check = compiledInChecks.get(key);
+        if (check == null) {
+            check = compileRunInCheck(path, innote);
+            compiledInChecks.put(key, check);
+        }
+        return check.test(location);
+    }
+
+    public LocationCheck compileRunInCheck(ScriptPath path, String innote) {
+        LocationCheck inCheck = compileInSwitch(path, innote);
+        String flagged = path.switches.get("location_flagged");
+        if (flagged == null) {
+            return inCheck;
         }
+        return (location) -> coreFlaggedCheck(flagged, location == null ? null : new LocationTag(location).getFlagTracker()) && inCheck.test(location);
+    }
+
+    public LocationCheck compileInSwitch(ScriptPath path, String innote) {
         String inputText = path.switches.get(innote);
         if (inputText == null) {
             int index;
@@ -670,83 +713,97 @@ public abstract class BukkitScriptEvent extends ScriptEvent {
             }
             if (index >= path.eventArgsLower.length) {
                 // No 'in ...' specified
-                return true;
-            }
-            if (location == null) {
-                return false;
+                return ALWAYS_TRUE;
             }
             Deprecations.inAreaSwitchFormat.warn();
             inputText = path.eventArgLowerAt(index + 1);
             if (inputText.equals("notable") || inputText.equals("noted")) {
                 String subit = path.eventArgLowerAt(index + 2);
                 if (subit.equals("cuboid")) {
-                    BoolHolder bool = new BoolHolder();
-                    NotedAreaTracker.forEachAreaThatContains(new LocationTag(location), (a) -> { if (a instanceof CuboidTag) { bool.bool = true; } });
-                    return bool.bool;
+                    return (location) -> location != null && anyAreaContaining(location, (a) -> a instanceof CuboidTag);
                 }
                 else if (subit.equals("ellipsoid")) {
-                    BoolHolder bool = new BoolHolder();
-                    NotedAreaTracker.forEachAreaThatContains(new LocationTag(location), (a) -> { if (a instanceof EllipsoidTag) { bool.bool = true; } });
-                    return bool.bool;
+                    return (location) -> location != null && anyAreaContaining(location, (a) -> a instanceof EllipsoidTag);
                 }
                 else {
-                    Debug.echoError("Invalid event 'IN ...' check [" + getName() + "] ('in notable ???'): '" + path.event + "' for " + path.container.getName());
-                    return false;
+                    return (location) -> {
+                        if (location != null) {
+                            Debug.echoError("Invalid event 'IN ...' check [" + getName() + "] ('in notable ???'): '" + path.event + "' for " + path.container.getName());
+                        }
+                        return false;
+                    };
                 }
             }
         }
-        if (location == null) {
-            return false;
-        }
         if (inputText.startsWith("!")) {
-            return !inCheckInternal(path.context, getName(), location, inputText.substring(1), path.event, path.container.getName());
+            LocationCheck check = compileInCheck(path.context, getName(), inputText.substring(1), path.event, path.container.getName());
+            return (location) -> location != null && !check.test(location);
         }
-        return inCheckInternal(path.context, getName(), location, inputText, path.event, path.container.getName());
+        LocationCheck check = compileInCheck(path.context, getName(), inputText, path.event, path.container.getName());
+        return (location) -> location != null && check.test(location);
     }
 
     public static boolean inCheckInternal(TagContext context, String name, Location location, String inputText, String evtLine, String containerName) {
+        return compileInCheck(context, name, inputText, evtLine, containerName).test(location);
+    }
+
+    /**
+     * Compiles an 'in:<area>' style check into a reusable check.
+     * Anything that can't change between firings (switch type, flag name, matcher) is resolved here. World and note names are still resolved on each check, as those can change at any time.
+     */
+    public static LocationCheck compileInCheck(TagContext context, String name, String inputText, String evtLine, String containerName) {
         String lower = CoreUtilities.toLowerCase(inputText);
         if (lower.contains(":")) {
             if (lower.startsWith("world_flagged:")) {
-                return coreFlaggedCheck(inputText.substring("world_flagged:".length()), new WorldTag(location.getWorld()).getFlagTracker());
+                String flagName = inputText.substring("world_flagged:".length());
+                return (location) -> coreFlaggedCheck(flagName, new WorldTag(location.getWorld()).getFlagTracker());
             }
             else if (lower.startsWith("chunk_flagged:")) {
-                return coreFlaggedCheck(inputText.substring("chunk_flagged:".length()), new ChunkTag(location).getFlagTracker());
+                String flagName = inputText.substring("chunk_flagged:".length());
+                return (location) -> coreFlaggedCheck(flagName, new ChunkTag(location).getFlagTracker());
             }
             else if (lower.startsWith("area_flagged:")) {
                 String flagName = inputText.substring("area_flagged:".length());
-                BoolHolder bool = new BoolHolder();
-                NotedAreaTracker.forEachAreaThatContains(new LocationTag(location), (a) -> {
-                    if (a instanceof FlaggableObject && coreFlaggedCheck(flagName, ((FlaggableObject) a).getFlagTracker())) {
-                        bool.bool = true;
-                    }
-                });
-                return bool.bool;
+                return (location) -> anyAreaContaining(location, (a) -> a instanceof FlaggableObject && coreFlaggedCheck(flagName, ((FlaggableObject) a).getFlagTracker()));
             }
             else if (lower.startsWith("biome:")) {
                 String biome = inputText.substring("biome:".length());
-                return runGenericCheck(biome, new LocationTag(location).getBiome().name);
+                return (location) -> runGenericCheck(biome, new LocationTag(location).getBiome().name);
             }
         }
         if (lower.equals("cuboid")) {
-            BoolHolder bool = new BoolHolder();
-            NotedAreaTracker.forEachAreaThatContains(new LocationTag(location), (a) -> { if (a instanceof CuboidTag) { bool.bool = true; } });
-            return bool.bool;
+            return (location) -> anyAreaContaining(location, (a) -> a instanceof CuboidTag);
         }
         else if (lower.equals("ellipsoid")) {
-            BoolHolder bool = new BoolHolder();
-            NotedAreaTracker.forEachAreaThatContains(new LocationTag(location), (a) -> { if (a instanceof EllipsoidTag) { bool.bool = true; } });
-            return bool.bool;
+            return (location) -> anyAreaContaining(location, (a) -> a instanceof EllipsoidTag);
         }
         else if (lower.equals("polygon")) {
-            BoolHolder bool = new BoolHolder();
-            NotedAreaTracker.forEachAreaThatContains(new LocationTag(location), (a) -> { if (a instanceof PolygonTag) { bool.bool = true; } });
-            return bool.bool;
+            return (location) -> anyAreaContaining(location, (a) -> a instanceof PolygonTag);
+        }
+        if (isAdvancedMatchable(lower)) {
+            MatchHelper matcher = createMatcher(lower);
+            return (location) -> {
+                if (WorldTag.matches(inputText)) {
+                    return CoreUtilities.equalsIgnoreCase(location.getWorld().getName(), lower);
+                }
+                if (anyAreaContaining(location, (a) -> matcher.doesMatch(a.getNoteName()))) {
+                    return true;
+                }
+                return matcher.doesMatch(CoreUtilities.toLowerCase(location.getWorld().getName()));
+            };
         }
-        else if (WorldTag.matches(inputText)) {
+        return (location) -> inCheckNamed(context, name, location, inputText, lower, evtLine, containerName);
+    }
+
+    public static boolean inCheckNamed(TagContext context, String name, Location location, String inputText, String lower, String evtLine, String containerName) {
+        if (WorldTag.matches(inputText)) {
             return CoreUtilities.equalsIgnoreCase(location.getWorld().getName(), lower);
         }
-        else if (CuboidTag.matches(inputText)) {
+        // NOTE: opti to skip the full parse attempts below for the common case of a plain note name
+        if (NoteManager.getSavedObject(inputText) instanceof AreaContainmentObject area) {
+            return area.doesContainLocation(location);
+        }
+        if (CuboidTag.matches(inputText)) {
             CuboidTag cuboid = CuboidTag.valueOf(inputText, context);
             if (cuboid == null || !cuboid.isUnique()) {
                 if (context.showErrors()) {
@@ -776,18 +833,6 @@ public abstract class BukkitScriptEvent extends ScriptEvent {
             }
             return polygon.doesContainLocation(location);
         }
-        else if (isAdvancedMatchable(lower)) {
-            MatchHelper matcher = createMatcher(lower);
-            BoolHolder bool = new BoolHolder();
-            NotedAreaTracker.forEachAreaThatContains(new LocationTag(location), (a) -> { if (matcher.doesMatch(a.getNoteName())) { bool.bool = true; } });
-            if (bool.bool) {
-                return true;
-            }
-            if (matcher.doesMatch(CoreUtilities.toLowerCase(location.getWorld().getName()))) {
-                return true;
-            }
-            return false;
-        }
         else {
             if (context.showErrors()) {
                 Debug.echoError("Invalid event 'in:<area>' switch [" + name + "] ('in:???') (did you make a typo, or forget to 'note' an object with that name?): '" + evtLine + "' for " + containerName);
@@ -13,11 +13,15 @@ import com.denizenscript.denizencore.objects.notable.Notable;
 import com.denizenscript.denizencore.objects.notable.NoteManager;
 import com.denizenscript.denizencore.scripts.ScriptEntryData;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
 import org.bukkit.event.Event;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDeathEvent;
 import org.bukkit.event.entity.EntityTeleportEvent;
 import org.bukkit.event.player.*;
 import org.bukkit.event.vehicle.VehicleMoveEvent;
@@ -179,19 +183,56 @@ public class AreaEnterExitScriptEvent extends BukkitScriptEvent implements Liste
         exactTracked = needsMatchers ? null : exacts.toArray(new String[0]);
         matchers = needsMatchers ? matchList.toArray(new MatchHelper[0]) : null;
         flagTracked = flags.size() > 0 ? flags.toArray(new String[0]) : null;
+        lastBlockPositions.clear();
         registerCorrectClass();
     }
 
+    /**
+     * The last block position an entity was processed at, used to skip movements that stay within the same block.
+     */
+    public static final class LastBlockPosition {
+
+        public World world;
+
+        public int x, y, z;
+
+        public boolean isSameBlock(Location pos) {
+            return world == pos.getWorld() && x == pos.getBlockX() && y == pos.getBlockY() && z == pos.getBlockZ();
+        }
+
+        public void set(Location pos) {
+            world = pos.getWorld();
+            x = pos.getBlockX();
+            y = pos.getBlockY();
+            z = pos.getBlockZ();
+        }
+    }
+
+    /**
+     * If true, the last block position of each tracked entity is cached, and movements that don't change the block position are skipped entirely.
+     * Position changes only exact-test areas whose boundary box contains the new position.
+     * Controlled by config option "Scripts.Area events.Incremental tracking".
+     */
+    public static boolean incrementalTracking = true;
+
     public boolean doTrackAll = false;
     public String[] exactTracked = null;
     public String[] flagTracked = null;
     public MatchHelper[] matchers = null;
     public boolean onlyTrackPlayers = true;
     public static HashMap<UUID, HashSet<AreaContainmentObject>> entitiesInArea = new HashMap<>();
+    public static HashMap<UUID, LastBlockPosition> lastBlockPositions = new HashMap<>();
+
+    /**
+     * Size 'lastBlockPositions' must reach before it's next swept for entities that no longer exist (eg despawned mobs, picked up items, removed projectiles).
+     */
+    public static int nextPositionSweepSize = 1024;
 
     @Override
     public void cancellationChanged() {
         if (cancelled) {
+            // The entity's tracked state was reverted, so the next move within this same block needs to be processed again
+            lastBlockPositions.remove(currentEntity.getUUID());
             HashSet<AreaContainmentObject> inAreas = entitiesInArea.get(currentEntity.getUUID());
             if (isEntering) {
                 inAreas.remove(area);
@@ -226,7 +267,10 @@ public class AreaEnterExitScriptEvent extends BukkitScriptEvent implements Liste
     }
 
     public void processSingle(AreaContainmentObject obj, EntityTag entity, HashSet<AreaContainmentObject> inAreas, Location pos, Event eventCause) {
-        boolean containedNow = pos != null && obj.doesContainLocation(pos);
+        processSingle(obj, pos != null && obj.doesContainLocation(pos), entity, inAreas, pos, eventCause);
+    }
+
+    public void processSingle(AreaContainmentObject obj, boolean containedNow, EntityTag entity, HashSet<AreaContainmentObject> inAreas, Location pos, Event eventCause) {
         boolean wasContained = inAreas != null && inAreas.contains(obj);
         if (containedNow == wasContained) {
             return;
@@ -250,18 +294,72 @@ public class AreaEnterExitScriptEvent extends BukkitScriptEvent implements Liste
 
     private final static List<AreaContainmentObject> reusableClearList = new ArrayList<>();
 
+    /**
+     * Returns true if the entity is still within the same block as last time it was processed (meaning there's nothing to do), and otherwise updates the cached position.
+     */
+    public boolean checkSameBlock(EntityTag entity, Location pos) {
+        if (!incrementalTracking) {
+            return false;
+        }
+        if (pos == null || pos.getWorld() == null) {
+            lastBlockPositions.remove(entity.getUUID());
+            return false;
+        }
+        LastBlockPosition last = lastBlockPositions.get(entity.getUUID());
+        if (last == null) {
+            if (lastBlockPositions.size() >= nextPositionSweepSize) {
+                lastBlockPositions.keySet().removeIf(id -> Bukkit.getEntity(id) == null);
+                nextPositionSweepSize = Math.max(1024, lastBlockPositions.size() * 2);
+            }
+            last = new LastBlockPosition();
+            lastBlockPositions.put(entity.getUUID(), last);
+        }
+        else if (last.isSameBlock(pos)) {
+            return true;
+        }
+        last.set(pos);
+        return false;
+    }
+
+    /**
+     * Gathers all noted areas containing the position into the output list, only exact-testing areas whose boundary box contains the position,
+     * and skipping the exact test entirely for box-shaped areas.
+     */
+    public void gatherContainingAreas(Location pos, List<AreaContainmentObject> output) {
+        if (pos == null || pos.getWorld() == null) {
+            return;
+        }
+        if (!incrementalTracking) {
+            NotedAreaTracker.forEachAreaThatContains(new LocationTag(pos), output::add);
+            return;
+        }
+        NotedAreaTracker.forEachTrackedAreaThatMightContain(pos.getWorld().getName(), pos.getBlockX(), pos.getBlockY(), pos.getBlockZ(), (tracked) -> {
+            if (tracked.isExactBox || tracked.area.doesContainLocation(pos)) {
+                output.add(tracked.area);
+            }
+        });
+    }
+
     public void processNewPosition(EntityTag entity, Location pos, Event eventCause) {
         if (onlyTrackPlayers && !entity.isPlayer()) {
             return;
         }
+        if (checkSameBlock(entity, pos)) {
+            return;
+        }
         HashSet<AreaContainmentObject> inAreas = entitiesInArea.get(entity.getUUID());
         if (doTrackAll || matchers != null || flagTracked != null) {
-            if (pos != null) {
-                NotedAreaTracker.forEachAreaThatContains(new LocationTag(pos), (a) -> {
-                    if (a instanceof FlaggableObject && anyMatch(a.getNoteName(), (FlaggableObject) a)) {
-                        processSingle(a, entity, inAreas, pos, eventCause);
-                    }
-                });
+            // Collect first and fire after, as scripts may modify notes (and thus the tracker) while handling the event.
+            List<AreaContainmentObject> containing = new ArrayList<>();
+            gatherContainingAreas(pos, containing);
+            if (inAreas == null && !containing.isEmpty()) {
+                inAreas = new HashSet<>();
+                entitiesInArea.put(entity.getUUID(), inAreas);
+            }
+            for (AreaContainmentObject a : containing) {
+                if (!inAreas.contains(a) && a instanceof FlaggableObject && anyMatch(a.getNoteName(), (FlaggableObject) a)) {
+                    processSingle(a, true, entity, inAreas, pos, eventCause);
+                }
             }
             if (inAreas != null) {
                 reusableClearList.addAll(inAreas);
@@ -269,8 +367,8 @@ public class AreaEnterExitScriptEvent extends BukkitScriptEvent implements Liste
                     if (area.getNoteName() == null) {
                         inAreas.remove(area);
                     }
-                    else {
-                        processSingle(area, entity, inAreas, pos, eventCause);
+                    else if (!containing.contains(area)) {
+                        processSingle(area, false, entity, inAreas, pos, eventCause);
                     }
                 }
                 reusableClearList.clear();
@@ -284,6 +382,7 @@ public class AreaEnterExitScriptEvent extends BukkitScriptEvent implements Liste
                     continue;
                 }
                 processSingle((AreaContainmentObject) obj, entity, inAreas, pos, eventCause);
+                inAreas = entitiesInArea.get(entity.getUUID());
             }
         }
         if (inAreas != null && inAreas.isEmpty()) {
@@ -297,6 +396,14 @@ public class AreaEnterExitScriptEvent extends BukkitScriptEvent implements Liste
         public void onQuit(PlayerQuitEvent event) {
             processNewPosition(new EntityTag(event.getPlayer()), null, event);
             entitiesInArea.remove(event.getPlayer().getUniqueId());
+            lastBlockPositions.remove(event.getPlayer().getUniqueId());
+        }
+
+        @EventHandler
+        public void onDeath(EntityDeathEvent event) {
+            if (!(event.getEntity() instanceof Player)) {
+                lastBlockPositions.remove(event.getEntity().getUniqueId());
+            }
         }
 
         @EventHandler
@@ -11,6 +11,9 @@ import com.denizenscript.denizencore.scripts.ScriptEntryData;
 import com.denizenscript.denizencore.utilities.debugging.DebugInternals;
 import org.bukkit.entity.Player;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class PlayerReceivesPacketScriptEvent extends BukkitScriptEvent {
 
     // <--[event]
@@ -43,6 +46,12 @@ public class PlayerReceivesPacketScriptEvent extends BukkitScriptEvent {
 
     public static PlayerReceivesPacketScriptEvent instance;
 
+    /**
+     * Cache of whether any loaded script path could match a given packet class, rebuilt each time the event is (re)initialized.
+     * Null while the event is not in use.
+     */
+    public static volatile ClassValue<Boolean> listenedClasses = null;
+
     public ElementTag className;
     public PlayerTag player;
     public Object packet;
@@ -58,9 +67,33 @@ public class PlayerReceivesPacketScriptEvent extends BukkitScriptEvent {
     @Override
     public void init() {
         NetworkInterceptHelper.enable();
+        List<ScriptPath> paths = new ArrayList<>(eventPaths);
+        listenedClasses = new ClassValue<>() {
+            @Override
+            protected Boolean computeValue(Class<?> type) {
+                String className = DebugInternals.getClassNameOpti(type);
+                for (ScriptPath path : paths) {
+                    if (runGenericSwitchCheck(path, "class", className)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
         super.init();
     }
 
+    @Override
+    public void destroy() {
+        listenedClasses = null;
+        super.destroy();
+    }
+
+    public static boolean isListenedFor(Class<?> packetClass) {
+        ClassValue<Boolean> listened = listenedClasses;
+        return listened != null && listened.get(packetClass);
+    }
+
     @Override
     public ObjectTag getContext(String name) {
         switch (name) {
@@ -23,13 +23,11 @@ public abstract class Sidebar {
     }
 
     public static final int MAX_LENGTH = 15;
-    public static final String[] firstIds = new String[MAX_LENGTH];
-    public static final String[] secondIds = new String[MAX_LENGTH];
+    public static final String[] lineIds = new String[MAX_LENGTH];
 
     static {
         for (int i = 0; i < MAX_LENGTH; i++) {
-            firstIds[i] = Utilities.generateRandomColors(8);
-            secondIds[i] = Utilities.generateRandomColors(8);
+            lineIds[i] = Utilities.generateRandomColors(8);
         }
     }
 
@@ -37,19 +35,19 @@ public abstract class Sidebar {
     protected String title;
     protected String[] lines = new String[MAX_LENGTH];
     protected int[] scores = new int[MAX_LENGTH];
-    protected String[] currentIds = null;
     public int setCount = 0;
 
+    // The state last sent to the player, so that updates only need to send what changed.
+    protected String sentTitle = null;
+    protected String[] sentLines = new String[MAX_LENGTH];
+    protected int[] sentScores = new int[MAX_LENGTH];
+    protected boolean isShown = false;
+
     public Sidebar(Player player) {
         this.player = player;
         setTitle("");
     }
 
-    public String[] getIds() {
-        currentIds = currentIds == firstIds ? secondIds : firstIds;
-        return currentIds;
-    }
-
     public String getTitle() {
         return title;
     }
@@ -92,7 +90,67 @@ public abstract class Sidebar {
         }
     }
 
-    public abstract void sendUpdate();
+    /**
+     * Sends the objective packet with the given mode (0 = create, 1 = remove, 2 = update title).
+     */
+    protected abstract void sendObjective(int mode);
+
+    protected abstract void sendDisplaySlot();
+
+    /**
+     * Sends a single line to the player. Line text only needs to be formatted and sent if 'textChanged' is true.
+     */
+    protected abstract void sendLine(int index, boolean isNew, boolean textChanged, boolean scoreChanged);
+
+    protected abstract void removeLine(int index);
+
+    /**
+     * Sends the player only the parts of the sidebar that changed since the last update.
+     * The display slot is always re-sent, in case something else (eg another plugin's scoreboard) has taken over the sidebar slot since.
+     */
+    public void sendUpdate() {
+        if (!isShown) {
+            sendObjective(0);
+            sentTitle = title;
+        }
+        else if (!title.equals(sentTitle)) {
+            sendObjective(2);
+            sentTitle = title;
+        }
+        for (int i = 0; i < MAX_LENGTH; i++) {
+            String line = lines[i];
+            String sentLine = sentLines[i];
+            if (line == null) {
+                if (sentLine != null) {
+                    removeLine(i);
+                    sentLines[i] = null;
+                }
+                continue;
+            }
+            boolean isNew = sentLine == null;
+            boolean textChanged = isNew || !line.equals(sentLine);
+            boolean scoreChanged = isNew || scores[i] != sentScores[i];
+            if (textChanged || scoreChanged) {
+                sendLine(i, isNew, textChanged, scoreChanged);
+                sentLines[i] = line;
+                sentScores[i] = scores[i];
+            }
+        }
+        sendDisplaySlot();
+        isShown = true;
+    }
 
-    public abstract void remove();
+    public void remove() {
+        for (int i = 0; i < MAX_LENGTH; i++) {
+            if (sentLines[i] != null) {
+                removeLine(i);
+                sentLines[i] = null;
+            }
+        }
+        if (isShown) {
+            sendObjective(1);
+        }
+        isShown = false;
+        sentTitle = null;
+    }
 }
@@ -3,6 +3,7 @@ package com.denizenscript.denizen.nms.interfaces;
 import com.denizenscript.denizen.nms.util.PlayerProfile;
 import com.denizenscript.denizen.nms.util.jnbt.CompoundTag;
 import com.denizenscript.denizen.objects.EntityTag;
+import org.bukkit.Chunk;
 import org.bukkit.Color;
 import org.bukkit.Instrument;
 import org.bukkit.Location;
@@ -95,4 +96,20 @@ public interface BlockHelper {
     default void setVanillaTags(Material material, Set<String> tags) {
         throw new UnsupportedOperationException();
     }
+
+    /**
+     * Packs a block position into an int for 'setBlocksDirect'. X and Z are taken relative to their chunk, Y is the absolute block Y.
+     */
+    static int packChunkPosition(int x, int y, int z) {
+        return (y << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+    /**
+     * Writes block states straight into the chunk's sections, updating heightmaps, block entities and lighting, but without physics, neighbor updates, or per-block packets.
+     * Callers are expected to resend the chunk afterwards. Tile entity NBT data is not applied.
+     * Positions are packed with 'packChunkPosition', only the first 'count' entries of each array are used.
+     */
+    default void setBlocksDirect(Chunk chunk, int[] positions, BlockData[] blocks, int count) {
+        throw new UnsupportedOperationException();
+    }
 }
@@ -3,9 +3,17 @@ package com.denizenscript.denizen.nms.interfaces;
 import com.denizenscript.denizen.nms.abstracts.BiomeNMS;
 import org.bukkit.Chunk;
 import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+import java.util.function.Predicate;
 
 public interface ChunkHelper {
 
+    @FunctionalInterface
+    interface BlockPositionConsumer {
+        void accept(int x, int y, int z);
+    }
+
     default void refreshChunkSections(Chunk chunk) {
         throw new UnsupportedOperationException();
     }
@@ -23,4 +31,13 @@ public interface ChunkHelper {
     default void setAllBiomes(Chunk chunk, BiomeNMS biome) {
         throw new UnsupportedOperationException();
     }
+
+    /**
+     * Calls the handler for every block in the chunk within the given bounds (world block coordinates, inclusive) whose block data passes the test.
+     * The test is run once per distinct block state, and chunk sections whose palette contains no passing state are skipped without reading any blocks.
+     * Returns false if not supported on this server version, in which case nothing is scanned.
+     */
+    default boolean forEachMatchingBlock(Chunk chunk, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, Predicate<BlockData> test, BlockPositionConsumer handler) {
+        return false;
+    }
 }
@@ -56,6 +56,23 @@ public abstract class ItemHelper {
         return getNbtData(item);
     }
 
+    /**
+     * Returns the string value of a single key in the item's custom data (or null/empty if not present).
+     * Implementations should read directly from the item without copying it or converting its full custom data.
+     */
+    public String getCustomDataString(ItemStack item, String key) {
+        CompoundTag customData = getCustomData(item);
+        return customData != null ? customData.getString(key) : null;
+    }
+
+    /**
+     * Returns an object that stays the same instance for as long as the item's custom data is unchanged (and is never reused for different data),
+     * for use as an identity cache key, or null if that isn't available for this item or server version.
+     */
+    public Object getCustomDataIdentity(ItemStack item) {
+        return null;
+    }
+
     public ItemStack setCustomData(ItemStack item, CompoundTag data) { // TODO: once 1.20 is the minimum supported version, remove default impl
         return setNbtData(item, data);
     }
@@ -82,6 +82,14 @@ public interface PacketHelper {
         player.sendBlockUpdate(location, banner);
     }
 
+    /**
+     * Sends the current state of several blocks within one chunk section to a player as a single section update packet.
+     * Positions are section-relative, in the format of 'FakeBlock.packSectionRelative'. Any block entity data at those positions is sent as well.
+     */
+    default void sendSectionBlockUpdates(Player player, int sectionX, int sectionY, int sectionZ, short[] positions) {
+        throw new UnsupportedOperationException();
+    }
+
     void showTabListHeaderFooter(Player player, String header, String footer);
 
     void showTitle(Player player, String title, String subtitle, int fadeIn, int stay, int fadeOut);
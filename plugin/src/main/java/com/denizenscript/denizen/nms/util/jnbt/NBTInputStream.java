@@ -88,6 +88,17 @@ public final class NBTInputStream implements Closeable {
         return new NamedTag(name, readTagPayload(type, depth));
     }
 
+    /**
+     * Reads the payload of a tag given the type, for callers that read the surrounding tag structure themselves.
+     *
+     * @param type the type
+     * @return the tag
+     * @throws IOException if an I/O error occurs.
+     */
+    public Tag readTagPayload(int type) throws IOException {
+        return readTagPayload(type, 1);
+    }
+
     /**
      * Reads the payload of a tag given the type.
      *
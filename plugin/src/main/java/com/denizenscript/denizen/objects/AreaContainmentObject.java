@@ -3,6 +3,7 @@ package com.denizenscript.denizen.objects;
 import com.denizenscript.denizen.events.BukkitScriptEvent;
 import com.denizenscript.denizen.nms.NMSHandler;
 import com.denizenscript.denizen.utilities.NotedAreaTracker;
+import com.denizenscript.denizen.utilities.blocks.BlockScanHelper;
 import com.denizenscript.denizen.utilities.blocks.SpawnableHelper;
 import com.denizenscript.denizen.utilities.depends.Depends;
 import com.denizenscript.denizen.utilities.flags.LocationFlagSearchHelper;
@@ -217,6 +218,9 @@ public interface AreaContainmentObject extends ObjectTag {
         // @description
         // Returns each block location within the area.
         // Optionally, specify a material matcher to only return locations with that block type.
+        // For cuboids and ellipsoids with a plain material matcher, this scans chunk data directly, skipping any chunk sections that cannot contain a match,
+        // which makes it fast even for very large areas. In that case, the 'max blocks' limit in the Denizen config applies to the number of results rather than the number of blocks checked,
+        // and chunks that aren't loaded are skipped rather than loaded.
         // @example
         // # Spawns a debugblock to highlight every plank-type block in the area.
         // - debugblock <cuboid[my_cuboid].blocks[*planks]>
@@ -226,6 +230,10 @@ public interface AreaContainmentObject extends ObjectTag {
                 NMSHandler.chunkHelper.changeChunkServerThread(area.getWorld().getWorld());
                 try {
                     String matcher = attribute.getParam();
+                    ListTag scanned = BlockScanHelper.findInArea(area, matcher, attribute.context);
+                    if (scanned != null) {
+                        return scanned;
+                    }
                     Predicate<Location> predicate = (l) -> new LocationTag(l).tryAdvancedMatcher(matcher, attribute.context);
                     return area.getBlocks(predicate);
                 }
@@ -1,7 +1,6 @@
 package com.denizenscript.denizen.objects;
 
 import com.denizenscript.denizen.Denizen;
-import com.denizenscript.denizen.events.BukkitScriptEvent;
 import com.denizenscript.denizen.nms.NMSHandler;
 import com.denizenscript.denizen.nms.NMSVersion;
 import com.denizenscript.denizen.nms.interfaces.ItemHelper;
@@ -12,8 +11,8 @@ import com.denizenscript.denizen.scripts.containers.core.ItemScriptContainer;
 import com.denizenscript.denizen.scripts.containers.core.ItemScriptHelper;
 import com.denizenscript.denizen.tags.BukkitTagContext;
 import com.denizenscript.denizen.utilities.Utilities;
+import com.denizenscript.denizen.utilities.inventory.CompiledItemMatcher;
 import com.denizenscript.denizen.utilities.nbt.CustomNBT;
-import com.denizenscript.denizencore.events.ScriptEvent;
 import com.denizenscript.denizencore.flags.AbstractFlagTracker;
 import com.denizenscript.denizencore.flags.FlaggableObject;
 import com.denizenscript.denizencore.flags.MapTagFlagTracker;
@@ -28,7 +27,6 @@ import com.denizenscript.denizencore.tags.ObjectTagProcessor;
 import com.denizenscript.denizencore.tags.TagContext;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
-import com.denizenscript.denizencore.utilities.PropertyMatchHelper;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.utilities.debugging.Debuggable;
 import org.bukkit.Bukkit;
@@ -413,17 +411,20 @@ public class ItemTag implements ObjectTag, Adjustable, FlaggableObject {
         return getItemMeta() instanceof Damageable;
     }
 
-    public boolean matchesRawExact(ItemTag item) {
-        ItemTag thisItem = this;
-        if (thisItem.getItemStack().getAmount() != 1) {
-            thisItem = new ItemTag(thisItem.getItemStack().clone());
-            thisItem.getItemStack().setAmount(1);
-        }
-        if (item.getItemStack().getAmount() != 1) {
-            item = new ItemTag(item.getItemStack().clone());
-            item.getItemStack().setAmount(1);
+    /**
+     * Returns the identity of this item at a quantity of 1, as used for 'raw_exact' comparisons.
+     */
+    public String identifySingle() {
+        if (getItemStack().getAmount() == 1) {
+            return identify();
         }
-        return thisItem.identify().equals(item.identify());
+        ItemTag single = new ItemTag(getItemStack().clone());
+        single.getItemStack().setAmount(1);
+        return single.identify();
+    }
+
+    public boolean matchesRawExact(ItemTag item) {
+        return identifySingle().equals(item.identifySingle());
     }
 
     //////////////////////////////
@@ -872,53 +873,6 @@ public class ItemTag implements ObjectTag, Adjustable, FlaggableObject {
 
     @Override
     public boolean advancedMatches(String matcher, TagContext context) {
-        String matcherLow = CoreUtilities.toLowerCase(matcher);
-        if (matcherLow.contains(":")) {
-            if (matcherLow.startsWith("item_flagged:")) {
-                if (getBukkitMaterial().isAir()) {
-                    return false;
-                }
-                return BukkitScriptEvent.coreFlaggedCheck(matcher.substring("item_flagged:".length()), getFlagTracker());
-            }
-            else if (matcherLow.startsWith("item_enchanted:")) {
-                String enchMatcher = matcher.substring("item_enchanted:".length());
-                if (getBukkitMaterial().isAir() || !getItemMeta().hasEnchants()) {
-                    return false;
-                }
-                for (Enchantment enchant : getItemMeta().getEnchants().keySet()) {
-                    if (BukkitScriptEvent.runGenericCheck(enchMatcher, enchant.getKey().getKey())) {
-                        return true;
-                    }
-                }
-                return false;
-            }
-            else if (matcherLow.startsWith("raw_exact:")) {
-                ItemTag compareItem = ItemTag.valueOf(matcher.substring("raw_exact:".length()), CoreUtilities.errorButNoDebugContext);
-                return compareItem != null && compareItem.matchesRawExact(this);
-            }
-        }
-        if (matcherLow.equals("potion") && CoreUtilities.toLowerCase(getBukkitMaterial().name()).contains("potion")) {
-            return true;
-        }
-        boolean isItemScript = isItemscript();
-        if (matcherLow.equals("script") && isItemScript) {
-            return true;
-        }
-        if (matcher.contains("[") && matcher.endsWith("]")) {
-            PropertyMatchHelper<ItemTag> helper = PropertyMatchHelper.getPropertyMatchHelper(ItemTag.class, matcher, (actual, compare) -> {
-                return actual.getBukkitMaterial() == compare.getBukkitMaterial();
-            });
-            if (helper == null) {
-                return false;
-            }
-            return helper.doesMatch(this);
-        }
-        if (isItemScript) {
-            ScriptEvent.MatchHelper matchHelper = BukkitScriptEvent.createMatcher(matcher);
-            if (matchHelper.doesMatch(getScriptName())) {
-                return true;
-            }
-        }
-        return MaterialTag.advancedMatchesInternal(getBukkitMaterial(), matcher, !isItemScript);
+        return CompiledItemMatcher.get(matcher).doesMatch(this);
     }
 }
@@ -13,8 +13,9 @@ import com.denizenscript.denizen.objects.properties.material.MaterialDistance;
 import com.denizenscript.denizen.objects.properties.material.MaterialHalf;
 import com.denizenscript.denizen.scripts.commands.world.SwitchCommand;
 import com.denizenscript.denizen.utilities.*;
+import com.denizenscript.denizen.utilities.blocks.BlockScanHelper;
 import com.denizenscript.denizen.utilities.blocks.SpawnableHelper;
-import com.denizenscript.denizen.utilities.flags.DataPersistenceFlagTracker;
+import com.denizenscript.denizen.utilities.flags.LocationFlagTracker;
 import com.denizenscript.denizen.utilities.flags.LocationFlagSearchHelper;
 import com.denizenscript.denizen.utilities.world.PathFinder;
 import com.denizenscript.denizen.utilities.world.WorldListChangeTracker;
@@ -58,6 +59,7 @@ import org.bukkit.util.*;
 import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class LocationTag extends org.bukkit.Location implements VectorObject, ObjectTag, Notable, Adjustable, FlaggableObject {
@@ -473,7 +475,7 @@ public class LocationTag extends org.bukkit.Location implements VectorObject, Ob
         if (getWorld() == null) {
             return null;
         }
-        return new DataPersistenceFlagTracker(getChunk(), "flag_tracker_" + getBlockX() + "_" + getBlockY() + "_" + getBlockZ() + "_");
+        return new LocationFlagTracker(getChunk(), getBlockX(), getBlockY(), getBlockZ());
     }
 
     @Override
@@ -2695,6 +2697,9 @@ public class LocationTag extends org.bukkit.Location implements VectorObject, Ob
         // Returns a list of blocks within a radius, with an optional search parameter for the block material.
         // Note: current implementation measures the center of nearby block's distance from the exact given location.
         // Result list is sorted by closeness (1 = closest, 2 = next closest, ... last = farthest).
+        // With a plain material matcher, this scans chunk data directly, skipping any chunk sections that cannot contain a match,
+        // and the 'max blocks' limit in the Denizen config applies to the number of results rather than the number of blocks checked.
+        // In that case, chunks that aren't loaded are skipped rather than loaded.
         // -->
         tagProcessor.registerTag(ListTag.class, "find_blocks", (attribute, object) -> {
             String matcher = attribute.hasParam() ? attribute.getParam() : null;
@@ -2707,6 +2712,25 @@ public class LocationTag extends org.bukkit.Location implements VectorObject, Ob
             int max = Settings.blockTagsMaxBlocks();
             int index = 0;
             Location tstart = object.getBlockLocation();
+            Predicate<BlockData> scanTest = matcher == null || object.getWorld() == null ? null : BlockScanHelper.compileMatcher(matcher, attribute.context);
+            if (scanTest != null) {
+                int radiusInt = (int) Math.ceil(radius);
+                World world = object.getWorld();
+                Location testLocation = new Location(world, 0, 0, 0);
+                boolean supported = BlockScanHelper.findInBox(world, tstart.getBlockX() - radiusInt, tstart.getBlockY() - radiusInt, tstart.getBlockZ() - radiusInt,
+                        tstart.getBlockX() + radiusInt, tstart.getBlockY() + radiusInt, tstart.getBlockZ() + radiusInt, scanTest, (x, y, z) -> {
+                    testLocation.setX(x + 0.5);
+                    testLocation.setY(y + 0.5);
+                    testLocation.setZ(z + 0.5);
+                    return Utilities.checkLocation(object, testLocation, radius);
+                }, max, (x, y, z) -> {
+                    found.addObject(new LocationTag(world, x, y, z));
+                });
+                if (supported) {
+                    found.objectForms.sort((loc1, loc2) -> object.compare((LocationTag) loc1, (LocationTag) loc2));
+                    return found;
+                }
+            }
             double tstartY = tstart.getY();
             int radiusInt = (int) Math.ceil(radius);
             fullloop:
@@ -99,6 +99,11 @@ public class PlayerTag implements ObjectTag, Adjustable, EntityFormObject, Flagg
 
     static Map<String, UUID> playerNames = new HashMap<>();
 
+    /**
+     * Reverse of 'playerNames': player UUID to their most recently noted name (lowercase).
+     */
+    static Map<UUID, String> playerNamesById = new HashMap<>();
+
     /**
      * Notes that the player exists, for easy PlayerTag valueOf handling.
      */
@@ -107,19 +112,57 @@ public class PlayerTag implements ObjectTag, Adjustable, EntityFormObject, Flagg
             Debug.echoError("Null named player " + player + " - may be file corruption, or player data imported from non-bukkit server?");
             return;
         }
-        if (!playerNames.containsKey(CoreUtilities.toLowerCase(player.getName()))) {
-            playerNames.put(CoreUtilities.toLowerCase(player.getName()), player.getUniqueId());
+        PlayerNameDirectory.ensureLoaded();
+        String name = CoreUtilities.toLowerCase(player.getName());
+        if (!playerNames.containsKey(name)) {
+            playerNames.put(name, player.getUniqueId());
+            PlayerNameDirectory.dirty = true;
+            PlayerNameIndex.noteName(name, player.getUniqueId());
+        }
+        if (!name.equals(playerNamesById.put(player.getUniqueId(), name))) {
+            PlayerNameDirectory.dirty = true;
         }
     }
 
+    /**
+     * Replaces the noted player names with a set loaded by PlayerNameDirectory, keeping any names noted before the load was applied.
+     */
+    public static void applyLoadedPlayerNames(HashMap<String, UUID> byName, HashMap<UUID, String> byId) {
+        for (Map.Entry<String, UUID> entry : playerNames.entrySet()) {
+            byName.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        byId.putAll(playerNamesById);
+        playerNames = byName;
+        playerNamesById = byId;
+        PlayerNameIndex.invalidate();
+    }
+
     public static boolean isNoted(OfflinePlayer player) {
-        return playerNames.containsValue(player.getUniqueId());
+        PlayerNameDirectory.ensureLoaded();
+        return playerNamesById.containsKey(player.getUniqueId());
+    }
+
+    /**
+     * Returns the most recently noted name (lowercase) of the player, or null if the player isn't noted.
+     */
+    public static String getNotedName(UUID id) {
+        PlayerNameDirectory.ensureLoaded();
+        return playerNamesById.get(id);
     }
 
     public static Map<String, UUID> getAllPlayers() {
+        PlayerNameDirectory.ensureLoaded();
         return playerNames;
     }
 
+    /**
+     * Returns the most recently noted name (lowercase) of every noted player.
+     */
+    public static Map<UUID, String> getAllPlayerNamesById() {
+        PlayerNameDirectory.ensureLoaded();
+        return playerNamesById;
+    }
+
     /////////////////////
     //   OBJECT FETCHER
     /////////////////
@@ -155,8 +198,13 @@ public class PlayerTag implements ObjectTag, Adjustable, EntityFormObject, Flagg
             }
         }
         // Match as a player name
-        if (string.length() <= 16 && playerNames.containsKey(string)) {
-            OfflinePlayer player = Bukkit.getOfflinePlayer(playerNames.get(string));
+        UUID namedId = null;
+        if (string.length() <= 16) {
+            PlayerNameDirectory.ensureLoaded();
+            namedId = playerNames.get(string);
+        }
+        if (namedId != null) {
+            OfflinePlayer player = Bukkit.getOfflinePlayer(namedId);
             if (announce && (context == null || context.script != null)) { // 'script != null' check is to allow ex command usage silently
                 BukkitImplDeprecations.playerByNameWarning.message = playerByNameMessage + " Player named '" + player.getName() + "' has UUID: " + player.getUniqueId();
                 BukkitImplDeprecations.playerByNameWarning.warn(context);
@@ -195,6 +243,7 @@ public class PlayerTag implements ObjectTag, Adjustable, EntityFormObject, Flagg
     }
 
     public static boolean playerNameIsValid(String name) {
+        PlayerNameDirectory.ensureLoaded();
         return playerNames.containsKey(CoreUtilities.toLowerCase(name));
     }
 
@@ -2304,6 +2353,7 @@ public class PlayerTag implements ObjectTag, Adjustable, EntityFormObject, Flagg
         // @returns ListTag(LocationTag)
         // @description
         // Returns a list of locations that the player will see a fake block at, as set by <@link command showfake> or connected commands.
+        // This includes fake blocks from any fake block layers the player is subscribed to.
         // -->
         tagProcessor.registerTag(ListTag.class, "fake_block_locations", (attribute, object) -> {
             ListTag list = new ListTag();
@@ -2313,6 +2363,36 @@ public class PlayerTag implements ObjectTag, Adjustable, EntityFormObject, Flagg
                     list.addObject(loc.clone());
                 }
             }
+            List<FakeBlock.FakeBlockLayer> layers = FakeBlock.subscribedLayers.get(object.getUUID());
+            if (layers != null) {
+                HashSet<LocationTag> seen = map == null ? new HashSet<>() : new HashSet<>(map.byLocation.keySet());
+                for (FakeBlock.FakeBlockLayer layer : layers) {
+                    for (LocationTag loc : layer.blocks.byLocation.keySet()) {
+                        if (seen.add(loc)) {
+                            list.addObject(loc.clone());
+                        }
+                    }
+                }
+            }
+            return list;
+        });
+
+        // <--[tag]
+        // @attribute <PlayerTag.fake_block_layers>
+        // @returns ListTag
+        // @mechanism PlayerTag.fake_block_layers
+        // @description
+        // Returns a list of fake block layer names the player is subscribed to, in order of priority (highest first).
+        // See <@link command showfake>.
+        // -->
+        tagProcessor.registerTag(ListTag.class, "fake_block_layers", (attribute, object) -> {
+            ListTag list = new ListTag();
+            List<FakeBlock.FakeBlockLayer> layers = FakeBlock.subscribedLayers.get(object.getUUID());
+            if (layers != null) {
+                for (FakeBlock.FakeBlockLayer layer : layers) {
+                    list.add(layer.name);
+                }
+            }
             return list;
         });
 
@@ -2329,12 +2409,12 @@ public class PlayerTag implements ObjectTag, Adjustable, EntityFormObject, Flagg
                 return null;
             }
             LocationTag input = attribute.paramAsType(LocationTag.class);
-            FakeBlock.FakeBlockMap map = FakeBlock.blocks.get(object.getUUID());
-            if (map != null) {
-                FakeBlock block = map.byLocation.get(input);
-                if (block != null) {
-                    return block.material;
-                }
+            if (input == null) {
+                return null;
+            }
+            FakeBlock block = FakeBlock.getFakeBlockFor(object.getUUID(), input);
+            if (block != null) {
+                return block.material;
             }
             return null;
         });
@@ -2674,6 +2754,22 @@ public class PlayerTag implements ObjectTag, Adjustable, EntityFormObject, Flagg
                 object.getNBTEditor().setSpawnForced(input.asBoolean());
             }
         });
+
+        // <--[mechanism]
+        // @object PlayerTag
+        // @name fake_block_layers
+        // @input ListTag
+        // @description
+        // Sets the list of fake block layers the player is subscribed to, replacing any existing subscriptions.
+        // The player will see all fake blocks in the given layers. Provide no input to unsubscribe from all layers.
+        // See <@link command showfake> for defining fake block layers.
+        // @tags
+        // <PlayerTag.fake_block_layers>
+        // -->
+        registerOnlineOnlyMechanism("fake_block_layers", (object, mechanism) -> {
+            ListTag layers = mechanism.hasValue() ? mechanism.valueAsType(ListTag.class) : new ListTag();
+            FakeBlock.setSubscribedLayers(object, layers);
+        });
     }
 
     public static ObjectTagProcessor<PlayerTag> tagProcessor = new ObjectTagProcessor<>();
@@ -3369,11 +3465,12 @@ public class PlayerTag implements ObjectTag, Adjustable, EntityFormObject, Flagg
         // To hide a specific entity from the player, use <@link mechanism PlayerTag.hide_entity>.
         // To remove hide sets, use <@link mechanism PlayerTag.unhide_entities>.
         // Note that dynamic matchables like 'entity_flagged' will behave in unexpected ways when dynamically changing.
+        // Match results are cached per entity, and are only rechecked when the hide set changes, or when the entity's flags or script change.
         // -->
         if (mechanism.matches("hide_entities") && mechanism.hasValue()) {
             HideEntitiesHelper.PlayerHideMap map = HideEntitiesHelper.getPlayerMapFor(getUUID());
             String hideMe = mechanism.getValue().asString();
-            map.matchersHidden.add(hideMe);
+            map.addMatcher(hideMe);
             if (isOnline()) {
                 for (Entity ent : getPlayerEntity().getWorld().getEntities()) {
                     if (new EntityTag(ent).tryAdvancedMatcher(hideMe, mechanism.context) && map.shouldHide(ent)) {
@@ -3393,7 +3490,7 @@ public class PlayerTag implements ObjectTag, Adjustable, EntityFormObject, Flagg
         if (mechanism.matches("unhide_entities") && mechanism.hasValue()) {
             HideEntitiesHelper.PlayerHideMap map = HideEntitiesHelper.getPlayerMapFor(getUUID());
             String unhideMe = mechanism.getValue().asString();
-            map.matchersHidden.remove(unhideMe);
+            map.removeMatcher(unhideMe);
             if (map.matchersHidden.isEmpty() && map.entitiesHidden.isEmpty() && map.overridinglyShow.isEmpty()) {
                 HideEntitiesHelper.playerHides.remove(getUUID());
             }
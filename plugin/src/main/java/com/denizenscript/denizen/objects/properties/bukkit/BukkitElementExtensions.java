@@ -292,8 +292,7 @@ public class BukkitElementExtensions {
         // @description
         // Returns the element split into separate lines based on a maximum width in pixels per line.
         // This uses character width, so for example 20 "W"s and 20 "i"s will be treated differently.
-        // The width used is based on the vanilla minecraft font. This will not be accurate for other fonts.
-        // This only currently supports ASCII symbols properly. Unicode symbols will be estimated as 6 pixels.
+        // The width used is based on the default font (see <@link tag ElementTag.text_width>). Other fonts are not accounted for.
         // Spaces will be preferred to become newlines, unless a line does not contain any spaces.
         // -->
         ElementTag.tagProcessor.registerStaticTag(ElementTag.class, ElementTag.class, "split_lines_by_width", (attribute, object, widthText) -> {
@@ -306,12 +305,18 @@ public class BukkitElementExtensions {
         // @group element manipulation
         // @description
         // Returns the width, in pixels, of the text.
-        // The width used is based on the vanilla minecraft font. This will not be accurate for other fonts.
-        // This only currently supports ASCII symbols properly. Unicode symbols will be estimated as 6 pixels.
+        // The width used is based on the vanilla minecraft font, unless a resource pack is configured in the Denizen config ('Tags.Text width.Resource pack'), in which case its fonts are used.
+        // Without a resource pack, this only supports ASCII symbols properly, and other Unicode symbols will be estimated as 6 pixels.
+        // Text that uses advanced formatting (like <&font[...]>) is measured per-part, with each part's font and bold state.
+        // Translated text, keybinds, scores, and selectors are not measured, as they are resolved by the client.
         // If the element contains newlines, will return the widest line width.
         // -->
         ElementTag.tagProcessor.registerStaticTag(ElementTag.class, "text_width", (attribute, object) -> {
-            return new ElementTag(TextWidthHelper.getWidth(object.asString()));
+            String text = object.asString();
+            if (text.contains(ChatColor.COLOR_CHAR + "[")) {
+                return new ElementTag(TextWidthHelper.getWidth(FormattedTextHelper.parse(text, ChatColor.WHITE)));
+            }
+            return new ElementTag(TextWidthHelper.getWidth(text));
         });
 
         // <--[tag]
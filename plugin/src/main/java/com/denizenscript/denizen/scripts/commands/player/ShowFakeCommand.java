@@ -23,16 +23,16 @@ public class ShowFakeCommand extends AbstractCommand {
 
     public ShowFakeCommand() {
         setName("showfake");
-        setSyntax("showfake [<material>|.../cancel] [<location>|...] (players:<player>|...) (d:<duration>{10s})");
-        setRequiredArguments(2, 4);
+        setSyntax("showfake [<material>|.../cancel] [<location>|...] (players:<player>|...) (d:<duration>{10s}) (layer:<name>) (priority:<#>)");
+        setRequiredArguments(2, 6);
         isProcedural = false;
     }
 
     // <--[command]
     // @Name ShowFake
-    // @Syntax showfake [<material>|.../cancel] [<location>|...] (players:<player>|...) (d:<duration>{10s})
+    // @Syntax showfake [<material>|.../cancel] [<location>|...] (players:<player>|...) (d:<duration>{10s}) (layer:<name>) (priority:<#>)
     // @Required 2
-    // @Maximum 4
+    // @Maximum 6
     // @Short Makes the player see a block change that didn't actually happen.
     // @Synonyms FakeBlock
     // @Group player
@@ -51,6 +51,14 @@ public class ShowFakeCommand extends AbstractCommand {
     // Optionally, specify how long the fake block should remain for.
     // If unspecified, will default to 10 seconds.
     // After the duration is up, the block will revert back to whatever it really is (on the server-side).
+    // Set the duration to 0 to keep the fake block until it is cancelled.
+    //
+    // Optionally, specify a layer name to add the fake blocks to a named fake block layer, instead of to individual players.
+    // A layer is defined once and shown to every player subscribed to it (see <@link mechanism PlayerTag.fake_block_layers>),
+    // which is much more efficient than showing the same fake blocks to many players individually.
+    // When a layer is specified, the 'players' argument is ignored.
+    // Optionally, also specify a priority number for the layer. When a player is subscribed to multiple layers that have a fake block at the same location,
+    // the layer with the highest priority is shown. A player's own (non-layer) fake blocks always take precedence over layers. Layers default to priority 0.
     //
     // Note that while the player will see the block as though it were real, the server will have no knowledge of this.
     // This means that if the player, for example, stands atop a fake block that the server sees as air, that player will be seen as flying.
@@ -64,6 +72,7 @@ public class ShowFakeCommand extends AbstractCommand {
     // @Tags
     // <PlayerTag.fake_block_locations>
     // <PlayerTag.fake_block[<location>]>
+    // <PlayerTag.fake_block_layers>
     //
     // @Usage
     // Use to place a fake gold block at where the player is looking
@@ -76,6 +85,15 @@ public class ShowFakeCommand extends AbstractCommand {
     // @Usage
     // Use to place fake lava that the player is standing in, for all the server to see
     // - showfake lava <player.location> players:<server.online_players>
+    //
+    // @Usage
+    // Use to define a permanent fake build in a layer named "arena_build", and show it to all players in the arena.
+    // - showfake <[materials]> <[locations]> layer:arena_build duration:0
+    // - adjust <[arena_players]> fake_block_layers:arena_build
+    //
+    // @Usage
+    // Use to remove a block from the "arena_build" layer.
+    // - showfake cancel <[location]> layer:arena_build
     // -->
 
     @Override
@@ -94,6 +112,15 @@ public class ShowFakeCommand extends AbstractCommand {
                     && arg.matchesArgumentType(DurationTag.class)) {
                 scriptEntry.addObject("duration", arg.asType(DurationTag.class));
             }
+            else if (!scriptEntry.hasObject("layer")
+                    && arg.matchesPrefix("layer")) {
+                scriptEntry.addObject("layer", arg.asElement());
+            }
+            else if (!scriptEntry.hasObject("priority")
+                    && arg.matchesPrefix("priority")
+                    && arg.matchesInteger()) {
+                scriptEntry.addObject("priority", arg.asElement());
+            }
             else if (arg.matches("cancel")) {
                 scriptEntry.addObject("cancel", new ElementTag(true));
             }
@@ -115,7 +142,7 @@ public class ShowFakeCommand extends AbstractCommand {
         if (!scriptEntry.hasObject("locations")) {
             throw new InvalidArgumentsException("Must specify at least one valid location!");
         }
-        if (!scriptEntry.hasObject("players")) {
+        if (!scriptEntry.hasObject("players") && !scriptEntry.hasObject("layer")) {
             throw new InvalidArgumentsException("Must have a valid, online player attached!");
         }
         if (!scriptEntry.hasObject("materials") && !scriptEntry.hasObject("cancel")) {
@@ -133,10 +160,30 @@ public class ShowFakeCommand extends AbstractCommand {
         List<MaterialTag> materials = (List<MaterialTag>) scriptEntry.getObject("materials");
         List<LocationTag> locations = (List<LocationTag>) scriptEntry.getObject("locations");
         List<PlayerTag> players = (List<PlayerTag>) scriptEntry.getObject("players");
+        ElementTag layerName = scriptEntry.getElement("layer");
+        ElementTag priority = scriptEntry.getElement("priority");
         if (scriptEntry.dbCallShouldDebug()) {
-            Debug.report(scriptEntry, getName(), duration, cancel, db("materials", materials), db("locations", locations), db("players", players));
+            Debug.report(scriptEntry, getName(), duration, cancel, db("materials", materials), db("locations", locations), db("players", players), layerName, priority);
         }
         boolean shouldCancel = cancel.asBoolean();
+        if (layerName != null) {
+            FakeBlock.FakeBlockLayer layer = FakeBlock.getOrCreateLayer(layerName.asString());
+            if (priority != null) {
+                FakeBlock.setLayerPriority(layer, priority.asInt());
+            }
+            int i = 0;
+            for (LocationTag loc : locations) {
+                if (!shouldCancel) {
+                    FakeBlock.showFakeBlockInLayer(layer, loc.getBlockLocation(), materials.get(i % materials.size()), duration, locations.size() < 5);
+                }
+                else {
+                    FakeBlock.stopShowingInLayer(layer, loc.getBlockLocation());
+                }
+                i++;
+            }
+            FakeBlock.removeLayerIfUnused(layer);
+            return;
+        }
         int i = 0;
         for (LocationTag loc : locations) {
             if (!shouldCancel) {
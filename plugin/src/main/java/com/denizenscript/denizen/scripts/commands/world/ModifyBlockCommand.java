@@ -4,6 +4,7 @@ import com.denizenscript.denizen.Denizen;
 import com.denizenscript.denizen.nms.NMSHandler;
 import com.denizenscript.denizen.objects.*;
 import com.denizenscript.denizen.utilities.Utilities;
+import com.denizenscript.denizen.utilities.blocks.BlockWorkScheduler;
 import com.denizenscript.denizen.utilities.command.TabCompleteHelper;
 import com.denizenscript.denizencore.exceptions.InvalidArgumentsException;
 import com.denizenscript.denizencore.objects.Argument;
@@ -17,6 +18,7 @@ import com.denizenscript.denizencore.scripts.commands.Holdable;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.ScriptUtilities;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -36,7 +38,6 @@ import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.entity.EntityChangeBlockEvent;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -46,8 +47,8 @@ public class ModifyBlockCommand extends AbstractCommand implements Listener, Hol
 
     public ModifyBlockCommand() {
         setName("modifyblock");
-        setSyntax("modifyblock [<location>|.../<ellipsoid>/<cuboid>] [<material>|...] (no_physics/naturally:<tool>) (delayed) (<script>) (<percent chance>|...) (source:<player>) (max_delay_ms:<#>)");
-        setRequiredArguments(2, 8);
+        setSyntax("modifyblock [<location>|.../<ellipsoid>/<cuboid>] [<material>|...] (no_physics/naturally:<tool>) (delayed) (<script>) (<percent chance>|...) (source:<player>) (max_delay_ms:<#>) (priority:<#>)");
+        setRequiredArguments(2, 9);
         Bukkit.getPluginManager().registerEvents(this, Denizen.getInstance());
         // Keep the list empty automatically - we don't want to still block physics so much later that something else edited the block!
         Bukkit.getScheduler().scheduleSyncRepeatingTask(Denizen.getInstance(), () -> {
@@ -61,9 +62,9 @@ public class ModifyBlockCommand extends AbstractCommand implements Listener, Hol
 
     // <--[command]
     // @Name ModifyBlock
-    // @Syntax modifyblock [<location>|.../<ellipsoid>/<cuboid>] [<material>|...] (no_physics/naturally:<tool>) (delayed) (<script>) (<percent chance>|...) (source:<player>) (max_delay_ms:<#>)
+    // @Syntax modifyblock [<location>|.../<ellipsoid>/<cuboid>] [<material>|...] (no_physics/naturally:<tool>) (delayed) (<script>) (<percent chance>|...) (source:<player>) (max_delay_ms:<#>) (priority:<#>)
     // @Required 2
-    // @Maximum 8
+    // @Maximum 9
     // @Short Modifies blocks.
     // @Synonyms SetBlock,ChangeBlock,PlaceBlock,BreakBlock
     // @Group world
@@ -80,6 +81,10 @@ public class ModifyBlockCommand extends AbstractCommand implements Listener, Hol
     //
     // Use 'delayed' to make the modifyblock slowly edit blocks at a time pace roughly equivalent to the server's limits.
     // Optionally, specify 'max_delay_ms' to control how many milliseconds the 'delayed' set can run for in any given tick (defaults to 50).
+    // All delayed block edits on the server (from this command and from 'schematic') share a single time budget per tick, which is reduced automatically when the server is lagging.
+    // Locations are edited one chunk at a time.
+    // Optionally, specify 'priority' as a number to control which delayed edits get time first when several are running at once (higher goes first, defaults to 0).
+    // Progress of running delayed edits is available through <@link tag server.block_work_status>.
     //
     // Note that specifying a list of locations will take more time in parsing than in the actual block modification.
     //
@@ -177,6 +182,11 @@ public class ModifyBlockCommand extends AbstractCommand implements Listener, Hol
                     && arg.matchesInteger()) {
                 scriptEntry.addObject("max_delay_ms", arg.asElement());
             }
+            else if (!scriptEntry.hasObject("priority")
+                    && arg.matchesPrefix("priority")
+                    && arg.matchesInteger()) {
+                scriptEntry.addObject("priority", arg.asElement());
+            }
             else if (!scriptEntry.hasObject("delayed")
                     && arg.matches("delayed")) {
                 scriptEntry.addObject("delayed", new ElementTag(true));
@@ -202,12 +212,32 @@ public class ModifyBlockCommand extends AbstractCommand implements Listener, Hol
         }
         scriptEntry.defaultObject("radius", new ElementTag(0))
                 .defaultObject("max_delay_ms", new ElementTag(50))
+                .defaultObject("priority", new ElementTag(0))
                 .defaultObject("height", new ElementTag(0))
                 .defaultObject("depth", new ElementTag(0))
                 .defaultObject("physics", new ElementTag(true))
                 .defaultObject("delayed", new ElementTag(false));
     }
 
+    /**
+     * Returns the order to process location indices in, grouped by chunk where the locations are already known, so delayed edits finish one chunk at a time.
+     * Raw location lists are left in their original order, as they're parsed lazily.
+     */
+    public static int[] getChunkOrder(List<LocationTag> locations, int listSize) {
+        int[] order = new int[locations != null ? locations.size() : listSize];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        if (locations != null) {
+            IntArrays.mergeSort(order, (a, b) -> {
+                LocationTag locA = locations.get(a), locB = locations.get(b);
+                int compare = Integer.compare(locA.getBlockX() >> 4, locB.getBlockX() >> 4);
+                return compare != 0 ? compare : Integer.compare(locA.getBlockZ() >> 4, locB.getBlockZ() >> 4);
+            });
+        }
+        return order;
+    }
+
     public static LocationTag getLocAt(ListTag list, int index, ScriptEntry entry) {
         ObjectTag obj = list.getObject(index);
         if (obj instanceof LocationTag) {
@@ -239,6 +269,7 @@ public class ModifyBlockCommand extends AbstractCommand implements Listener, Hol
         final ItemTag natural = scriptEntry.getObjectTag("natural");
         final ElementTag delayed = scriptEntry.getElement("delayed");
         final ElementTag maxDelayMs = scriptEntry.getElement("max_delay_ms");
+        final ElementTag priority = scriptEntry.getElement("priority");
         final ElementTag radiusElement = scriptEntry.getElement("radius");
         final ElementTag heightElement = scriptEntry.getElement("height");
         final ElementTag depthElement = scriptEntry.getElement("depth");
@@ -259,7 +290,7 @@ public class ModifyBlockCommand extends AbstractCommand implements Listener, Hol
         }
         if (scriptEntry.dbCallShouldDebug()) {
             Debug.report(scriptEntry, getName(), materials, physics, radiusElement, heightElement, depthElement, natural,
-                    delayed, maxDelayMs, script, percents, source, (locations == null ? location_list : db("locations", locations)));
+                    delayed, maxDelayMs, priority, script, percents, source, (locations == null ? location_list : db("locations", locations)));
         }
         Player sourcePlayer = source == null ? null : source.getPlayerEntity();
         final boolean doPhysics = physics.asBoolean();
@@ -290,27 +321,26 @@ public class ModifyBlockCommand extends AbstractCommand implements Listener, Hol
         }
         no_physics = !doPhysics;
         if (delayed.asBoolean()) {
-            final long maxDelay = maxDelayMs.asLong();
-            new BukkitRunnable() {
-                int index = 0;
+            final int[] order = getChunkOrder(locations, location_list == null ? 0 : location_list.size());
+            BlockWorkScheduler.submit(new BlockWorkScheduler.Task("modifyblock", priority.asInt(), maxDelayMs.asLong(), order.length) {
+                boolean failed = false;
                 @Override
-                public void run() {
+                public boolean process(long deadlineNanos) {
+                    LocationTag loc;
+                    if (locations != null) {
+                        loc = locations.get(0);
+                    }
+                    else {
+                        loc = getLocAt(location_list, 0, scriptEntry);
+                    }
+                    if (isLocationBad(scriptEntry, loc)) {
+                        failed = true;
+                        return true;
+                    }
+                    boolean was_static = preSetup(loc);
                     try {
-                        long start = CoreUtilities.monotonicMillis();
-                        LocationTag loc;
-                        if (locations != null) {
-                            loc = locations.get(0);
-                        }
-                        else {
-                            loc = getLocAt(location_list, 0, scriptEntry);
-                        }
-                        if (isLocationBad(scriptEntry, loc)) {
-                            scriptEntry.setFinished(true);
-                            cancel();
-                            return;
-                        }
-                        boolean was_static = preSetup(loc);
-                        while ((locations != null && locations.size() > index) || (location_list != null && location_list.size() > index)) {
+                        while (done < total) {
+                            int index = order[(int) done];
                             LocationTag nLoc;
                             if (locations != null) {
                                 nLoc = locations.get(index);
@@ -319,30 +349,35 @@ public class ModifyBlockCommand extends AbstractCommand implements Listener, Hol
                                 nLoc = getLocAt(location_list, index, scriptEntry);
                             }
                             if (isLocationBad(scriptEntry, nLoc)) {
-                                scriptEntry.setFinished(true);
-                                cancel();
-                                return;
+                                failed = true;
+                                return true;
                             }
                             handleLocation(nLoc, index, materialList, doPhysics, natural, radius, height, depth, percs, sourcePlayer, scriptEntry);
-                            index++;
-                            if (CoreUtilities.monotonicMillis() - start > maxDelay) {
+                            done++;
+                            if (System.nanoTime() > deadlineNanos) {
                                 break;
                             }
                         }
+                    }
+                    finally {
                         postComplete(loc, was_static);
-                        if ((locations != null && locations.size() == index) || (location_list != null && location_list.size() == index)) {
-                            if (script != null) {
-                                ScriptUtilities.createAndStartQueue(script.getContainer(), null, scriptEntry.entryData, null, null, null, null, null, scriptEntry);
-                            }
-                            scriptEntry.setFinished(true);
-                            cancel();
-                        }
                     }
-                    catch (Throwable ex) {
-                        Debug.echoError(ex);
+                    return done >= total;
+                }
+
+                @Override
+                public void complete() {
+                    if (!failed && script != null) {
+                        ScriptUtilities.createAndStartQueue(script.getContainer(), null, scriptEntry.entryData, null, null, null, null, null, scriptEntry);
                     }
+                    scriptEntry.setFinished(true);
+                }
+
+                @Override
+                public void failed() {
+                    scriptEntry.setFinished(true);
                 }
-            }.runTaskTimer(Denizen.getInstance(), 1, 1);
+            });
         }
         else {
             LocationTag loc;
@@ -39,8 +39,8 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
 
     public SchematicCommand() {
         setName("schematic");
-        setSyntax("schematic [create/load/unload/rotate/save/flip_x/flip_y/flip_z/paste (fake_to:<player>|... fake_duration:<duration>) (noair) (mask:<material_matcher>)] [name:<name>] (filename:<name>) (angle:<#>) (<location>) (area:<area>) (delayed) (max_delay_ms:<#>) (entities) (flags)");
-        setRequiredArguments(2, 13);
+        setSyntax("schematic [create/load/unload/rotate/save/flip_x/flip_y/flip_z/paste (fake_to:<player>|... fake_duration:<duration>) (noair) (direct) (mask:<material_matcher>)] [name:<name>] (filename:<name>) (angle:<#>) (<location>) (area:<area>) (delayed) (max_delay_ms:<#>) (priority:<#>) (entities) (flags)");
+        setRequiredArguments(2, 15);
         TagManager.registerTagHandler(new TagRunnable.RootForm() {
             @Override
             public void run(ReplaceableTagEvent event) {
@@ -51,16 +51,16 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
         noPhys = false;
         Bukkit.getPluginManager().registerEvents(this, Denizen.getInstance());
         isProcedural = false;
-        setBooleansHandled("noair", "delayed", "entities", "flags");
-        setPrefixesHandled("angle", "fake_duration", "mask", "name", "filename", "max_delay_ms", "fake_to", "area");
+        setBooleansHandled("noair", "direct", "delayed", "entities", "flags");
+        setPrefixesHandled("angle", "fake_duration", "mask", "name", "filename", "max_delay_ms", "priority", "fake_to", "area");
     }
 
     // <--[command]
     // @Name Schematic
-    // @Syntax schematic [create/load/unload/rotate/save/flip_x/flip_y/flip_z/paste (fake_to:<player>|... fake_duration:<duration>) (noair) (mask:<material_matcher>)] [name:<name>] (filename:<name>) (angle:<#>) (<location>) (area:<area>) (delayed) (max_delay_ms:<#>) (entities) (flags)
+    // @Syntax schematic [create/load/unload/rotate/save/flip_x/flip_y/flip_z/paste (fake_to:<player>|... fake_duration:<duration>) (noair) (direct) (mask:<material_matcher>)] [name:<name>] (filename:<name>) (angle:<#>) (<location>) (area:<area>) (delayed) (max_delay_ms:<#>) (priority:<#>) (entities) (flags)
     // @Group world
     // @Required 2
-    // @Maximum 13
+    // @Maximum 15
     // @Short Creates, loads, pastes, and saves schematics (Sets of blocks).
     //
     // @Description
@@ -88,6 +88,8 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
     // For 'save', 'load', and 'rotate', this processes async to prevent server lockup.
     // For 'paste' and 'create', this delays how many blocks can be processed at once, spread over many ticks.
     // Optionally, specify 'max_delay_ms' to control how many milliseconds the 'delayed' set can run for in any given tick (defaults to 50) (for create/paste only).
+    // Delayed 'create' and 'paste' share a single per-tick time budget with all other delayed block edits (see <@link command modifyblock>), and work through the area one chunk at a time.
+    // Optionally, specify 'priority' as a number to control which delayed edits get time first when several are running at once (higher goes first, defaults to 0).
     //
     // The "load" option by default will load '.schem' files. If no '.schem' file is available, will attempt to load a legacy '.schematic' file instead.
     //
@@ -96,6 +98,10 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
     //
     // The "noair" option skips air blocks in the pasted schematics- this means those air blocks will not replace any blocks in the target location.
     //
+    // The "direct" option can be specified with "paste" to write blocks straight into the target chunks' block storage, which is much faster for large pastes.
+    // This skips physics and block updates entirely, and each chunk is resent to players once after its blocks are written, rather than sending a packet per block.
+    // Lighting is recalculated by the server shortly after. This is only available on 1.19 and above, and is ignored when used with "fake_to".
+    //
     // The "mask" option can be specified to limit what block types the schematic will be pasted over.
     // When using "create" and "mask", any block that doesn't match the mask will become a structure void.
     //
@@ -249,8 +255,10 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
         ElementTag name = scriptEntry.requiredArgForPrefixAsElement("name");
         ElementTag filename = scriptEntry.argForPrefixAsElement("filename", null);
         boolean noair = scriptEntry.argAsBoolean("noair");
+        boolean direct = scriptEntry.argAsBoolean("direct");
         boolean delayed = scriptEntry.argAsBoolean("delayed") || scriptEntry.shouldWaitFor();
         ElementTag maxDelayMs = scriptEntry.argForPrefixAsElement("max_delay_ms", "50");
+        ElementTag priority = scriptEntry.argForPrefixAsElement("priority", "0");
         boolean copyEntities = scriptEntry.argAsBoolean("entities");
         boolean flags = scriptEntry.argAsBoolean("flags");
         LocationTag location = scriptEntry.getObjectTag("location");
@@ -281,8 +289,8 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
         }
         final AreaContainmentObject area = areaVal;
         if (scriptEntry.dbCallShouldDebug()) {
-            Debug.report(scriptEntry, getName(), type, name, location, filename, area, angle, db("noair", noair), db("delayed", delayed),
-                    maxDelayMs, db("flags", flags), db("entities", copyEntities), mask, fakeDuration, db("fake_to", fakeTo));
+            Debug.report(scriptEntry, getName(), type, name, location, filename, area, angle, db("noair", noair), db("direct", direct), db("delayed", delayed),
+                    maxDelayMs, priority, db("flags", flags), db("entities", copyEntities), mask, fakeDuration, db("fake_to", fakeTo));
         }
         CuboidBlockSet set;
         Type ttype = Type.valueOf(type.asString());
@@ -319,7 +327,7 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
                             }
                             schematics.put(name.asString().toUpperCase(), set);
                             scriptEntry.setFinished(true);
-                        }, maxDelayMs.asLong(), flags);
+                        }, () -> scriptEntry.setFinished(true), maxDelayMs.asLong(), flags, priority.asInt());
                     }
                     else {
                         scriptEntry.setFinished(true);
@@ -489,6 +497,8 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
                     BlockSet.InputParams input = new BlockSet.InputParams();
                     input.centerLocation = location;
                     input.noAir = noair;
+                    input.direct = direct;
+                    input.priority = priority.asInt();
                     input.fakeTo = fakeTo;
                     if (fakeTo != null && copyEntities) {
                         Debug.echoError(scriptEntry, "Cannot fake paste entities currently.");
@@ -512,6 +522,10 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
                     Consumer<CuboidBlockSet> pasteRunnable = (schematic) -> {
                         if (delayed) {
                             schematic.readingProcesses++;
+                            input.onFailure = () -> {
+                                scriptEntry.setFinished(true);
+                                schematic.readingProcesses--;
+                            };
                             schematic.setBlocksDelayed(() -> {
                                 try {
                                     if (copyEntities) {
@@ -714,7 +728,7 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
         // Returns the number of blocks in the schematic.
         // -->
         if (attribute.startsWith("blocks")) {
-            event.setReplacedObject(new ElementTag(set.blocks.length)
+            event.setReplacedObject(new ElementTag(set.blocks.size)
                     .getObjectAttribute(attribute.fulfill(1)));
             return;
         }
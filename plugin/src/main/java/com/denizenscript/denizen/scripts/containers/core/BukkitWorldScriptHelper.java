@@ -7,6 +7,7 @@ import com.denizenscript.denizen.objects.*;
 import com.denizenscript.denizen.utilities.ScoreboardHelper;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizen.utilities.Settings;
+import com.denizenscript.denizen.utilities.blocks.FakeBlock;
 import com.denizenscript.denizen.utilities.flags.DataPersistenceFlagTracker;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import org.bukkit.Bukkit;
@@ -101,6 +102,7 @@ public class BukkitWorldScriptHelper implements Listener {
     @EventHandler
     public void playerQuit(PlayerQuitEvent event) {
         NMSHandler.packetHelper.removeNoCollideTeam(event.getPlayer(), null);
+        FakeBlock.removeSubscriptions(event.getPlayer().getUniqueId());
     }
 
     @EventHandler
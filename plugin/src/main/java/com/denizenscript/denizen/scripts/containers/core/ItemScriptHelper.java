@@ -5,7 +5,6 @@ import com.denizenscript.denizen.events.bukkit.ScriptReloadEvent;
 import com.denizenscript.denizen.nms.NMSHandler;
 import com.denizenscript.denizen.nms.NMSVersion;
 import com.denizenscript.denizen.nms.interfaces.ItemHelper;
-import com.denizenscript.denizen.nms.util.jnbt.CompoundTag;
 import com.denizenscript.denizen.objects.EntityTag;
 import com.denizenscript.denizen.objects.ItemTag;
 import com.denizenscript.denizen.objects.MaterialTag;
@@ -26,6 +25,7 @@ import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.YamlConfiguration;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.utilities.text.StringHolder;
+import com.google.common.collect.MapMaker;
 import org.bukkit.*;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.entity.HumanEntity;
@@ -40,6 +40,7 @@ import org.bukkit.inventory.meta.ItemMeta;
 
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 
 public class ItemScriptHelper implements Listener {
@@ -360,54 +361,65 @@ public class ItemScriptHelper implements Listener {
 
     @EventHandler
     public void scriptReload(ScriptReloadEvent event) {
+        itemScriptIdentityCache.clear();
         rebuildRecipes();
     }
 
-    public static boolean isItemscript(ItemStack item) {
-        return getItemScriptNameText(item) != null;
+    /**
+     * The item script an item belongs to: the script name stored on the item, and the matching container (if it's loaded).
+     */
+    public record ItemScriptIdentity(String name, ItemScriptContainer container) {
     }
 
-    public static String getItemScriptNameText(ItemStack item) {
-        if (item == null) {
-            return null;
-        }
-        CompoundTag tag = NMSHandler.itemHelper.getCustomData(item);
-        if (tag == null) {
-            return null;
-        }
-        String scriptName = tag.getString("DenizenItemScript");
+    public static final ItemScriptIdentity NO_ITEM_SCRIPT = new ItemScriptIdentity(null, null);
+
+    /**
+     * Cache of item script identities, keyed weakly by identity on the item's custom data (see ItemHelper.getCustomDataIdentity), cleared on script reload.
+     */
+    public static final ConcurrentMap<Object, ItemScriptIdentity> itemScriptIdentityCache = new MapMaker().weakKeys().makeMap();
+
+    public static ItemScriptIdentity readItemScriptIdentity(ItemStack item) {
+        String scriptName = NMSHandler.itemHelper.getCustomDataString(item, "DenizenItemScript");
         if (scriptName != null && !scriptName.equals("")) {
-            return scriptName;
+            return new ItemScriptIdentity(scriptName, item_scripts.get(scriptName));
         }
         // NOTE: Legacy hashed format
-        String nbt = tag.getString("Denizen Item Script");
+        String nbt = NMSHandler.itemHelper.getCustomDataString(item, "Denizen Item Script");
         if (nbt != null && !nbt.equals("")) {
             ItemScriptContainer container = item_scripts_by_hash_id.get(nbt);
             if (container != null) {
-                return container.getName();
+                return new ItemScriptIdentity(container.getName(), container);
             }
         }
-        return null;
+        return NO_ITEM_SCRIPT;
     }
 
-    public static ItemScriptContainer getItemScriptContainer(ItemStack item) {
+    public static ItemScriptIdentity getItemScriptIdentity(ItemStack item) {
         if (item == null) {
-            return null;
+            return NO_ITEM_SCRIPT;
         }
-        CompoundTag tag = NMSHandler.itemHelper.getCustomData(item);
-        if (tag == null) {
-            return null;
+        Object cacheKey = NMSHandler.itemHelper.getCustomDataIdentity(item);
+        if (cacheKey == null) {
+            return readItemScriptIdentity(item);
         }
-        String scriptName = tag.getString("DenizenItemScript");
-        if (scriptName != null && !scriptName.equals("")) {
-            return item_scripts.get(scriptName);
+        ItemScriptIdentity identity = itemScriptIdentityCache.get(cacheKey);
+        if (identity == null) {
+            identity = readItemScriptIdentity(item);
+            itemScriptIdentityCache.put(cacheKey, identity);
         }
-        // NOTE: Legacy hashed format
-        String nbt = tag.getString("Denizen Item Script");
-        if (nbt != null && !nbt.equals("")) {
-            return item_scripts_by_hash_id.get(nbt);
-        }
-        return null;
+        return identity;
+    }
+
+    public static boolean isItemscript(ItemStack item) {
+        return getItemScriptNameText(item) != null;
+    }
+
+    public static String getItemScriptNameText(ItemStack item) {
+        return getItemScriptIdentity(item).name();
+    }
+
+    public static ItemScriptContainer getItemScriptContainer(ItemStack item) {
+        return getItemScriptIdentity(item).container();
     }
 
     public static String ItemScriptHashID = ChatColor.RED.toString() + ChatColor.BLUE + ChatColor.BLACK;
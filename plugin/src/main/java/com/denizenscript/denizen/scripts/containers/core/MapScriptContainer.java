@@ -60,6 +60,8 @@ public class MapScriptContainer extends ScriptContainer {
     //             # Optionally add width/height numbers.
     //             width: 128
     //             height: 128
+    //             # Optionally, set to true to use Floyd-Steinberg dithering when converting the image to map colors, which usually looks better for photos. Defaults to false.
+    //             dither: false
     //             # Specify a tag to show or hide custom content! Valid for all objects.
     //             # Note that all inputs other than 'type' for all objects support tags that will be dynamically reparsed per-player each time the map updates.
     //             visible: <player.name.contains_text[bob].not>
@@ -141,6 +143,7 @@ public class MapScriptContainer extends ScriptContainer {
                         int width = Integer.parseInt(objectSection.getString("width", "0"));
                         int height = Integer.parseInt(objectSection.getString("height", "0"));
                         added = new MapImage(renderer, x, y, visible, shouldDebug(), image, width, height);
+                        ((MapImage) added).dither = objectSection.getString("dither", "false").equalsIgnoreCase("true");
                         break;
                     case "text":
                         if (!objectSection.contains("text")) {
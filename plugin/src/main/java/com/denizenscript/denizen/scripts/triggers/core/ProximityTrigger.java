@@ -6,13 +6,19 @@ import com.denizenscript.denizen.npc.traits.TriggerTrait;
 import com.denizenscript.denizen.objects.NPCTag;
 import com.denizenscript.denizen.objects.PlayerTag;
 import com.denizenscript.denizen.scripts.triggers.AbstractTrigger;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.citizensnpcs.api.CitizensAPI;
+import net.citizensnpcs.api.event.NPCDespawnEvent;
+import net.citizensnpcs.api.event.NPCSpawnEvent;
+import net.citizensnpcs.api.event.NPCTeleportEvent;
 import net.citizensnpcs.api.npc.NPC;
 import net.citizensnpcs.api.npc.NPCRegistry;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerQuitEvent;
 
@@ -83,6 +89,131 @@ public class ProximityTrigger extends AbstractTrigger implements Listener {
     // -->
     int taskID = -1;
 
+    /**
+     * A spawned NPC in the spatial index, with its last known location.
+     */
+    public static class IndexedNPC {
+
+        public NPC npc;
+
+        public UUID world;
+
+        public long chunkKey;
+
+        public Location location = new Location(null, 0, 0, 0);
+    }
+
+    /**
+     * All spawned NPCs, by NPC UUID. Kept current by NPC spawn/despawn/teleport events, and re-bucketed each run to follow walking NPCs.
+     */
+    public static HashMap<UUID, IndexedNPC> indexedNPCs = new HashMap<>();
+
+    /**
+     * World UUID to chunk key to NPCs currently in that chunk.
+     */
+    public static HashMap<UUID, Long2ObjectOpenHashMap<ArrayList<IndexedNPC>>> npcsByChunk = new HashMap<>();
+
+    public static boolean needsRebuild = true;
+
+    public static long runs = 0, lastRunEvaluations = 0, totalEvaluations = 0;
+
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    public static void unbucket(IndexedNPC entry) {
+        if (entry.world == null) {
+            return;
+        }
+        Long2ObjectOpenHashMap<ArrayList<IndexedNPC>> worldMap = npcsByChunk.get(entry.world);
+        if (worldMap == null) {
+            return;
+        }
+        ArrayList<IndexedNPC> list = worldMap.get(entry.chunkKey);
+        if (list != null) {
+            list.remove(entry);
+            if (list.isEmpty()) {
+                worldMap.remove(entry.chunkKey);
+                if (worldMap.isEmpty()) {
+                    npcsByChunk.remove(entry.world);
+                }
+            }
+        }
+        entry.world = null;
+    }
+
+    public static void updateIndex(NPC npc, Location location) {
+        IndexedNPC entry = indexedNPCs.get(npc.getUniqueId());
+        if (entry == null) {
+            entry = new IndexedNPC();
+            entry.npc = npc;
+            indexedNPCs.put(npc.getUniqueId(), entry);
+        }
+        UUID world = location.getWorld().getUID();
+        long key = chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        entry.location.setWorld(location.getWorld());
+        entry.location.setX(location.getX());
+        entry.location.setY(location.getY());
+        entry.location.setZ(location.getZ());
+        if (world.equals(entry.world) && key == entry.chunkKey) {
+            return;
+        }
+        unbucket(entry);
+        entry.world = world;
+        entry.chunkKey = key;
+        npcsByChunk.computeIfAbsent(world, k -> new Long2ObjectOpenHashMap<>()).computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+    }
+
+    public static void removeFromIndex(NPC npc) {
+        IndexedNPC entry = indexedNPCs.remove(npc.getUniqueId());
+        if (entry != null) {
+            unbucket(entry);
+        }
+    }
+
+    public static void rebuildIndex() {
+        indexedNPCs.clear();
+        npcsByChunk.clear();
+        for (NPCRegistry registry : CitizensAPI.getNPCRegistries()) {
+            for (NPC citizensNPC : registry) {
+                if (citizensNPC != null && citizensNPC.isSpawned()) {
+                    updateIndex(citizensNPC, citizensNPC.getEntity().getLocation());
+                }
+            }
+        }
+        needsRebuild = false;
+    }
+
+    /**
+     * Moves every indexed NPC to its current chunk, and drops any that are no longer spawned.
+     */
+    public static void refreshIndex() {
+        Location ref = new Location(null, 0, 0, 0);
+        for (IndexedNPC entry : new ArrayList<>(indexedNPCs.values())) {
+            Entity entity = entry.npc.getEntity();
+            if (!entry.npc.isSpawned() || entity == null) {
+                removeFromIndex(entry.npc);
+                continue;
+            }
+            updateIndex(entry.npc, entity.getLocation(ref));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onNPCSpawn(NPCSpawnEvent event) {
+        updateIndex(event.getNPC(), event.getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onNPCDespawn(NPCDespawnEvent event) {
+        removeFromIndex(event.getNPC());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onNPCTeleport(NPCTeleportEvent event) {
+        updateIndex(event.getNPC(), event.getTo());
+    }
+
     @Override
     public void onEnable() {
         Bukkit.getServer().getPluginManager().registerEvents(this, Denizen.getInstance());
@@ -90,45 +221,98 @@ public class ProximityTrigger extends AbstractTrigger implements Listener {
             if (timesUsed == 0) { // skip if not in use
                 return;
             }
-            Collection<? extends Player> allPlayers = Bukkit.getOnlinePlayers();
-            for (NPCRegistry registry : CitizensAPI.getNPCRegistries()) {
-                for (NPC citizensNPC : registry) {
-                    if (citizensNPC == null || !citizensNPC.isSpawned()) {
-                        continue;
+            if (needsRebuild) {
+                rebuildIndex();
+            }
+            else {
+                refreshIndex();
+            }
+            long evaluations = 0;
+            int chunkRange = (maxProximityDistance >> 4) + 1;
+            double maxDistanceSquared = maxProximityDistance * maxProximityDistance;
+            Location playerLocation = new Location(null, 0, 0, 0);
+            ArrayList<NPC> candidates = new ArrayList<>();
+            for (Player bukkitPlayer : Bukkit.getOnlinePlayers()) {
+                bukkitPlayer.getLocation(playerLocation);
+                Set<UUID> tracked = proximityTracker.get(bukkitPlayer.getUniqueId());
+                Set<UUID> evaluated = tracked == null ? null : new HashSet<>();
+                Long2ObjectOpenHashMap<ArrayList<IndexedNPC>> worldMap = npcsByChunk.get(playerLocation.getWorld().getUID());
+                if (worldMap != null) {
+                    int playerChunkX = playerLocation.getBlockX() >> 4, playerChunkZ = playerLocation.getBlockZ() >> 4;
+                    for (int x = playerChunkX - chunkRange; x <= playerChunkX + chunkRange; x++) {
+                        for (int z = playerChunkZ - chunkRange; z <= playerChunkZ + chunkRange; z++) {
+                            ArrayList<IndexedNPC> list = worldMap.get(chunkKey(x, z));
+                            if (list == null) {
+                                continue;
+                            }
+                            for (IndexedNPC entry : list) {
+                                UUID npcId = entry.npc.getUniqueId();
+                                boolean isTracked = tracked != null && tracked.contains(npcId);
+                                if (!isTracked && entry.location.distanceSquared(playerLocation) > maxDistanceSquared) {
+                                    continue;
+                                }
+                                if (evaluated != null) {
+                                    evaluated.add(npcId);
+                                }
+                                candidates.add(entry.npc);
+                            }
+                        }
                     }
-                    if (!citizensNPC.hasTrait(TriggerTrait.class) || !citizensNPC.getOrAddTrait(TriggerTrait.class).isEnabled(name)) {
-                        continue;
+                }
+                // Collect first and process after, as proximity scripts can spawn/despawn/teleport NPCs, which changes the index
+                for (NPC npc : candidates) {
+                    if (tryProcessIndexed(npc, bukkitPlayer)) {
+                        evaluations++;
                     }
-                    NPCTag npc = new NPCTag(citizensNPC);
-                    TriggerTrait triggerTrait = npc.getTriggerTrait();
-                    for (Player bukkitPlayer : allPlayers) {
-                        tryProcessSinglePair(npc, triggerTrait, bukkitPlayer);
+                }
+                candidates.clear();
+                if (tracked != null) {
+                    // Players that are inside an NPC's proximity must still be checked when they're far away (or in another world), so that exit fires
+                    for (UUID npcId : new ArrayList<>(tracked)) {
+                        IndexedNPC entry = indexedNPCs.get(npcId);
+                        if (entry != null && !evaluated.contains(npcId) && tryProcessIndexed(entry.npc, bukkitPlayer)) {
+                            evaluations++;
+                        }
                     }
                 }
             }
+            runs++;
+            lastRunEvaluations = evaluations;
+            totalEvaluations += evaluations;
         }, 5, 5);
     }
 
+    public final boolean tryProcessIndexed(NPC citizensNPC, Player bukkitPlayer) {
+        if (!citizensNPC.isSpawned() || !citizensNPC.hasTrait(TriggerTrait.class) || !citizensNPC.getOrAddTrait(TriggerTrait.class).isEnabled(name)) {
+            return false;
+        }
+        NPCTag npc = new NPCTag(citizensNPC);
+        tryProcessSinglePair(npc, npc.getTriggerTrait(), bukkitPlayer);
+        return true;
+    }
+
     public final void tryProcessSinglePair(NPCTag npc, TriggerTrait triggerTrait, Player bukkitPlayer) {
         boolean exitedProximity = hasExitedProximityOf(bukkitPlayer, npc);
-        if (!npc.getWorld().equals(bukkitPlayer.getWorld()) && exitedProximity) {
-            return;
-        }
-        if (!isCloseEnough(bukkitPlayer, npc) && exitedProximity) {
-            return;
-        }
-        PlayerTag player = PlayerTag.mirrorBukkitPlayer(bukkitPlayer);
-        double radius = triggerTrait.getRadius(name);
         Location npcLocation = npc.getLocation();
-        double distance;
-        if (npcLocation.getWorld() != player.getWorld()) {
-            distance = radius + 1;
+        Location playerLocation = bukkitPlayer.getLocation();
+        double distanceSquared;
+        if (npcLocation.getWorld() != playerLocation.getWorld()) {
+            if (exitedProximity) {
+                return;
+            }
+            distanceSquared = Double.MAX_VALUE;
         }
         else {
-            distance = npcLocation.distance(player.getLocation());
+            distanceSquared = npcLocation.distanceSquared(playerLocation);
         }
+        if (exitedProximity && distanceSquared > maxProximityDistance * maxProximityDistance) {
+            return;
+        }
+        double radius = triggerTrait.getRadius(name);
+        double radiusSquared = radius * radius;
         if (!exitedProximity) {
-            if (distance >= radius) {
+            PlayerTag player = PlayerTag.mirrorBukkitPlayer(bukkitPlayer);
+            if (distanceSquared >= radiusSquared) {
                 if (!triggerTrait.triggerCooldownOnly(this, player)) {
                     return;
                 }
@@ -141,7 +325,8 @@ public class ProximityTrigger extends AbstractTrigger implements Listener {
                 parseAll(npc, player, "MOVE");
             }
         }
-        else if (distance <= radius) {
+        else if (distanceSquared <= radiusSquared) {
+            PlayerTag player = PlayerTag.mirrorBukkitPlayer(bukkitPlayer);
             if (!triggerTrait.triggerCooldownOnly(this, player)) {
                 return;
             }
@@ -188,22 +373,9 @@ public class ProximityTrigger extends AbstractTrigger implements Listener {
     @Override
     public void onDisable() {
         Bukkit.getScheduler().cancelTask(taskID);
-    }
-
-    /**
-     * Checks if the Player in Proximity is close enough to be calculated.
-     *
-     * @param player the Player
-     * @param npc    the NPC
-     * @return true if within maxProximityDistance in all directions
-     */
-    private boolean isCloseEnough(Player player, NPCTag npc) {
-        Location pLoc = player.getLocation();
-        Location nLoc = npc.getLocation();
-        if (pLoc.getWorld() != nLoc.getWorld() || pLoc.distanceSquared(nLoc) > maxProximityDistance * maxProximityDistance) {
-            return false;
-        }
-        return true;
+        indexedNPCs.clear();
+        npcsByChunk.clear();
+        needsRebuild = true;
     }
 
     /**
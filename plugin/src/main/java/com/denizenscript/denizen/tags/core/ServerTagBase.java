@@ -11,9 +11,16 @@ import com.denizenscript.denizen.scripts.commands.server.BossBarCommand;
 import com.denizenscript.denizen.scripts.containers.core.AssignmentScriptContainer;
 import com.denizenscript.denizen.scripts.containers.core.CommandScriptHelper;
 import com.denizenscript.denizen.scripts.containers.core.ItemScriptHelper;
+import com.denizenscript.denizen.scripts.triggers.core.ProximityTrigger;
 import com.denizenscript.denizen.utilities.*;
+import com.denizenscript.denizen.utilities.blocks.BlockWorkScheduler;
 import com.denizenscript.denizen.utilities.depends.Depends;
+import com.denizenscript.denizen.utilities.entity.HideEntitiesHelper;
+import com.denizenscript.denizen.utilities.flags.DataPersistenceFlagCache;
+import com.denizenscript.denizen.utilities.flags.PlayerFlagHandler;
+import com.denizenscript.denizen.utilities.flags.PlayerFlagIndex;
 import com.denizenscript.denizen.utilities.inventory.SlotHelper;
+import com.denizenscript.denizen.utilities.packets.PacketHandlerStats;
 import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.events.ScriptEvent;
 import com.denizenscript.denizencore.objects.Mechanism;
@@ -36,8 +43,6 @@ import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.Deprecations;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.utilities.text.StringHolder;
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import net.citizensnpcs.api.CitizensAPI;
 import net.citizensnpcs.api.npc.NPC;
 import net.citizensnpcs.api.npc.NPCRegistry;
@@ -1222,25 +1227,14 @@ public class ServerTagBase extends PseudoObjectTagBase<ServerTagBase> {
         // Returns the online player that best matches the input name.
         // EG, in a group of 'bo', 'bob', and 'bobby'... input 'bob' returns player object for 'bob',
         // input 'bobb' returns player object for 'bobby', and input 'b' returns player object for 'bo'.
+        // Names that start with the input are preferred over names that only contain it, and otherwise the shortest name is preferred.
         // -->
         tagProcessor.registerTag(PlayerTag.class, ElementTag.class, "match_player", (attribute, object, input) -> {
-            Player matchPlayer = null;
             String matchInput = input.asLowerString();
             if (matchInput.isEmpty()) {
                 return null;
             }
-            for (Player player : Bukkit.getOnlinePlayers()) {
-                String nameLow = CoreUtilities.toLowerCase(player.getName());
-                if (nameLow.equals(matchInput)) {
-                    matchPlayer = player;
-                    break;
-                }
-                else if (nameLow.contains(matchInput)) {
-                    if (matchPlayer == null || nameLow.startsWith(matchInput)) {
-                        matchPlayer = player;
-                    }
-                }
-            }
+            Player matchPlayer = PlayerNameIndex.matchOnlinePlayer(matchInput);
             return matchPlayer != null ? new PlayerTag(matchPlayer) : null;
         });
 
@@ -1252,33 +1246,15 @@ public class ServerTagBase extends PseudoObjectTagBase<ServerTagBase> {
         // EG, in a group of 'bo', 'bob', and 'bobby'... input 'bob' returns player object for 'bob',
         // input 'bobb' returns player object for 'bobby', and input 'b' returns player object for 'bo'.
         // When both an online player and an offline player match the name search, the online player will be returned.
+        // Names that start with the input are preferred over names that only contain it, and otherwise the shortest name is preferred.
         // -->
         tagProcessor.registerTag(PlayerTag.class, ElementTag.class, "match_offline_player", (attribute, object, input) -> {
-            PlayerTag matchPlayer = null;
             String matchInput = input.asLowerString();
             if (matchInput.isEmpty()) {
                 return null;
             }
-            for (Map.Entry<String, UUID> entry : PlayerTag.getAllPlayers().entrySet()) {
-                String nameLow = CoreUtilities.toLowerCase(entry.getKey());
-                if (nameLow.equals(matchInput)) {
-                    matchPlayer = new PlayerTag(entry.getValue());
-                    break;
-                }
-                else if (nameLow.contains(matchInput)) {
-                    PlayerTag newMatch = new PlayerTag(entry.getValue());
-                    if (matchPlayer == null) {
-                        matchPlayer = newMatch;
-                    }
-                    else if (newMatch.isOnline() && !matchPlayer.isOnline()) {
-                        matchPlayer = newMatch;
-                    }
-                    else if (nameLow.startsWith(matchInput) && (newMatch.isOnline() == matchPlayer.isOnline())) {
-                        matchPlayer = newMatch;
-                    }
-                }
-            }
-            return matchPlayer;
+            UUID matchId = PlayerNameIndex.matchOfflinePlayer(matchInput);
+            return matchId != null ? new PlayerTag(matchId) : null;
         });
 
         // <--[tag]
@@ -1311,7 +1287,9 @@ public class ServerTagBase extends PseudoObjectTagBase<ServerTagBase> {
         // @returns ListTag(PlayerTag)
         // @description
         // Returns a list of all players (online or offline) with a specified flag set.
-        // Warning: this will cause the player flag cache to temporarily fill with ALL historical playerdata.
+        // This uses Denizen's player flag index, so offline players' flag data doesn't need to be loaded.
+        // For sub-keys (like "my_flag.sub_key"), only players that have the top-level flag have their flag data loaded to check.
+        // Warning: if the index is still being built (eg on the first startup after updating), this will cause the player flag cache to temporarily fill with ALL historical playerdata.
         // Can use "!<flag_name>" style to only return players *without* the flag.
         // -->
         tagProcessor.registerTag(ListTag.class, ElementTag.class, "players_flagged", (attribute, object, input) -> {
@@ -1323,10 +1301,22 @@ public class ServerTagBase extends PseudoObjectTagBase<ServerTagBase> {
                 want = false;
                 flag = flag.substring(1);
             }
+            Set<UUID> indexed = PlayerFlagIndex.getPlayersWith(flag);
+            boolean isSubKey = flag.indexOf('.') != -1;
             for (UUID playerId : PlayerTag.getAllPlayers().values()) {
-                PlayerTag player = new PlayerTag(playerId);
-                if (player.getFlagTracker().hasFlag(flag) == want) {
-                    flaggedPlayers.addObject(player);
+                boolean hasFlag;
+                // Loaded flags may have changes that haven't been saved (and thus indexed) yet, so check those directly
+                if (indexed == null || PlayerFlagHandler.playerFlagTrackerCache.containsKey(playerId)) {
+                    hasFlag = new PlayerTag(playerId).getFlagTracker().hasFlag(flag);
+                }
+                else if (!indexed.contains(playerId)) {
+                    hasFlag = false;
+                }
+                else {
+                    hasFlag = !isSubKey || new PlayerTag(playerId).getFlagTracker().hasFlag(flag);
+                }
+                if (hasFlag == want) {
+                    flaggedPlayers.addObject(new PlayerTag(playerId));
                 }
             }
             return flaggedPlayers;
@@ -1844,17 +1834,163 @@ public class ServerTagBase extends PseudoObjectTagBase<ServerTagBase> {
         tagProcessor.registerTag(MapTag.class, "area_notes_debug", (attribute, object) -> {
             MapTag worlds = new MapTag();
             for (Map.Entry<String, NotedAreaTracker.PerWorldSet> set : NotedAreaTracker.worlds.entrySet()) {
+                NotedAreaTracker.PerWorldSet worldSet = set.getValue();
+                worldSet.rebuildIfNeeded();
                 MapTag worldData = new MapTag();
-                worldData.putObject("global", new ListTag(set.getValue().globalSet.list, trackedArea -> trackedArea.area));
-                worldData.putObject("x50", areaNotesDebug(set.getValue().sets50));
-                worldData.putObject("x50_offset", areaNotesDebug(set.getValue().sets50_offset));
-                worldData.putObject("x200", areaNotesDebug(set.getValue().sets200));
-                worldData.putObject("x200_offset", areaNotesDebug(set.getValue().sets200_offset));
+                worldData.putObject("areas", new ListTag(worldSet.all, trackedArea -> trackedArea.area));
+                worldData.putObject("pending", new ListTag(worldSet.pending, trackedArea -> trackedArea.area));
+                worldData.putObject("tree_depth", new ElementTag(worldSet.root == null ? 0 : worldSet.root.getDepth()));
+                worldData.putObject("tree_nodes", new ElementTag(worldSet.root == null ? 0 : worldSet.root.getNodeCount()));
                 worlds.putObject(set.getKey(), worldData);
             }
             return worlds;
         });
 
+        // <--[tag]
+        // @attribute <server.flag_cache_stats>
+        // @returns MapTag
+        // @description
+        // Generates a report about the entity/block flag cache, with keys 'hits', 'misses', 'invalidations', and 'holders' (the number of entities and chunks currently cached).
+        // This tag is strictly for internal debugging reasons.
+        // -->
+        tagProcessor.registerTag(MapTag.class, "flag_cache_stats", (attribute, object) -> {
+            MapTag result = new MapTag();
+            result.putObject("hits", new ElementTag(DataPersistenceFlagCache.hits));
+            result.putObject("misses", new ElementTag(DataPersistenceFlagCache.misses));
+            result.putObject("invalidations", new ElementTag(DataPersistenceFlagCache.invalidations));
+            result.putObject("holders", new ElementTag(DataPersistenceFlagCache.cache.size()));
+            return result;
+        });
+
+        // <--[tag]
+        // @attribute <server.player_name_match_stats>
+        // @returns MapTag
+        // @description
+        // Generates a report about the player name search index used by <@link tag server.match_player> and <@link tag server.match_offline_player>,
+        // with keys 'names' (total indexed), 'pending' (names added since the last rebuild), 'rebuilds', 'queries', and 'last_query_time', 'average_query_time', and 'max_query_time' (in microseconds).
+        // Enable verbose debug to have each search's time logged.
+        // This tag is strictly for internal debugging reasons.
+        // -->
+        tagProcessor.registerTag(MapTag.class, "player_name_match_stats", (attribute, object) -> {
+            MapTag result = new MapTag();
+            synchronized (PlayerNameIndex.class) {
+                result.putObject("names", new ElementTag(PlayerNameIndex.sortedNames.length + PlayerNameIndex.pendingNames.size()));
+                result.putObject("pending", new ElementTag(PlayerNameIndex.pendingNames.size()));
+                result.putObject("rebuilds", new ElementTag(PlayerNameIndex.rebuilds));
+                result.putObject("queries", new ElementTag(PlayerNameIndex.queries));
+                result.putObject("last_query_time", new ElementTag(PlayerNameIndex.lastQueryNanos / 1000.0));
+                result.putObject("average_query_time", new ElementTag(PlayerNameIndex.queries == 0 ? 0 : PlayerNameIndex.totalQueryNanos / 1000.0 / PlayerNameIndex.queries));
+                result.putObject("max_query_time", new ElementTag(PlayerNameIndex.maxQueryNanos / 1000.0));
+            }
+            return result;
+        });
+
+        // <--[tag]
+        // @attribute <server.formatted_text_cache_stats>
+        // @returns MapTag
+        // @description
+        // Generates a report about the cache of parsed formatted text (see <@link language Denizen Text Formatting>), which is enabled by the 'Tags.Text formatting.Parse cache size' config option,
+        // with keys 'size', 'max_size', 'hits', 'misses', 'hit_rate' (a decimal from 0 to 1), and 'evictions'.
+        // This tag is strictly for internal debugging reasons.
+        // -->
+        tagProcessor.registerTag(MapTag.class, "formatted_text_cache_stats", (attribute, object) -> {
+            MapTag result = new MapTag();
+            long hits = FormattedTextHelper.parseCacheHits, misses = FormattedTextHelper.parseCacheMisses;
+            synchronized (FormattedTextHelper.parseCache) {
+                result.putObject("size", new ElementTag(FormattedTextHelper.parseCache.size()));
+            }
+            result.putObject("max_size", new ElementTag(FormattedTextHelper.parseCacheSize));
+            result.putObject("hits", new ElementTag(hits));
+            result.putObject("misses", new ElementTag(misses));
+            result.putObject("hit_rate", new ElementTag(hits + misses == 0 ? 0 : (double) hits / (hits + misses)));
+            result.putObject("evictions", new ElementTag(FormattedTextHelper.parseCacheEvictions));
+            return result;
+        });
+
+        // <--[tag]
+        // @attribute <server.entity_hide_cache_stats>
+        // @returns MapTag
+        // @description
+        // Generates a report about the cache of matcher-based entity hide results (from <@link mechanism PlayerTag.hide_entities>),
+        // with keys 'hits', 'misses', 'hit_rate' (a decimal from 0 to 1), and 'entries' (the number of cached results across all players).
+        // This tag is strictly for internal debugging reasons.
+        // -->
+        tagProcessor.registerTag(MapTag.class, "entity_hide_cache_stats", (attribute, object) -> {
+            MapTag result = new MapTag();
+            long hits = HideEntitiesHelper.verdictCacheHits.sum(), misses = HideEntitiesHelper.verdictCacheMisses.sum();
+            int entries = 0;
+            for (HideEntitiesHelper.PlayerHideMap map : HideEntitiesHelper.playerHides.values()) {
+                entries += map.matcherVerdicts.size();
+            }
+            result.putObject("hits", new ElementTag(hits));
+            result.putObject("misses", new ElementTag(misses));
+            result.putObject("hit_rate", new ElementTag(hits + misses == 0 ? 0 : (double) hits / (hits + misses)));
+            result.putObject("entries", new ElementTag(entries));
+            return result;
+        });
+
+        // <--[tag]
+        // @attribute <server.block_work_status>
+        // @returns MapTag
+        // @description
+        // Returns the current state of delayed block edits (from 'delayed' <@link command modifyblock> and <@link command schematic> create/paste).
+        // The map has keys 'budget_ms' (the shared time budget per tick, which shrinks when the server is lagging), 'last_tick_ms' (the measured length of the last tick),
+        // and 'tasks', a list of maps for each running edit, in processing order, with keys 'id', 'name', 'priority', 'done', 'total', 'progress' (a decimal from 0 to 1), 'elapsed',
+        // and 'eta' (a DurationTag estimate of the remaining time, missing if no blocks have been processed yet).
+        // -->
+        tagProcessor.registerTag(MapTag.class, "block_work_status", (attribute, object) -> {
+            return BlockWorkScheduler.describe();
+        });
+
+        // <--[tag]
+        // @attribute <server.proximity_trigger_stats>
+        // @returns MapTag
+        // @description
+        // Generates a report about the NPC proximity trigger check loop, with keys 'indexed_npcs' (the number of spawned NPCs in the chunk index), 'runs' (the number of check runs since startup),
+        // 'last_run_evaluations' (the number of NPC/player pairs fully evaluated in the most recent run), and 'total_evaluations'.
+        // Returns an empty map if Citizens is not installed.
+        // This tag is strictly for internal debugging reasons.
+        // -->
+        tagProcessor.registerTag(MapTag.class, "proximity_trigger_stats", (attribute, object) -> {
+            MapTag result = new MapTag();
+            if (Depends.citizens == null) {
+                return result;
+            }
+            result.putObject("indexed_npcs", new ElementTag(ProximityTrigger.indexedNPCs.size()));
+            result.putObject("runs", new ElementTag(ProximityTrigger.runs));
+            result.putObject("last_run_evaluations", new ElementTag(ProximityTrigger.lastRunEvaluations));
+            result.putObject("total_evaluations", new ElementTag(ProximityTrigger.totalEvaluations));
+            return result;
+        });
+
+        // <--[tag]
+        // @attribute <server.packet_handler_stats>
+        // @returns MapTag
+        // @description
+        // Generates a report about the time spent in each of Denizen's outbound packet interceptors (and the 'player receives packet' script event stage) since startup or the last <@link mechanism server.reset_packet_handler_stats>.
+        // Keys are handler names, values are maps with keys 'calls', 'drops' (packets the handler cancelled), 'errors', 'total_ms', and 'average_ns'.
+        // Only handlers that have been called at least once are included.
+        // This tag is strictly for internal debugging reasons.
+        // -->
+        tagProcessor.registerTag(MapTag.class, "packet_handler_stats", (attribute, object) -> {
+            MapTag result = new MapTag();
+            for (PacketHandlerStats stats : PacketHandlerStats.allStats) {
+                long calls = stats.calls.sum();
+                if (calls == 0) {
+                    continue;
+                }
+                long nanos = stats.nanos.sum();
+                MapTag handlerMap = new MapTag();
+                handlerMap.putObject("calls", new ElementTag(calls));
+                handlerMap.putObject("drops", new ElementTag(stats.drops.sum()));
+                handlerMap.putObject("errors", new ElementTag(stats.errors.sum()));
+                handlerMap.putObject("total_ms", new ElementTag(nanos / 1_000_000.0));
+                handlerMap.putObject("average_ns", new ElementTag(nanos / calls));
+                result.putObject(stats.name, handlerMap);
+            }
+            return result;
+        });
+
         // <--[mechanism]
         // @object server
         // @name clean_flags
@@ -1869,6 +2005,35 @@ public class ServerTagBase extends PseudoObjectTagBase<ServerTagBase> {
             DenizenCore.serverFlagMap.doTotalClean();
         });
 
+        // <--[mechanism]
+        // @object server
+        // @name rebuild_player_flag_index
+        // @input None
+        // @description
+        // Rebuilds the index of which players have which flags (used by <@link tag server.players_flagged>) from the player flag files, in the background.
+        // The index is kept up to date automatically, so this is only needed if player flag files were changed outside of Denizen.
+        // @tags
+        // <server.players_flagged[<flag_name>]>
+        // -->
+        tagProcessor.registerMechanism("rebuild_player_flag_index", false, (object, mechanism) -> {
+            PlayerFlagIndex.rebuild();
+        });
+
+        // <--[mechanism]
+        // @object server
+        // @name reset_packet_handler_stats
+        // @input None
+        // @description
+        // Resets the counters reported by <@link tag server.packet_handler_stats>.
+        // @tags
+        // <server.packet_handler_stats>
+        // -->
+        tagProcessor.registerMechanism("reset_packet_handler_stats", false, (object, mechanism) -> {
+            for (PacketHandlerStats stats : PacketHandlerStats.allStats) {
+                stats.reset();
+            }
+        });
+
         // <--[mechanism]
         // @object server
         // @name reset_recipes
@@ -2436,14 +2601,6 @@ public class ServerTagBase extends PseudoObjectTagBase<ServerTagBase> {
         }, deprecatedVariants);
     }
 
-    private static MapTag areaNotesDebug(Int2ObjectOpenHashMap<NotedAreaTracker.AreaSet> set) {
-        MapTag out = new MapTag();
-        for (Int2ObjectMap.Entry<NotedAreaTracker.AreaSet> pair : set.int2ObjectEntrySet()) {
-            out.putObject(String.valueOf(pair.getIntKey()), new ListTag(pair.getValue().list, trackedArea -> trackedArea.area));
-        }
-        return out;
-    }
-
     public static void listDeprecateWarn(Attribute attribute) {
         if (attribute.getAttributeWithoutParam(1).startsWith("list_")) {
             BukkitImplDeprecations.listStyleTags.warn(attribute.context);
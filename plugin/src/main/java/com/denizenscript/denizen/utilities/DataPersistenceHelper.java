@@ -2,6 +2,8 @@ package com.denizenscript.denizen.utilities;
 
 import com.denizenscript.denizen.Denizen;
 import com.denizenscript.denizen.nms.NMSHandler;
+import com.denizenscript.denizen.utilities.entity.HideEntitiesHelper;
+import com.denizenscript.denizen.utilities.flags.DataPersistenceFlagCache;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.objects.ObjectFetcher;
 import com.denizenscript.denizencore.objects.ObjectTag;
@@ -45,10 +47,18 @@ public class DataPersistenceHelper {
 
     public static void removeDenizenKey(PersistentDataHolder holder, String keyName) {
         holder.getPersistentDataContainer().remove(new NamespacedKey(Denizen.getInstance(), keyName));
+        DataPersistenceFlagCache.invalidate(holder, keyName);
+        if (holder instanceof Entity entity && HideEntitiesHelper.hasAnyHides()) {
+            HideEntitiesHelper.invalidateEntity(entity.getEntityId());
+        }
     }
 
     public static void setDenizenKey(PersistentDataHolder holder, String keyName, ObjectTag keyValue) {
         holder.getPersistentDataContainer().set(new NamespacedKey(Denizen.getInstance(), keyName), PERSISTER_TYPE, keyValue);
+        DataPersistenceFlagCache.invalidate(holder, keyName);
+        if (holder instanceof Entity entity && HideEntitiesHelper.hasAnyHides()) {
+            HideEntitiesHelper.invalidateEntity(entity.getEntityId());
+        }
     }
 
     public static boolean hasDenizenKey(PersistentDataHolder holder, String keyName) {
@@ -18,7 +18,9 @@ import net.md_5.bungee.api.chat.*;
 import net.md_5.bungee.api.chat.hover.content.*;
 import net.md_5.bungee.chat.*;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FormattedTextHelper {
 
@@ -433,16 +435,99 @@ public class FormattedTextHelper {
         return new BaseComponent[] { root };
     }
 
+    public record ParseCacheKey(String text, ChatColor baseColor, boolean cleanBase) {
+    }
+
+    /**
+     * Max number of entries in the 'parse' result cache, or 0 to disable the cache. Set from the config.
+     */
+    public static int parseCacheSize = 0;
+
+    /**
+     * Texts longer than this are never cached, to keep the memory cost of the cache bounded.
+     */
+    public static int parseCacheMaxTextLength = 4096;
+
+    public static long parseCacheHits = 0, parseCacheMisses = 0, parseCacheEvictions = 0;
+
+    /**
+     * Set by 'parseInternal' when the text has a hover that depends on live state (an entity's current name, or an item script that may be reloaded), which means the result can't be cached.
+     * Per-thread, as parsing can happen on any thread.
+     */
+    public static final ThreadLocal<boolean[]> parseUsedLiveData = ThreadLocal.withInitial(() -> new boolean[1]);
+
+    /**
+     * Access-ordered (LRU) cache of 'parse' results. Cached component arrays are never handed out directly, only copies of them, as callers may modify the components they receive.
+     * Parsing can happen on any thread (eg packet handlers), so all access is synchronized on the map.
+     */
+    public static final LinkedHashMap<ParseCacheKey, BaseComponent[]> parseCache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ParseCacheKey, BaseComponent[]> eldest) {
+            if (size() > parseCacheSize) {
+                parseCacheEvictions++;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public static void setParseCacheSize(int size) {
+        synchronized (parseCache) {
+            parseCacheSize = Math.max(0, size);
+            if (parseCache.size() > parseCacheSize) {
+                parseCache.clear();
+            }
+        }
+    }
+
+    public static BaseComponent[] copyComponents(BaseComponent[] components) {
+        BaseComponent[] result = new BaseComponent[components.length];
+        for (int i = 0; i < components.length; i++) {
+            result[i] = components[i].duplicate();
+        }
+        return result;
+    }
+
     public static BaseComponent[] parse(String str, ChatColor baseColor, boolean cleanBase) {
         if (str == null) {
             return null;
         }
+        ParseCacheKey cacheKey = null;
+        if (parseCacheSize > 0 && str.length() <= parseCacheMaxTextLength) {
+            cacheKey = new ParseCacheKey(str, baseColor, cleanBase);
+            BaseComponent[] cached;
+            synchronized (parseCache) {
+                cached = parseCache.get(cacheKey);
+                if (cached != null) {
+                    parseCacheHits++;
+                }
+                else {
+                    parseCacheMisses++;
+                }
+            }
+            if (cached != null) {
+                return copyComponents(cached);
+            }
+        }
+        boolean[] usedLiveData = parseUsedLiveData.get();
+        boolean outerUsedLiveData = usedLiveData[0];
+        usedLiveData[0] = false;
         try {
-            return parseInternal(str, baseColor, cleanBase, false);
+            BaseComponent[] result = parseInternal(str, baseColor, cleanBase, false);
+            if (cacheKey != null && !usedLiveData[0]) {
+                BaseComponent[] toCache = copyComponents(result);
+                synchronized (parseCache) {
+                    parseCache.put(cacheKey, toCache);
+                }
+            }
+            return result;
         }
         catch (Throwable ex) {
             Debug.echoError(ex);
         }
+        finally {
+            usedLiveData[0] |= outerUsedLiveData;
+        }
         return new BaseComponent[]{new TextComponent(str)};
     }
 
@@ -594,6 +679,9 @@ public class FormattedTextHelper {
                             }
                             TextComponent hoverableText = new TextComponent();
                             HoverEvent.Action action = ElementTag.asEnum(HoverEvent.Action.class, innardBase.get(1));
+                            if (action == HoverEvent.Action.SHOW_ITEM || action == HoverEvent.Action.SHOW_ENTITY) {
+                                parseUsedLiveData.get()[0] = true;
+                            }
                             if (HoverFormatHelper.processHoverInput(action == null ? HoverEvent.Action.SHOW_TEXT : action, hoverableText, innardParts.get(0))) {
                                 continue;
                             }
@@ -4,28 +4,41 @@ import com.denizenscript.denizen.objects.AreaContainmentObject;
 import com.denizenscript.denizen.objects.CuboidTag;
 import com.denizenscript.denizen.objects.LocationTag;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.function.Consumer;
 
 /**
- * Special helper class that tracks noted areas in a way that allows for very rapid "get all areas containing" checks, within the confines of the scales that Minecraft normally operates at.
- * This divides all notes first into one distinct set per world, and then within worlds it will sub-divide into 5 sets:
- * The "global" set, a 50x50 set, a 200x200 set, and both those sets again but with a half-width offset.
- * Any area that fits within a 50x50 grid gets added to the 50x50 grid... any area below 50x50 in scale that doesn't fit the grid will likely fit the offset grid instead.
- * If the 50x50 grids can't be fit, the 200x200 grids are tried. If those fail, the global set is used.
- * Note that vertical position (Y coordinate) is entirely ignored.
- * Because most noted areas are likely to fit into one of these grids, any lookups can confine themselves to only looking at the Areas defined within the same grid cell.
+ * Special helper class that tracks noted areas in a way that allows for very rapid "get all areas containing" checks.
+ * This divides all notes first into one distinct index per world, and then within worlds builds a 3D bounding volume hierarchy (a bulk-loaded R-tree variant) over the area boundaries.
+ * Each node of the tree holds the full X/Y/Z bounds of everything below it, so lookups only descend into branches that might contain the location, regardless of how wide or tall any given area is.
+ * The tree is (re)built lazily on the first lookup after a large batch of changes (such as a note reload), and small changes are applied incrementally:
+ * additions go to a small pending list that lookups scan directly, and removals are taken straight out of their leaf.
  * This uses multiple layers of imperfect checks before doing the final exact-containment check, as the imperfect checks are significantly faster to run, especially for complex area shapes like polygons.
  */
 public class NotedAreaTracker {
 
+    /**
+     * Maximum number of areas held in a single leaf node.
+     */
+    public static final int LEAF_SIZE = 8;
+
+    /**
+     * Minimum number of pending additions before a lookup will trigger a full rebuild of the tree.
+     */
+    public static final int MIN_PENDING_REBUILD = 16;
+
     public static final class TrackedArea {
 
         public TrackedArea(AreaContainmentObject area, LocationTag low, LocationTag high) {
             this.area = area;
+            isExactBox = false;
             lowX = low.getBlockX();
             lowY = low.getBlockY();
             lowZ = low.getBlockZ();
@@ -38,6 +51,7 @@ public class NotedAreaTracker {
             CuboidTag boundary = area.getCuboidBoundary();
             LocationTag low = boundary.getLow(0), high = boundary.getHigh(0);
             this.area = area;
+            isExactBox = area instanceof CuboidTag cuboid && cuboid.pairs.size() == 1;
             lowX = low.getBlockX();
             lowY = low.getBlockY();
             lowZ = low.getBlockZ();
@@ -50,6 +64,11 @@ public class NotedAreaTracker {
 
         public final int lowX, lowY, lowZ, highX, highY, highZ;
 
+        /**
+         * True if the area's shape is exactly its boundary box (ie a single-pair cuboid), meaning 'mightContain' is an exact check.
+         */
+        public final boolean isExactBox;
+
         public boolean mightContain(int x, int y, int z) {
             return x >= lowX && x <= highX && z >= lowZ && z <= highZ && y >= lowY && y <= highY;
         }
@@ -58,6 +77,14 @@ public class NotedAreaTracker {
             return area2.lowX <= highX && area2.highX >= lowX && area2.lowZ <= highZ && area2.highZ >= lowZ && area2.lowY <= highY && area2.highY >= lowY;
         }
 
+        public long centerTimesTwo(int axis) {
+            return switch (axis) {
+                case 0 -> (long) lowX + highX;
+                case 1 -> (long) lowY + highY;
+                default -> (long) lowZ + highZ;
+            };
+        }
+
         @Override
         public int hashCode() {
             return area.hashCode();
@@ -74,126 +101,286 @@ public class NotedAreaTracker {
         }
     }
 
-    public static final class AreaSet {
+    /**
+     * A single node of the per-world bounding volume hierarchy.
+     * Branch nodes have a non-null 'left' and 'right', leaf nodes have a non-null 'areas' list.
+     * Bounds are only ever expanded (never shrunk) by incremental removals, which keeps them a valid (if slightly loose) filter until the next rebuild.
+     */
+    public static final class Node {
+
+        public int lowX = Integer.MAX_VALUE, lowY = Integer.MAX_VALUE, lowZ = Integer.MAX_VALUE, highX = Integer.MIN_VALUE, highY = Integer.MIN_VALUE, highZ = Integer.MIN_VALUE;
+
+        public Node left, right;
 
-        public AreaSet(int type, int index) {
-            this.type = type;
-            this.index = index;
+        public ArrayList<TrackedArea> areas;
+
+        public void expandToFit(TrackedArea area) {
+            lowX = Math.min(lowX, area.lowX);
+            lowY = Math.min(lowY, area.lowY);
+            lowZ = Math.min(lowZ, area.lowZ);
+            highX = Math.max(highX, area.highX);
+            highY = Math.max(highY, area.highY);
+            highZ = Math.max(highZ, area.highZ);
         }
 
-        public final ArrayList<TrackedArea> list = new ArrayList<>();
+        public boolean mightContain(int x, int y, int z) {
+            return x >= lowX && x <= highX && z >= lowZ && z <= highZ && y >= lowY && y <= highY;
+        }
 
-        public final int index;
+        public boolean mightIntersect(TrackedArea area) {
+            return area.lowX <= highX && area.highX >= lowX && area.lowZ <= highZ && area.highZ >= lowZ && area.lowY <= highY && area.highY >= lowY;
+        }
 
-        public final int type;
+        public boolean fullyContains(TrackedArea area) {
+            return area.lowX >= lowX && area.highX <= highX && area.lowZ >= lowZ && area.highZ <= highZ && area.lowY >= lowY && area.highY <= highY;
+        }
 
-        public boolean isEmpty() {
-            return list.isEmpty();
+        public boolean isLeaf() {
+            return areas != null;
         }
-    }
 
-    public static final class PerWorldSet {
+        public int getDepth() {
+            return isLeaf() ? 1 : 1 + Math.max(left.getDepth(), right.getDepth());
+        }
 
-        public final AreaSet globalSet = new AreaSet(0, 0);
+        public int getNodeCount() {
+            return isLeaf() ? 1 : 1 + left.getNodeCount() + right.getNodeCount();
+        }
 
-        public final Int2ObjectOpenHashMap<AreaSet> sets50 = new Int2ObjectOpenHashMap<>(), sets50_offset = new Int2ObjectOpenHashMap<>(), sets200 = new Int2ObjectOpenHashMap<>(), sets200_offset = new Int2ObjectOpenHashMap<>();
+        /**
+         * Builds a tree over the given slice of the array, by recursively sorting along the longest axis and splitting at the median.
+         */
+        public static Node build(TrackedArea[] areas, int start, int end) {
+            Node node = new Node();
+            for (int i = start; i < end; i++) {
+                node.expandToFit(areas[i]);
+            }
+            if (end - start <= LEAF_SIZE) {
+                node.areas = new ArrayList<>(end - start);
+                node.areas.addAll(Arrays.asList(areas).subList(start, end));
+                return node;
+            }
+            long sizeX = (long) node.highX - node.lowX, sizeY = (long) node.highY - node.lowY, sizeZ = (long) node.highZ - node.lowZ;
+            int axis = sizeX >= sizeZ ? (sizeX >= sizeY ? 0 : 1) : (sizeZ >= sizeY ? 2 : 1);
+            Arrays.sort(areas, start, end, Comparator.comparingLong(a -> a.centerTimesTwo(axis)));
+            int middle = (start + end) >>> 1;
+            node.left = build(areas, start, middle);
+            node.right = build(areas, middle, end);
+            return node;
+        }
 
-        public static boolean doesFit(TrackedArea area, int scale, int offset) {
-            int lowX = (area.lowX + offset) / scale, lowZ = (area.lowZ + offset) / scale, highX = (area.highX + offset) / scale, highZ = (area.highZ + offset) / scale;
-            return lowX == highX && lowZ == highZ;
+        public boolean remove(TrackedArea area) {
+            if (!fullyContains(area)) {
+                return false;
+            }
+            if (isLeaf()) {
+                return areas.remove(area);
+            }
+            return left.remove(area) || right.remove(area);
         }
 
-        public static int getIndex(int x, int z, int scale, int offset) {
-            // Index is unique "enough", these lists don't need to be perfect, and an int key is significantly faster than constructing an exact coordinate object.
-            int cleanX = (x + offset) / scale, cleanZ = (z + offset) / scale;
-            return cleanX + (cleanZ << 16);
+        public void forEachThatContains(int x, int y, int z, LocationTag location, Consumer<AreaContainmentObject> action) {
+            if (!mightContain(x, y, z)) {
+                return;
+            }
+            if (isLeaf()) {
+                forEachAreaInListThatContains(x, y, z, location, areas, action);
+                return;
+            }
+            left.forEachThatContains(x, y, z, location, action);
+            right.forEachThatContains(x, y, z, location, action);
         }
 
-        public AreaSet getOrGenSetFor(Int2ObjectOpenHashMap<AreaSet> sets, int type, TrackedArea area, int scale, int offset, boolean generate) {
-            int index = getIndex(area.lowX, area.lowZ, scale, offset);
-            AreaSet set = sets.get(index);
-            if (set == null && generate) {
-                set = new AreaSet(type, index);
-                sets.put(index, set);
+        public void forEachThatMightContain(int x, int y, int z, Consumer<TrackedArea> action) {
+            if (!mightContain(x, y, z)) {
+                return;
+            }
+            if (isLeaf()) {
+                for (TrackedArea area : areas) {
+                    if (area.mightContain(x, y, z)) {
+                        action.accept(area);
+                    }
+                }
+                return;
             }
-            return set;
+            left.forEachThatMightContain(x, y, z, action);
+            right.forEachThatMightContain(x, y, z, action);
         }
 
-        public AreaSet bestSetFor(TrackedArea area, boolean generate) {
-            if (doesFit(area, 50, 0)) {
-                return getOrGenSetFor(sets50, 1, area, 50, 0, generate);
+        public void forEachThatIntersects(TrackedArea area2, Consumer<AreaContainmentObject> action) {
+            if (!mightIntersect(area2)) {
+                return;
             }
-            else if (doesFit(area, 50, 25)) {
-                return getOrGenSetFor(sets50_offset, 2, area, 50, 25, generate);
+            if (isLeaf()) {
+                forEachAreaInListThatIntersects(area2, areas, action);
+                return;
             }
-            else if (doesFit(area, 200, 0)) {
-                return getOrGenSetFor(sets200, 3, area, 200, 0, generate);
+            left.forEachThatIntersects(area2, action);
+            right.forEachThatIntersects(area2, action);
+        }
+    }
+
+    public static final class PerWorldSet {
+
+        /**
+         * Every area tracked in this world, in insertion order.
+         */
+        public final ArrayList<TrackedArea> all = new ArrayList<>();
+
+        /**
+         * Areas added since the last tree build, which are not yet part of the tree.
+         */
+        public final ArrayList<TrackedArea> pending = new ArrayList<>();
+
+        public Node root;
+
+        public void add(TrackedArea area) {
+            all.add(area);
+            pending.add(area);
+        }
+
+        public boolean remove(TrackedArea area) {
+            if (!all.remove(area)) {
+                return false;
             }
-            else if (doesFit(area, 200, 100)) {
-                return getOrGenSetFor(sets200_offset, 4, area, 200, 100, generate);
+            if (!pending.remove(area) && root != null) {
+                root.remove(area);
             }
-            return globalSet;
+            return true;
         }
 
         public boolean isEmpty() {
-            return globalSet.isEmpty() && sets50.isEmpty() && sets50_offset.isEmpty() && sets200.isEmpty() && sets200_offset.isEmpty();
+            return all.isEmpty();
+        }
+
+        /**
+         * Rebuilds the tree from scratch if enough additions have piled up that scanning them linearly is worse than a rebuild.
+         */
+        public void rebuildIfNeeded() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            if (root != null && pending.size() < Math.max(MIN_PENDING_REBUILD, all.size() / 8)) {
+                return;
+            }
+            rebuild();
         }
 
-        public void remove(AreaSet set) {
-            switch (set.type) {
-                case 1 -> sets50.remove(set.index);
-                case 2 -> sets50_offset.remove(set.index);
-                case 3 -> sets200.remove(set.index);
-                case 4 -> sets200_offset.remove(set.index);
+        public void rebuild() {
+            pending.clear();
+            if (all.isEmpty()) {
+                root = null;
+                return;
             }
+            TrackedArea[] areas = all.toArray(new TrackedArea[0]);
+            root = Node.build(areas, 0, areas.length);
+        }
+
+        public void forEachThatContains(int x, int y, int z, LocationTag location, Consumer<AreaContainmentObject> action) {
+            rebuildIfNeeded();
+            if (root != null) {
+                root.forEachThatContains(x, y, z, location, action);
+            }
+            forEachAreaInListThatContains(x, y, z, location, pending, action);
+        }
+
+        public void forEachThatMightContain(int x, int y, int z, Consumer<TrackedArea> action) {
+            rebuildIfNeeded();
+            if (root != null) {
+                root.forEachThatMightContain(x, y, z, action);
+            }
+            for (TrackedArea area : pending) {
+                if (area.mightContain(x, y, z)) {
+                    action.accept(area);
+                }
+            }
+        }
+
+        public void forEachThatIntersects(TrackedArea area2, Consumer<AreaContainmentObject> action) {
+            rebuildIfNeeded();
+            if (root != null) {
+                root.forEachThatIntersects(area2, action);
+            }
+            forEachAreaInListThatIntersects(area2, pending, action);
         }
     }
 
     public static HashMap<String, PerWorldSet> worlds = new HashMap<>();
 
+    /**
+     * Incremented on every add or remove, used to invalidate the containing-areas memo.
+     */
+    public static long changeCount = 0;
+
+    public static final AreaContainmentObject[] NO_AREAS = new AreaContainmentObject[0];
+
+    /**
+     * Memo of the most recent 'getAreasContaining' lookup (main thread only), so that many checks against the same location within one event firing
+     * (eg dozens of script paths with 'in:' switches) only run the tree lookup once.
+     */
+    public static World memoWorld;
+
+    public static double memoX, memoY, memoZ;
+
+    public static long memoChangeCount = -1;
+
+    public static AreaContainmentObject[] memoAreas = NO_AREAS;
+
+    /**
+     * Returns all noted areas that contain the given location.
+     * Repeated calls for the exact same location reuse the previous result, so long as no areas were noted or removed in between.
+     */
+    public static AreaContainmentObject[] getAreasContaining(Location location) {
+        boolean mainThread = Bukkit.isPrimaryThread();
+        if (mainThread && memoChangeCount == changeCount && location.getWorld() == memoWorld
+                && location.getX() == memoX && location.getY() == memoY && location.getZ() == memoZ) {
+            return memoAreas;
+        }
+        ArrayList<AreaContainmentObject> found = new ArrayList<>();
+        forEachAreaThatContains(new LocationTag(location), found::add);
+        AreaContainmentObject[] result = found.isEmpty() ? NO_AREAS : found.toArray(NO_AREAS);
+        if (mainThread) {
+            memoWorld = location.getWorld();
+            memoX = location.getX();
+            memoY = location.getY();
+            memoZ = location.getZ();
+            memoChangeCount = changeCount;
+            memoAreas = result;
+        }
+        return result;
+    }
+
     /**
      * Call to add an area into the tracker.
      */
     public static void add(AreaContainmentObject area) {
+        changeCount++;
         String worldName = CoreUtilities.toLowerCase(area.getWorld().getName());
         PerWorldSet set = worlds.get(worldName);
         if (set == null) {
             set = new PerWorldSet();
             worlds.put(worldName, set);
         }
-        TrackedArea tracker = new TrackedArea(area);
-        AreaSet areaSet = set.bestSetFor(tracker, true);
-        areaSet.list.add(tracker);
+        set.add(new TrackedArea(area));
     }
 
     /**
      * Call to remove an area from the tracker.
      */
     public static void remove(AreaContainmentObject area) {
+        changeCount++;
         String worldName = CoreUtilities.toLowerCase(area.getWorld().getName());
         PerWorldSet set = worlds.get(worldName);
         if (set == null) {
             return;
         }
-        TrackedArea tracker = new TrackedArea(area);
-        AreaSet areaSet = set.bestSetFor(tracker, false);
-        if (areaSet == null) {
-            return;
-        }
-        areaSet.list.remove(tracker);
-        if (areaSet.isEmpty()) {
-            set.remove(areaSet);
-            if (set.isEmpty()) {
-                worlds.remove(worldName);
-            }
+        if (set.remove(new TrackedArea(area)) && set.isEmpty()) {
+            worlds.remove(worldName);
         }
     }
 
-    public static void forEachAreaInSetThatContains(int x, int y, int z, LocationTag location, AreaSet set, Consumer<AreaContainmentObject> action) {
-        if (set == null) {
-            return;
-        }
-        for (TrackedArea area : set.list) {
+    public static void forEachAreaInListThatContains(int x, int y, int z, LocationTag location, ArrayList<TrackedArea> list, Consumer<AreaContainmentObject> action) {
+        for (TrackedArea area : list) {
             if (area.mightContain(x, y, z) && area.area.doesContainLocation(location)) {
                 action.accept(area.area);
             }
@@ -204,23 +391,27 @@ public class NotedAreaTracker {
      * Call to run an action over every Area that contains a given location.
      */
     public static void forEachAreaThatContains(LocationTag location, Consumer<AreaContainmentObject> action) {
-        int x = location.getBlockX(), y = location.getBlockY(), z = location.getBlockZ();
         PerWorldSet set = worlds.get(CoreUtilities.toLowerCase(location.getWorldName()));
         if (set == null) {
             return;
         }
-        forEachAreaInSetThatContains(x, y, z, location, set.globalSet, action);
-        forEachAreaInSetThatContains(x, y, z, location, set.sets50.get(PerWorldSet.getIndex(x, z, 50, 0)), action);
-        forEachAreaInSetThatContains(x, y, z, location, set.sets50_offset.get(PerWorldSet.getIndex(x, z, 50, 25)), action);
-        forEachAreaInSetThatContains(x, y, z, location, set.sets200.get(PerWorldSet.getIndex(x, z, 200, 0)), action);
-        forEachAreaInSetThatContains(x, y, z, location, set.sets200_offset.get(PerWorldSet.getIndex(x, z, 200, 100)), action);
+        set.forEachThatContains(location.getBlockX(), location.getBlockY(), location.getBlockZ(), location, action);
     }
 
-    public static void forEachAreaInSetThatIntersects(TrackedArea area2, AreaSet set, Consumer<AreaContainmentObject> action) {
+    /**
+     * Call to run an action over every tracked area whose boundary box contains the given block, without doing the exact containment check.
+     * Useful for callers that can skip or defer the exact check (eg when the area is known to be an exact box).
+     */
+    public static void forEachTrackedAreaThatMightContain(String worldName, int x, int y, int z, Consumer<TrackedArea> action) {
+        PerWorldSet set = worlds.get(CoreUtilities.toLowerCase(worldName));
         if (set == null) {
             return;
         }
-        for (TrackedArea area : set.list) {
+        set.forEachThatMightContain(x, y, z, action);
+    }
+
+    public static void forEachAreaInListThatIntersects(TrackedArea area2, ArrayList<TrackedArea> list, Consumer<AreaContainmentObject> action) {
+        for (TrackedArea area : list) {
             if (area.mightIntersect(area2)) {
                 action.accept(area.area);
             }
@@ -229,46 +420,11 @@ public class NotedAreaTracker {
 
     public static void forEachAreaThatIntersects(LocationTag min, LocationTag max, Consumer<AreaContainmentObject> action) {
         CuboidTag.LocationPair pair = new CuboidTag.LocationPair(min, max);
-        min = pair.low;
-        max = pair.high;
-        TrackedArea area2 = new TrackedArea(null, min, max);
-        PerWorldSet set = worlds.get(CoreUtilities.toLowerCase(min.getWorldName()));
+        TrackedArea area2 = new TrackedArea(null, pair.low, pair.high);
+        PerWorldSet set = worlds.get(CoreUtilities.toLowerCase(pair.low.getWorldName()));
         if (set == null) {
             return;
         }
-        forEachAreaInSetThatIntersects(area2, set.globalSet, action);
-        // Loose heuristic for when a regional-indexed loop is probably counterproductive - total looped regions exceeds 10x actual total areas available
-        if (pair.xDistance() * pair.zDistance() / (50 * 50) > (set.sets50.size() + set.sets50_offset.size()) * 10) {
-            for (AreaSet areaSet : set.sets50.values()) {
-                forEachAreaInSetThatIntersects(area2, areaSet, action);
-            }
-            for (AreaSet areaSet : set.sets50_offset.values()) {
-                forEachAreaInSetThatIntersects(area2, areaSet, action);
-            }
-        }
-        else {
-            for (int x = area2.lowX - 50; x <= area2.highX + 50; x += 50) {
-                for (int z = area2.lowZ - 50; z <= area2.highZ + 50; z += 50) {
-                    forEachAreaInSetThatIntersects(area2, set.sets50.get(PerWorldSet.getIndex(x, z, 50, 0)), action);
-                    forEachAreaInSetThatIntersects(area2, set.sets50_offset.get(PerWorldSet.getIndex(x, z, 50, 25)), action);
-                }
-            }
-        }
-        if (pair.xDistance() * pair.zDistance() / (288 * 200) > (set.sets200.size() + set.sets200_offset.size()) * 10) {
-            for (AreaSet areaSet : set.sets200.values()) {
-                forEachAreaInSetThatIntersects(area2, areaSet, action);
-            }
-            for (AreaSet areaSet : set.sets200_offset.values()) {
-                forEachAreaInSetThatIntersects(area2, areaSet, action);
-            }
-        }
-        else {
-            for (int x = area2.lowX - 200; x <= area2.highX + 200; x += 200) {
-                for (int z = area2.lowZ - 200; z <= area2.highZ + 200; z += 200) {
-                    forEachAreaInSetThatIntersects(area2, set.sets200.get(PerWorldSet.getIndex(x, z, 200, 0)), action);
-                    forEachAreaInSetThatIntersects(area2, set.sets200_offset.get(PerWorldSet.getIndex(x, z, 200, 100)), action);
-                }
-            }
-        }
+        set.forEachThatIntersects(area2, action);
     }
 }
@@ -0,0 +1,167 @@
+package com.denizenscript.denizen.utilities;
+
+import com.denizenscript.denizen.Denizen;
+import com.denizenscript.denizen.objects.PlayerTag;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Persistent snapshot of all known player names (the data behind PlayerTag.getAllPlayers), so that startup doesn't need to go through every offline player on the main thread.
+ * The snapshot is read in the background while the rest of Denizen starts up, and is swapped in the first time player names are needed on the main thread (waiting for the read to finish if it hasn't yet).
+ * Anything reading player names off the main thread before then just sees the names noted so far.
+ * Only the very first startup (or a startup with an invalid snapshot) builds the names from the server's offline player list.
+ * After that, the directory is kept current by PlayerTag.notePlayer (on player login), and saved alongside other Denizen saves when it has changed.
+ */
+public class PlayerNameDirectory {
+
+    public static final int FORMAT_VERSION = 2;
+
+    public static File directoryFile;
+
+    public static boolean dirty = false;
+
+    public static class LoadedNames {
+
+        public final HashMap<String, UUID> byName;
+
+        public final HashMap<UUID, String> byId;
+
+        public LoadedNames(int size) {
+            byName = new HashMap<>(size);
+            byId = new HashMap<>(size);
+        }
+    }
+
+    /**
+     * The background load in progress, or null once it has been applied (or if none was started).
+     */
+    public static volatile CompletableFuture<LoadedNames> loading;
+
+    public static void load(File file) {
+        directoryFile = file;
+        if (!file.exists()) {
+            fillFromOfflinePlayers();
+            return;
+        }
+        CompletableFuture<LoadedNames> future = new CompletableFuture<>();
+        loading = future;
+        Bukkit.getScheduler().runTaskAsynchronously(Denizen.getInstance(), () -> {
+            long start = CoreUtilities.monotonicMillis();
+            LoadedNames names = null;
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (input.readInt() == FORMAT_VERSION) {
+                    int nameCount = input.readInt();
+                    names = new LoadedNames(nameCount);
+                    for (int i = 0; i < nameCount; i++) {
+                        UUID id = new UUID(input.readLong(), input.readLong());
+                        names.byName.put(input.readUTF(), id);
+                    }
+                    int idCount = input.readInt();
+                    for (int i = 0; i < idCount; i++) {
+                        UUID id = new UUID(input.readLong(), input.readLong());
+                        names.byId.put(id, input.readUTF());
+                    }
+                    Debug.log("Loaded " + nameCount + " player names in " + (CoreUtilities.monotonicMillis() - start) + "ms.");
+                }
+            }
+            catch (Throwable ex) {
+                Debug.echoError("Player name directory file is invalid, and will be rebuilt:");
+                Debug.echoError(ex);
+                names = null;
+            }
+            future.complete(names);
+        });
+        // Make sure the names are in place once the server is running, even if nothing has needed them yet
+        Bukkit.getScheduler().runTask(Denizen.getInstance(), PlayerNameDirectory::ensureLoaded);
+    }
+
+    /**
+     * Applies the background-loaded names if that hasn't happened yet, waiting for the load to finish if needed.
+     * Only does anything on the main thread: other threads use the name maps as they currently are.
+     * Called by every PlayerTag method that reads the name maps.
+     */
+    public static void ensureLoaded() {
+        CompletableFuture<LoadedNames> future = loading;
+        if (future == null || !Bukkit.isPrimaryThread()) {
+            return;
+        }
+        // Cleared first, as both of the below note players, which calls back into this method
+        loading = null;
+        LoadedNames names = future.join();
+        if (names == null) {
+            fillFromOfflinePlayers();
+            return;
+        }
+        PlayerTag.applyLoadedPlayerNames(names.byName, names.byId);
+    }
+
+    public static void fillFromOfflinePlayers() {
+        for (OfflinePlayer player : Bukkit.getOfflinePlayers()) {
+            PlayerTag.notePlayer(player);
+        }
+        dirty = true;
+    }
+
+    /**
+     * Saves the directory to disk if it has changed. Must be called on the main thread.
+     */
+    public static void save(boolean lockUntilDone) {
+        if (loading != null || !dirty || directoryFile == null) {
+            return;
+        }
+        dirty = false;
+        Map<String, UUID> names = PlayerTag.getAllPlayers();
+        Map<UUID, String> ids = PlayerTag.getAllPlayerNamesById();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((names.size() + ids.size()) * 32 + 12);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(names.size());
+            for (Map.Entry<String, UUID> entry : names.entrySet()) {
+                output.writeLong(entry.getValue().getMostSignificantBits());
+                output.writeLong(entry.getValue().getLeastSignificantBits());
+                output.writeUTF(entry.getKey());
+            }
+            output.writeInt(ids.size());
+            for (Map.Entry<UUID, String> entry : ids.entrySet()) {
+                output.writeLong(entry.getKey().getMostSignificantBits());
+                output.writeLong(entry.getKey().getLeastSignificantBits());
+                output.writeUTF(entry.getValue());
+            }
+        }
+        catch (IOException ex) {
+            Debug.echoError(ex);
+            return;
+        }
+        byte[] data = bytes.toByteArray();
+        File file = directoryFile;
+        Runnable write = () -> {
+            synchronized (PlayerNameDirectory.class) {
+                try {
+                    File temp = new File(file.getPath() + ".tmp");
+                    Files.write(temp.toPath(), data);
+                    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                catch (IOException ex) {
+                    Debug.echoError("Failed to save player name directory:");
+                    Debug.echoError(ex);
+                }
+            }
+        };
+        if (lockUntilDone) {
+            write.run();
+        }
+        else {
+            Bukkit.getScheduler().runTaskAsynchronously(Denizen.getInstance(), write);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.denizenscript.denizen.utilities;
+
+import com.denizenscript.denizen.objects.PlayerTag;
+import com.denizenscript.denizencore.utilities.CoreConfiguration;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Search index over all known player names (PlayerTag.getAllPlayers), for the 'server.match_player' and 'server.match_offline_player' tags.
+ * Names are kept in a sorted array (so all names starting with some text are one contiguous range, found with a binary search),
+ * plus a map of every 3-character sequence to the names that contain it (so substring searches only need to check names that share the rarest sequence of the input).
+ * Names noted after the index was built go into a small pending list that searches scan directly, until there are enough of them to justify a rebuild.
+ * Match ranking is: an exact name match, then online players, then names that start with the input, then names that contain it. Ties go to the shortest name, then alphabetical order.
+ */
+public class PlayerNameIndex {
+
+    public static final int MAX_PENDING = 256;
+
+    public static String[] sortedNames = new String[0];
+
+    public static UUID[] sortedIds = new UUID[0];
+
+    /**
+     * Packed 3-character sequence (see 'trigram'), to the indices in 'sortedNames' of all names containing it (in order).
+     */
+    public static Long2ObjectOpenHashMap<int[]> trigrams = new Long2ObjectOpenHashMap<>();
+
+    public static final ArrayList<String> pendingNames = new ArrayList<>();
+
+    public static final ArrayList<UUID> pendingIds = new ArrayList<>();
+
+    public static boolean needsRebuild = true;
+
+    public static long queries = 0, totalQueryNanos = 0, lastQueryNanos = 0, maxQueryNanos = 0, rebuilds = 0;
+
+    public static long trigram(String text, int index) {
+        return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+
+    /**
+     * Called when a new name is added to PlayerTag's name map. Name must be lowercase.
+     */
+    public static synchronized void noteName(String name, UUID id) {
+        if (needsRebuild) {
+            return;
+        }
+        pendingNames.add(name);
+        pendingIds.add(id);
+        if (pendingNames.size() > MAX_PENDING) {
+            needsRebuild = true;
+        }
+    }
+
+    /**
+     * Called when PlayerTag's name map is replaced.
+     */
+    public static synchronized void invalidate() {
+        needsRebuild = true;
+    }
+
+    private static void rebuild() {
+        Map<String, UUID> allPlayers = PlayerTag.getAllPlayers();
+        String[] names = allPlayers.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        UUID[] ids = new UUID[names.length];
+        Long2ObjectOpenHashMap<IntArrayList> building = new Long2ObjectOpenHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            ids[i] = allPlayers.get(names[i]);
+            String name = names[i];
+            for (int c = 0; c + 3 <= name.length(); c++) {
+                IntArrayList list = building.computeIfAbsent(trigram(name, c), k -> new IntArrayList(4));
+                if (list.isEmpty() || list.getInt(list.size() - 1) != i) {
+                    list.add(i);
+                }
+            }
+        }
+        Long2ObjectOpenHashMap<int[]> newTrigrams = new Long2ObjectOpenHashMap<>(building.size());
+        for (Long2ObjectMap.Entry<IntArrayList> entry : building.long2ObjectEntrySet()) {
+            newTrigrams.put(entry.getLongKey(), entry.getValue().toIntArray());
+        }
+        sortedNames = names;
+        sortedIds = ids;
+        trigrams = newTrigrams;
+        pendingNames.clear();
+        pendingIds.clear();
+        needsRebuild = false;
+        rebuilds++;
+    }
+
+    /**
+     * Tracks the best match found so far during a search.
+     */
+    public static class Match {
+
+        public UUID id;
+
+        public String name;
+
+        public boolean online;
+
+        public void consider(String name, UUID id, boolean online) {
+            if (this.id != null) {
+                if (this.online != online) {
+                    if (this.online) {
+                        return;
+                    }
+                }
+                else if (name.length() > this.name.length() || (name.length() == this.name.length() && name.compareTo(this.name) >= 0)) {
+                    return;
+                }
+            }
+            this.id = id;
+            this.name = name;
+            this.online = online;
+        }
+
+        public void considerChecked(String name, UUID id) {
+            consider(name, id, Bukkit.getPlayer(id) != null);
+        }
+    }
+
+    private static void recordQuery(String type, String input, long startNanos) {
+        long time = System.nanoTime() - startNanos;
+        queries++;
+        totalQueryNanos += time;
+        lastQueryNanos = time;
+        maxQueryNanos = Math.max(maxQueryNanos, time);
+        if (CoreConfiguration.debugVerbose) {
+            Debug.log("Verbose - (" + type + ") search for '" + input + "' took " + (time / 1000) + "us");
+        }
+    }
+
+    /**
+     * Returns the online player that best matches the (lowercase) input, or null if none contain it.
+     */
+    public static Player matchOnlinePlayer(String input) {
+        // Apply any pending name load first, as that can call back into this index
+        PlayerNameDirectory.ensureLoaded();
+        synchronized (PlayerNameIndex.class) {
+            long start = System.nanoTime();
+            Player result = findOnline(input);
+            recordQuery("match_player", input, start);
+            return result;
+        }
+    }
+
+    private static Player findOnline(String input) {
+        Player prefixMatch = null, containsMatch = null;
+        String prefixName = null, containsName = null;
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            String nameLow = PlayerTag.getNotedName(player.getUniqueId());
+            if (nameLow == null) {
+                nameLow = CoreUtilities.toLowerCase(player.getName());
+            }
+            if (nameLow.equals(input)) {
+                return player;
+            }
+            if (nameLow.startsWith(input)) {
+                if (prefixName == null || nameLow.length() < prefixName.length() || (nameLow.length() == prefixName.length() && nameLow.compareTo(prefixName) < 0)) {
+                    prefixMatch = player;
+                    prefixName = nameLow;
+                }
+            }
+            else if (prefixMatch == null && nameLow.contains(input)) {
+                if (containsName == null || nameLow.length() < containsName.length() || (nameLow.length() == containsName.length() && nameLow.compareTo(containsName) < 0)) {
+                    containsMatch = player;
+                    containsName = nameLow;
+                }
+            }
+        }
+        return prefixMatch != null ? prefixMatch : containsMatch;
+    }
+
+    /**
+     * Returns the ID of the player (online or offline) that best matches the (lowercase) input, or null if no known names contain it.
+     */
+    public static UUID matchOfflinePlayer(String input) {
+        PlayerNameDirectory.ensureLoaded();
+        synchronized (PlayerNameIndex.class) {
+            long start = System.nanoTime();
+            UUID result = findOffline(input);
+            recordQuery("match_offline_player", input, start);
+            return result;
+        }
+    }
+
+    private static UUID findOffline(String input) {
+        UUID exact = PlayerTag.getAllPlayers().get(input);
+        if (exact != null) {
+            return exact;
+        }
+        Player online = findOnline(input);
+        if (online != null) {
+            return online.getUniqueId();
+        }
+        if (needsRebuild) {
+            rebuild();
+        }
+        Match match = new Match();
+        int index = Arrays.binarySearch(sortedNames, input);
+        for (int i = index < 0 ? -index - 1 : index; i < sortedNames.length && sortedNames[i].startsWith(input); i++) {
+            match.considerChecked(sortedNames[i], sortedIds[i]);
+        }
+        for (int i = 0; i < pendingNames.size(); i++) {
+            if (pendingNames.get(i).startsWith(input)) {
+                match.considerChecked(pendingNames.get(i), pendingIds.get(i));
+            }
+        }
+        if (match.id != null) {
+            return match.id;
+        }
+        if (input.length() >= 3) {
+            int[] candidates = null;
+            for (int c = 0; c + 3 <= input.length(); c++) {
+                int[] postings = trigrams.get(trigram(input, c));
+                if (postings == null) {
+                    candidates = new int[0];
+                    break;
+                }
+                if (candidates == null || postings.length < candidates.length) {
+                    candidates = postings;
+                }
+            }
+            for (int i : candidates) {
+                if (sortedNames[i].contains(input)) {
+                    match.considerChecked(sortedNames[i], sortedIds[i]);
+                }
+            }
+        }
+        else {
+            for (int i = 0; i < sortedNames.length; i++) {
+                if (sortedNames[i].contains(input)) {
+                    match.considerChecked(sortedNames[i], sortedIds[i]);
+                }
+            }
+        }
+        for (int i = 0; i < pendingNames.size(); i++) {
+            if (pendingNames.get(i).contains(input)) {
+                match.considerChecked(pendingNames.get(i), pendingIds.get(i));
+            }
+        }
+        return match.id;
+    }
+}
@@ -1,9 +1,12 @@
 package com.denizenscript.denizen.utilities;
 
 import com.denizenscript.denizen.Denizen;
+import com.denizenscript.denizen.events.entity.AreaEnterExitScriptEvent;
 import com.denizenscript.denizen.objects.PolygonTag;
 import com.denizenscript.denizen.scripts.commands.entity.RemoveCommand;
 import com.denizenscript.denizen.tags.core.CustomColorTagBase;
+import com.denizenscript.denizen.utilities.blocks.BlockWorkScheduler;
+import com.denizenscript.denizen.utilities.flags.DataPersistenceFlagCache;
 import com.denizenscript.denizen.utilities.flags.PlayerFlagHandler;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.objects.core.DurationTag;
@@ -126,13 +129,27 @@ public class Settings {
         cache_worldScriptTimeEventFrequency = DurationTag.valueOf(config.getString("Scripts.World.Events.On time changes.Frequency of check", "250t"), CoreUtilities.basicContext);
         cache_blockTagsMaxBlocks = config.getInt("Tags.Block tags.Max blocks", 1000000);
         cache_chatHistoryMaxMessages = config.getInt("Tags.Chat history.Max messages", 10);
+        String textWidthPack = config.getString("Tags.Text width.Resource pack", "");
+        if (!textWidthPack.equals(cache_textWidthPack)) {
+            cache_textWidthPack = textWidthPack;
+            TextWidthHelper.loadResourcePack(textWidthPack);
+        }
+        FormattedTextHelper.setParseCacheSize(config.getInt("Tags.Text formatting.Parse cache size", 0));
         cache_packetInterception = config.getBoolean("Packets.Interception", true);
         cache_packetInterceptAutoInit = config.getBoolean("Packets.Auto init", false);
         cache_commandScriptAutoInit = config.getBoolean("Scripts.Command.Auto init", false);
         PlayerFlagHandler.cacheTimeoutSeconds = config.getLong("Saves.Offline player cache timeout", 300);
         PlayerFlagHandler.asyncPreload = config.getBoolean("Saves.Load async on login", true);
+        DataPersistenceFlagCache.enabled = config.getBoolean("Saves.Cache entity and block flags", true);
+        if (!DataPersistenceFlagCache.enabled) {
+            DataPersistenceFlagCache.clear();
+        }
         PlayerFlagHandler.saveOnlyWhenWorldSaveOn = config.getBoolean("Saves.Only save if world save is on", false);
+        AreaEnterExitScriptEvent.incrementalTracking = config.getBoolean("Scripts.Area events.Incremental tracking", true);
         RemoveCommand.alwaysWarnOnMassRemove = config.getBoolean("Commands.Remove.Always warn on mass delete", false);
+        BlockWorkScheduler.maxBudgetMs = config.getDouble("Commands.Delayed blocks.Max ms per tick", 40);
+        BlockWorkScheduler.minBudgetMs = config.getDouble("Commands.Delayed blocks.Min ms per tick", 2);
+        BlockWorkScheduler.targetTickMs = config.getDouble("Commands.Delayed blocks.Target tick ms", 50);
         ConfigurationSection colorSection = config.getConfigurationSection("Colors");
         if (colorSection != null) {
             CustomColorTagBase.customColors.clear();
@@ -170,7 +187,7 @@ public class Settings {
     public static String cache_healthTraitRespawnDelay,
             cache_engageTimeoutInSeconds, cache_chatMultipleTargetsFormat, cache_chatNoTargetFormat,
             cache_chatToTargetFormat, cache_chatWithTargetToBystandersFormat, cache_chatWithTargetsToBystandersFormat,
-            cache_chatToNpcFormat, cache_chatToNpcOverheardFormat, cache_interactQueueSpeed, cache_limitPath;
+            cache_chatToNpcFormat, cache_chatToNpcOverheardFormat, cache_interactQueueSpeed, cache_limitPath, cache_textWidthPack;
 
     public static int cache_blockTagsMaxBlocks, cache_chatHistoryMaxMessages;
 
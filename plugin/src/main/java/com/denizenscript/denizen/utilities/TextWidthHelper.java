@@ -1,30 +1,64 @@
 package com.denizenscript.denizen.utilities;
 
 import com.denizenscript.denizencore.utilities.AsciiMatcher;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
 import org.bukkit.ChatColor;
 
-import java.util.HashMap;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
+/**
+ * Calculates the pixel width of text as the client would render it.
+ * Each font has a dense table of advance widths for every char, so a lookup is a single array read.
+ * The default font is built in (matching the vanilla ascii.png glyphs), and more fonts can be loaded from a resource pack's 'font/*.json' definitions.
+ */
 public class TextWidthHelper {
 
-    public static int[] asciiWidthMap = new int[128];
-    public static HashMap<Character, Integer> characterWidthMap = new HashMap<>();
+    public static final String DEFAULT_FONT = "minecraft:default";
+
+    public static final short UNSET = -1;
+
+    /**
+     * The built-in width table for the vanilla default font.
+     */
+    public static short[] builtinWidths = new short[65536];
+
+    /**
+     * Font ID to width table. Always contains DEFAULT_FONT. Replaced as a whole when a resource pack is (re)loaded, so reads never need locking.
+     */
+    public static volatile Map<String, short[]> fontWidths = Collections.singletonMap(DEFAULT_FONT, builtinWidths);
+
+    /**
+     * The width table for DEFAULT_FONT. Replaced along with 'fontWidths', and read off the main thread the same way.
+     */
+    public static volatile short[] defaultWidths = builtinWidths;
 
     public static void setWidth(int width, String chars) {
         for (char c : chars.toCharArray()) {
-            if (c < 128) {
-                asciiWidthMap[c] = width;
-            }
-            else {
-                characterWidthMap.put(c, width);
-            }
+            builtinWidths[c] = (short) width;
         }
     }
 
     static {
-        for (int i = 0; i < 128; i++) {
-            asciiWidthMap[i] = 6;
-        }
+        Arrays.fill(builtinWidths, (short) 6);
         // Covers all symbols in the default ascii.png texture file
         setWidth(2, "!,.:;|i'");
         setWidth(3, "l`");
@@ -37,10 +71,21 @@ public class TextWidthHelper {
     }
 
     public static int getWidth(char c) {
-        if (c < 128) {
-            return asciiWidthMap[c];
+        return defaultWidths[c];
+    }
+
+    /**
+     * Returns the width table for a font ID (with or without the 'minecraft:' namespace), or the default font's table if the font isn't known.
+     */
+    public static short[] getFont(String font) {
+        if (font == null) {
+            return defaultWidths;
+        }
+        short[] result = fontWidths.get(font);
+        if (result == null && font.indexOf(':') == -1) {
+            result = fontWidths.get("minecraft:" + font);
         }
-        return characterWidthMap.getOrDefault(c, 6);
+        return result == null ? defaultWidths : result;
     }
 
     public static AsciiMatcher formatCharCodeMatcher = new AsciiMatcher("klmnoKLMNO");
@@ -53,13 +98,14 @@ public class TextWidthHelper {
         int maxWidth = 0;
         int total = 0;
         boolean bold = wasBold;
-        char[] rawChars = str.toCharArray();
-        for (int i = 0; i < rawChars.length; i++) {
-            char c = rawChars[i];
-            if (c == ChatColor.COLOR_CHAR && (i + 1) < rawChars.length) {
-                char c2 = rawChars[i + 1];
+        short[] widths = defaultWidths;
+        int length = str.length();
+        for (int i = 0; i < length; i++) {
+            char c = str.charAt(i);
+            if (c == ChatColor.COLOR_CHAR && (i + 1) < length) {
+                char c2 = str.charAt(i + 1);
                 if (c2 == '[') {
-                    while (i < rawChars.length && rawChars[i] != ']') {
+                    while (i < length && str.charAt(i) != ']') {
                         i++;
                     }
                     continue;
@@ -73,7 +119,7 @@ public class TextWidthHelper {
                 i++;
                 continue;
             }
-            total += getWidth(c) + (bold ? 1 : 0);
+            total += widths[c] + (bold ? 1 : 0);
             if (c == '\n') {
                 if (total > maxWidth) {
                     maxWidth = total;
@@ -84,13 +130,52 @@ public class TextWidthHelper {
         return Math.max(total, maxWidth);
     }
 
+    /**
+     * Returns the width of parsed text components (see FormattedTextHelper.parse), respecting each component's font and bold state.
+     * Only literal text is measured: translations, keybinds, scores and selectors are resolved by the client, so their width isn't known here.
+     * If the text contains newlines, returns the widest line width.
+     */
+    public static int getWidth(BaseComponent[] components) {
+        int[] lineAndMax = new int[2];
+        for (BaseComponent component : components) {
+            addWidth(component, lineAndMax);
+        }
+        return Math.max(lineAndMax[0], lineAndMax[1]);
+    }
+
+    private static void addWidth(BaseComponent component, int[] lineAndMax) {
+        if (component instanceof TextComponent textComponent) {
+            String text = textComponent.getText();
+            if (!text.isEmpty()) {
+                short[] widths = getFont(component.getFont());
+                int boldOffset = component.isBold() ? 1 : 0;
+                int line = lineAndMax[0];
+                for (int i = 0; i < text.length(); i++) {
+                    char c = text.charAt(i);
+                    if (c == '\n') {
+                        lineAndMax[1] = Math.max(lineAndMax[1], line);
+                        line = 0;
+                        continue;
+                    }
+                    line += widths[c] + boldOffset;
+                }
+                lineAndMax[0] = line;
+            }
+        }
+        if (component.getExtra() != null) {
+            for (BaseComponent extra : component.getExtra()) {
+                addWidth(extra, lineAndMax);
+            }
+        }
+    }
+
     public static boolean isBold(boolean wasBold, String str) {
         boolean bold = wasBold;
-        char[] rawChars = str.toCharArray();
-        for (int i = 0; i < rawChars.length; i++) {
-            char c = rawChars[i];
-            if (c == ChatColor.COLOR_CHAR && (i + 1) < rawChars.length) {
-                char c2 = rawChars[i + 1];
+        int length = str.length();
+        for (int i = 0; i < length; i++) {
+            char c = str.charAt(i);
+            if (c == ChatColor.COLOR_CHAR && (i + 1) < length) {
+                char c2 = str.charAt(i + 1);
                 if (c2 == 'l' || c2 == 'L') {
                     bold = true;
                 }
@@ -102,6 +187,59 @@ public class TextWidthHelper {
         return bold;
     }
 
+    /**
+     * Incremental version of 'getWidth(boolean, String)' for a single line, so that 'splitLines' doesn't need to re-measure the whole line for every added character.
+     */
+    private static class LineMeasure {
+
+        String str;
+
+        int pos, width;
+
+        boolean bold, inBracket;
+
+        void reset(String str, int start, boolean bold) {
+            this.str = str;
+            pos = start;
+            width = 0;
+            this.bold = bold;
+            inBracket = false;
+        }
+
+        int measureTo(int end) {
+            short[] widths = defaultWidths;
+            while (pos < end) {
+                char c = str.charAt(pos);
+                if (inBracket) {
+                    if (c == ']') {
+                        inBracket = false;
+                    }
+                    pos++;
+                    continue;
+                }
+                if (c == ChatColor.COLOR_CHAR && pos + 1 < end) {
+                    char c2 = str.charAt(pos + 1);
+                    if (c2 == '[') {
+                        inBracket = true;
+                        pos++;
+                        continue;
+                    }
+                    else if (c2 == 'l' || c2 == 'L') {
+                        bold = true;
+                    }
+                    else if (!formatCharCodeMatcher.isMatch(c2)) {
+                        bold = false;
+                    }
+                    pos += 2;
+                    continue;
+                }
+                width += widths[c] + (bold ? 1 : 0);
+                pos++;
+            }
+            return width;
+        }
+    }
+
     public static String splitLines(String str, int width) {
         if (width < 8) {
             return str;
@@ -109,6 +247,8 @@ public class TextWidthHelper {
         StringBuilder output = new StringBuilder(str.length() * 2);
         int lineStart = 0;
         boolean bold = false;
+        LineMeasure measure = new LineMeasure();
+        measure.reset(str, 0, false);
         mainloop:
         for (int i = 0; i < str.length(); i++) {
             char c = str.charAt(i);
@@ -121,9 +261,10 @@ public class TextWidthHelper {
                 bold = isBold(bold, lastLine);
                 output.append(lastLine);
                 lineStart = i + 1;
+                measure.reset(str, lineStart, bold);
                 continue;
             }
-            if (getWidth(bold, str.substring(lineStart, i)) > width) {
+            if (measure.measureTo(i) > width) {
                 for (int x = i - 1; x > lineStart; x--) {
                     char xc = str.charAt(x);
                     if (xc == ' ') {
@@ -131,6 +272,7 @@ public class TextWidthHelper {
                         bold = isBold(bold, lastLine);
                         output.append(lastLine).append("\n");
                         lineStart = x + 1;
+                        measure.reset(str, lineStart, bold);
                         i = x;
                         continue mainloop;
                     }
@@ -139,9 +281,285 @@ public class TextWidthHelper {
                 bold = isBold(bold, lastLine);
                 output.append(lastLine).append("\n");
                 lineStart = i;
+                measure.reset(str, lineStart, bold);
             }
         }
         output.append(str, lineStart, str.length());
         return output.toString();
     }
+
+    /**
+     * Read access to the files of a resource pack, either an extracted folder or a zip file.
+     */
+    private static abstract class PackFiles implements AutoCloseable {
+
+        abstract InputStream open(String path) throws IOException;
+
+        abstract List<String> listFontDefinitions() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    private static boolean isFontDefinition(String path) {
+        List<String> parts = CoreUtilities.split(path, '/');
+        return parts.size() >= 4 && parts.get(0).equals("assets") && parts.get(2).equals("font") && path.endsWith(".json");
+    }
+
+    /**
+     * Converts a pack file path like 'assets/minecraft/font/include/space.json' to a font ID like 'minecraft:include/space'.
+     */
+    private static String fontIdFor(String path) {
+        int namespaceEnd = path.indexOf('/', "assets/".length());
+        return path.substring("assets/".length(), namespaceEnd) + ":" + path.substring(namespaceEnd + "/font/".length(), path.length() - ".json".length());
+    }
+
+    /**
+     * Converts a resource location like 'minecraft:font/ascii.png' plus a folder name like 'textures' to a pack file path.
+     */
+    private static String resourcePath(String location, String folder) {
+        int colon = location.indexOf(':');
+        String namespace = colon == -1 ? "minecraft" : location.substring(0, colon);
+        return "assets/" + namespace + "/" + folder + "/" + location.substring(colon + 1);
+    }
+
+    private static PackFiles openPack(File pack) throws IOException {
+        if (pack.isDirectory()) {
+            Path root = pack.toPath();
+            return new PackFiles() {
+                @Override
+                InputStream open(String path) throws IOException {
+                    Path file = root.resolve(path);
+                    return Files.isRegularFile(file) ? Files.newInputStream(file) : null;
+                }
+
+                @Override
+                List<String> listFontDefinitions() throws IOException {
+                    Path assets = root.resolve("assets");
+                    if (!Files.isDirectory(assets)) {
+                        return Collections.emptyList();
+                    }
+                    try (Stream<Path> files = Files.walk(assets)) {
+                        return files.map(file -> root.relativize(file).toString().replace(File.separatorChar, '/')).filter(TextWidthHelper::isFontDefinition).toList();
+                    }
+                }
+            };
+        }
+        ZipFile zip = new ZipFile(pack);
+        return new PackFiles() {
+            @Override
+            InputStream open(String path) throws IOException {
+                ZipEntry entry = zip.getEntry(path);
+                return entry == null ? null : zip.getInputStream(entry);
+            }
+
+            @Override
+            List<String> listFontDefinitions() {
+                List<String> result = new ArrayList<>();
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    if (isFontDefinition(name)) {
+                        result.add(name);
+                    }
+                }
+                return result;
+            }
+
+            @Override
+            public void close() throws IOException {
+                zip.close();
+            }
+        };
+    }
+
+    private static class FontLoader {
+
+        PackFiles files;
+
+        HashMap<String, short[]> loaded = new HashMap<>();
+
+        HashSet<String> loading = new HashSet<>();
+
+        /**
+         * Loads a font's width table, with UNSET for any char that the font's providers don't define.
+         * Returns null if the pack doesn't contain the font.
+         */
+        short[] load(String fontId) throws IOException {
+            if (loaded.containsKey(fontId)) {
+                return loaded.get(fontId);
+            }
+            if (!loading.add(fontId)) {
+                Debug.echoError("Font '" + fontId + "' references itself.");
+                return null;
+            }
+            JsonObject definition;
+            try (InputStream input = files.open(resourcePath(fontId, "font") + ".json")) {
+                if (input == null) {
+                    loading.remove(fontId);
+                    loaded.put(fontId, null);
+                    return null;
+                }
+                definition = JsonParser.parseReader(new InputStreamReader(input, StandardCharsets.UTF_8)).getAsJsonObject();
+            }
+            short[] widths = new short[65536];
+            Arrays.fill(widths, UNSET);
+            JsonArray providers = definition.getAsJsonArray("providers");
+            if (providers != null) {
+                // The first provider that defines a glyph wins, so later providers only fill in chars that are still unset
+                for (JsonElement provider : providers) {
+                    try {
+                        applyProvider(provider.getAsJsonObject(), widths);
+                    }
+                    catch (Exception ex) {
+                        Debug.echoError("Failed to load a glyph provider for font '" + fontId + "': " + ex.getMessage());
+                    }
+                }
+            }
+            loading.remove(fontId);
+            loaded.put(fontId, widths);
+            return widths;
+        }
+
+        void applyProvider(JsonObject provider, short[] widths) throws IOException {
+            String type = provider.get("type").getAsString();
+            switch (type) {
+                case "space" -> {
+                    for (Map.Entry<String, JsonElement> advance : provider.getAsJsonObject("advances").entrySet()) {
+                        String chars = advance.getKey();
+                        if (chars.length() == 1 && widths[chars.charAt(0)] == UNSET) {
+                            widths[chars.charAt(0)] = (short) Math.round(advance.getValue().getAsFloat());
+                        }
+                    }
+                }
+                case "bitmap" -> applyBitmap(provider, widths);
+                case "reference" -> {
+                    short[] referenced = load(provider.get("id").getAsString());
+                    if (referenced != null) {
+                        for (int c = 0; c < widths.length; c++) {
+                            if (widths[c] == UNSET) {
+                                widths[c] = referenced[c];
+                            }
+                        }
+                    }
+                }
+                // 'ttf' and 'unihex' providers aren't measured, chars they cover fall back to the default font width
+            }
+        }
+
+        void applyBitmap(JsonObject provider, short[] widths) throws IOException {
+            BufferedImage image;
+            try (InputStream input = files.open(resourcePath(provider.get("file").getAsString(), "textures"))) {
+                if (input == null) {
+                    return;
+                }
+                image = ImageIO.read(input);
+            }
+            if (image == null) {
+                return;
+            }
+            JsonArray rows = provider.getAsJsonArray("chars");
+            int rowCount = rows.size();
+            int columnCount = 0;
+            List<int[]> rowChars = new ArrayList<>(rowCount);
+            for (JsonElement row : rows) {
+                int[] codePoints = row.getAsString().codePoints().toArray();
+                rowChars.add(codePoints);
+                columnCount = Math.max(columnCount, codePoints.length);
+            }
+            if (rowCount == 0 || columnCount == 0) {
+                return;
+            }
+            int cellWidth = image.getWidth() / columnCount, cellHeight = image.getHeight() / rowCount;
+            int height = provider.has("height") ? provider.get("height").getAsInt() : 8;
+            float scale = (float) height / cellHeight;
+            for (int row = 0; row < rowCount; row++) {
+                int[] codePoints = rowChars.get(row);
+                for (int column = 0; column < codePoints.length; column++) {
+                    int codePoint = codePoints[column];
+                    if (codePoint == 0 || codePoint > 0xFFFF || widths[codePoint] != UNSET) {
+                        continue;
+                    }
+                    int glyphWidth = getGlyphWidth(image, column * cellWidth, row * cellHeight, cellWidth, cellHeight);
+                    // Same rounding as the client's bitmap glyph advance, plus 1 pixel of spacing
+                    widths[codePoint] = (short) ((int) (0.5 + glyphWidth * scale) + 1);
+                }
+            }
+        }
+
+        /**
+         * Returns the width of the glyph in a cell, ie 1 + the rightmost column that has any non-transparent pixel, or 0 if the cell is empty.
+         */
+        static int getGlyphWidth(BufferedImage image, int startX, int startY, int cellWidth, int cellHeight) {
+            for (int x = cellWidth - 1; x >= 0; x--) {
+                for (int y = 0; y < cellHeight; y++) {
+                    if ((image.getRGB(startX + x, startY + y) >>> 24) != 0) {
+                        return x + 1;
+                    }
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Loads all fonts defined in a resource pack (a folder or zip file), replacing any previously loaded pack.
+     * Chars that a font doesn't define use the default font's width.
+     * An empty path resets to only the built-in default font.
+     */
+    public static void loadResourcePack(String path) {
+        if (path == null || path.isEmpty()) {
+            fontWidths = Collections.singletonMap(DEFAULT_FONT, builtinWidths);
+            defaultWidths = builtinWidths;
+            return;
+        }
+        File file = new File(path);
+        if (!file.exists()) {
+            Debug.echoError("Cannot load text widths: resource pack '" + path + "' does not exist.");
+            return;
+        }
+        FontLoader loader = new FontLoader();
+        try (PackFiles files = openPack(file)) {
+            loader.files = files;
+            for (String definition : files.listFontDefinitions()) {
+                loader.load(fontIdFor(definition));
+            }
+        }
+        catch (Exception ex) {
+            Debug.echoError("Failed to load text widths from resource pack '" + path + "':");
+            Debug.echoError(ex);
+            return;
+        }
+        HashMap<String, short[]> result = new HashMap<>();
+        short[] newDefault = loader.loaded.get(DEFAULT_FONT);
+        if (newDefault == null) {
+            newDefault = builtinWidths;
+        }
+        else {
+            for (int c = 0; c < newDefault.length; c++) {
+                if (newDefault[c] == UNSET) {
+                    newDefault[c] = builtinWidths[c];
+                }
+            }
+        }
+        for (Map.Entry<String, short[]> font : loader.loaded.entrySet()) {
+            short[] widths = font.getValue();
+            if (widths == null) {
+                continue;
+            }
+            if (widths != newDefault) {
+                for (int c = 0; c < widths.length; c++) {
+                    if (widths[c] == UNSET) {
+                        widths[c] = newDefault[c];
+                    }
+                }
+            }
+            result.put(font.getKey(), widths);
+        }
+        result.put(DEFAULT_FONT, newDefault);
+        defaultWidths = newDefault;
+        fontWidths = result;
+        Debug.log("Loaded text widths for " + result.size() + " font(s) from resource pack '" + path + "'.");
+    }
 }
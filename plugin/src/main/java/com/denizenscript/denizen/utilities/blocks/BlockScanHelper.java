@@ -0,0 +1,134 @@
+package com.denizenscript.denizen.utilities.blocks;
+
+import com.denizenscript.denizen.nms.NMSHandler;
+import com.denizenscript.denizen.nms.interfaces.ChunkHelper;
+import com.denizenscript.denizen.objects.AreaContainmentObject;
+import com.denizenscript.denizen.objects.CuboidTag;
+import com.denizenscript.denizen.objects.EllipsoidTag;
+import com.denizenscript.denizen.objects.LocationTag;
+import com.denizenscript.denizen.objects.MaterialTag;
+import com.denizenscript.denizen.utilities.Settings;
+import com.denizenscript.denizencore.objects.core.ListTag;
+import com.denizenscript.denizencore.tags.TagContext;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Helper for quickly finding blocks that match a material matcher within a large region.
+ * The matcher is compiled once into a block data check, which the NMS chunk helper runs once per distinct block state in each chunk section,
+ * so sections whose palette can't contain a match are skipped entirely, and LocationTags are only created for hits.
+ */
+public class BlockScanHelper {
+
+    /**
+     * Returns a block data check equivalent to 'LocationTag.tryAdvancedMatcher' for the given matcher,
+     * or null if the matcher depends on more than the block's own data (see LocationTag.advancedMatches).
+     */
+    public static Predicate<BlockData> compileMatcher(String matcher, TagContext context) {
+        String matcherLow = CoreUtilities.toLowerCase(matcher);
+        if (matcherLow.contains("location") || matcherLow.contains("block_flagged:")) {
+            return null;
+        }
+        return (data) -> new MaterialTag(data).tryAdvancedMatcher(matcher, context);
+    }
+
+    @FunctionalInterface
+    public interface BlockPositionTest {
+        boolean test(int x, int y, int z);
+    }
+
+    public static long packRelative(int x, int y, int z) {
+        return ((long) x << 40) | ((long) y << 20) | z;
+    }
+
+    /**
+     * Finds all blocks within a box (block coordinates, inclusive) that pass the block data test and the (optional) position test,
+     * and calls the handler for the first 'limit' of them, in X, then Y, then Z order (the same order as a plain nested loop).
+     * Chunks that aren't loaded are skipped, as scanning must never load or generate chunks.
+     * Returns false (without calling the handler) if palette scanning is not supported on this server version.
+     */
+    public static boolean findInBox(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, Predicate<BlockData> test, BlockPositionTest positionTest, int limit, ChunkHelper.BlockPositionConsumer handler) {
+        minY = Math.max(minY, world.getMinHeight());
+        maxY = Math.min(maxY, world.getMaxHeight() - 1);
+        if (minX > maxX || minY > maxY || minZ > maxZ || limit <= 0) {
+            return true;
+        }
+        int baseX = minX, baseY = minY, baseZ = minZ;
+        LongArrayList hits = new LongArrayList();
+        ChunkHelper.BlockPositionConsumer collector = (x, y, z) -> {
+            if (positionTest == null || positionTest.test(x, y, z)) {
+                hits.add(packRelative(x - baseX, y - baseY, z - baseZ));
+            }
+        };
+        // Each column of chunks covers a whole X range, so once a column is done, no later hits can sort before the ones found so far
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                if (!world.isChunkLoaded(chunkX, chunkZ)) {
+                    continue;
+                }
+                if (!NMSHandler.chunkHelper.forEachMatchingBlock(world.getChunkAt(chunkX, chunkZ), minX, minY, minZ, maxX, maxY, maxZ, test, collector)) {
+                    return false;
+                }
+            }
+            if (hits.size() >= limit) {
+                break;
+            }
+        }
+        long[] sorted = hits.toLongArray();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length && i < limit; i++) {
+            long hit = sorted[i];
+            handler.accept(baseX + (int) (hit >>> 40), baseY + (int) ((hit >>> 20) & 0xFFFFF), baseZ + (int) (hit & 0xFFFFF));
+        }
+        return true;
+    }
+
+    /**
+     * Returns all blocks in the area that match the given material matcher, or null if the area type or matcher can't be scanned this way
+     * (in which case the caller should fall back to a block-by-block check).
+     */
+    public static ListTag findInArea(AreaContainmentObject area, String matcher, TagContext context) {
+        Predicate<BlockData> test = compileMatcher(matcher, context);
+        if (test == null) {
+            return null;
+        }
+        World world = area.getWorld().getWorld();
+        CuboidTag boundary;
+        BlockPositionTest containsTest;
+        if (area instanceof CuboidTag cuboid) {
+            boundary = cuboid;
+            containsTest = null;
+        }
+        else if (area instanceof EllipsoidTag ellipsoid) {
+            boundary = ellipsoid.getCuboidBoundary();
+            Location testLocation = new Location(world, 0, 0, 0);
+            containsTest = (x, y, z) -> {
+                testLocation.setX(x);
+                testLocation.setY(y);
+                testLocation.setZ(z);
+                return ellipsoid.contains(testLocation);
+            };
+        }
+        else {
+            return null;
+        }
+        ListTag result = new ListTag();
+        int max = Settings.blockTagsMaxBlocks();
+        for (CuboidTag.LocationPair pair : boundary.pairs) {
+            int lowX = pair.low.getBlockX(), lowY = pair.low.getBlockY(), lowZ = pair.low.getBlockZ();
+            boolean supported = findInBox(world, lowX, lowY, lowZ, lowX + pair.xDistance(), lowY + pair.yDistance(), lowZ + pair.zDistance(), test, containsTest, max - result.size(), (x, y, z) -> {
+                result.addObject(new LocationTag(world, x, y, z));
+            });
+            if (!supported) {
+                return null;
+            }
+        }
+        return result;
+    }
+}
@@ -21,6 +21,21 @@ public interface BlockSet {
         public List<PlayerTag> fakeTo;
 
         public DurationTag fakeDuration;
+
+        /**
+         * If true, and supported by the server version, blocks are written directly into chunk sections rather than set one at a time.
+         */
+        public boolean direct;
+
+        /**
+         * Priority for delayed sets within the shared BlockWorkScheduler. Higher values are processed first.
+         */
+        public int priority;
+
+        /**
+         * Called instead of the completion callback if a delayed set fails partway through.
+         */
+        public Runnable onFailure;
     }
 
     FullBlockData[] getBlocks();
@@ -0,0 +1,269 @@
+package com.denizenscript.denizen.utilities.blocks;
+
+import com.denizenscript.denizen.Denizen;
+import com.denizenscript.denizencore.objects.core.DurationTag;
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.objects.core.ListTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * Shared scheduler for 'delayed' block operations (schematic create/paste, modifyblock).
+ * All running tasks share one time budget per tick, which adapts to how long server ticks are actually taking:
+ * when ticks run over the target length the budget is cut, and while the server keeps up it slowly grows back to the max.
+ * Higher priority tasks are given time first, and tasks of equal priority split the remaining time evenly.
+ */
+public class BlockWorkScheduler {
+
+    /**
+     * A unit of delayed block work. Implementations should do work in small steps, checking the deadline between steps.
+     */
+    public static abstract class Task {
+
+        public final String name;
+
+        public final int priority;
+
+        public final long maxDelayMs;
+
+        public final long total;
+
+        public long done;
+
+        public long id, startTimeMs;
+
+        public Task(String name, int priority, long maxDelayMs, long total) {
+            this.name = name;
+            this.priority = priority;
+            this.maxDelayMs = maxDelayMs;
+            this.total = total;
+        }
+
+        /**
+         * Processes as much work as possible until System.nanoTime() passes the deadline, updating 'done' as it goes.
+         * Returns true when the task is fully complete.
+         */
+        public abstract boolean process(long deadlineNanos);
+
+        /**
+         * Called once on the main thread after 'process' returns true.
+         */
+        public void complete() {
+        }
+
+        /**
+         * Called once on the main thread instead of 'complete' if 'process' threw an exception (which has already been reported).
+         * Should release anything waiting on the task, without running any success callbacks.
+         */
+        public void failed() {
+        }
+
+        public double getProgress() {
+            return total <= 0 ? 1 : Math.min(1, (double) done / total);
+        }
+
+        public long getElapsedMs() {
+            return CoreUtilities.monotonicMillis() - startTimeMs;
+        }
+
+        /**
+         * Estimates the remaining time based on the average rate so far, or -1 if no work has been done yet.
+         */
+        public long getEtaMs() {
+            if (done <= 0) {
+                return -1;
+            }
+            return (long) (getElapsedMs() * ((double) (total - done) / done));
+        }
+
+        public MapTag describe() {
+            MapTag result = new MapTag();
+            result.putObject("id", new ElementTag(id));
+            result.putObject("name", new ElementTag(name, true));
+            result.putObject("priority", new ElementTag(priority));
+            result.putObject("done", new ElementTag(done));
+            result.putObject("total", new ElementTag(total));
+            result.putObject("progress", new ElementTag(getProgress()));
+            result.putObject("elapsed", new DurationTag(getElapsedMs() / 1000.0));
+            long eta = getEtaMs();
+            if (eta >= 0) {
+                result.putObject("eta", new DurationTag(eta / 1000.0));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Walks a box of relative block coordinates one chunk column at a time (and X, then Y, then Z within each column),
+     * so that work on large areas finishes one chunk before moving to the next.
+     */
+    public static class ChunkOrderedCursor {
+
+        public final int width, height, length, offsetX, offsetZ, chunksX, chunksZ;
+
+        public int chunkX, chunkZ, minX, maxX, minZ, maxZ;
+
+        public int x, y, z;
+
+        public boolean finished;
+
+        /**
+         * @param lowX the world block X of relative position 0.
+         * @param lowZ the world block Z of relative position 0.
+         */
+        public ChunkOrderedCursor(int lowX, int lowZ, int width, int height, int length) {
+            this.width = width;
+            this.height = height;
+            this.length = length;
+            offsetX = lowX & 15;
+            offsetZ = lowZ & 15;
+            chunksX = ((offsetX + width - 1) >> 4) + 1;
+            chunksZ = ((offsetZ + length - 1) >> 4) + 1;
+            finished = width <= 0 || height <= 0 || length <= 0;
+            if (!finished) {
+                startColumn();
+            }
+        }
+
+        private void startColumn() {
+            minX = Math.max(0, (chunkX << 4) - offsetX);
+            maxX = Math.min(width - 1, (chunkX << 4) + 15 - offsetX);
+            minZ = Math.max(0, (chunkZ << 4) - offsetZ);
+            maxZ = Math.min(length - 1, (chunkZ << 4) + 15 - offsetZ);
+            x = minX;
+            y = 0;
+            z = minZ;
+        }
+
+        public void advance() {
+            if (++z <= maxZ) {
+                return;
+            }
+            z = minZ;
+            if (++y < height) {
+                return;
+            }
+            y = 0;
+            if (++x <= maxX) {
+                return;
+            }
+            if (++chunkZ >= chunksZ) {
+                chunkZ = 0;
+                if (++chunkX >= chunksX) {
+                    finished = true;
+                    return;
+                }
+            }
+            startColumn();
+        }
+    }
+
+    public static double maxBudgetMs = 40, minBudgetMs = 2, targetTickMs = 50;
+
+    public static double budgetMs = 40, lastTickMs = 50;
+
+    public static long nextId = 1;
+
+    public static long lastTickNanos = 0;
+
+    public static final ArrayList<Task> tasks = new ArrayList<>();
+
+    public static BukkitTask timer;
+
+    public static void submit(Task task) {
+        task.id = nextId++;
+        task.startTimeMs = CoreUtilities.monotonicMillis();
+        tasks.add(task);
+        tasks.sort(Comparator.comparingInt((Task t) -> -t.priority));
+        if (timer == null) {
+            lastTickNanos = 0;
+            budgetMs = maxBudgetMs;
+            timer = Bukkit.getScheduler().runTaskTimer(Denizen.getInstance(), BlockWorkScheduler::tick, 1, 1);
+        }
+    }
+
+    public static void updateBudget(long now) {
+        if (lastTickNanos != 0) {
+            lastTickMs = (now - lastTickNanos) / 1_000_000.0;
+            if (lastTickMs > targetTickMs * 1.1) {
+                budgetMs = Math.max(minBudgetMs, budgetMs * 0.7);
+            }
+            else {
+                budgetMs = Math.min(maxBudgetMs, budgetMs + 1);
+            }
+        }
+        lastTickNanos = now;
+    }
+
+    public static void tick() {
+        long now = System.nanoTime();
+        updateBudget(now);
+        long globalDeadline = now + (long) (budgetMs * 1_000_000);
+        ArrayList<Task> toRun = new ArrayList<>(tasks);
+        int index = 0;
+        while (index < toRun.size()) {
+            int priority = toRun.get(index).priority;
+            int groupEnd = index;
+            while (groupEnd < toRun.size() && toRun.get(groupEnd).priority == priority) {
+                groupEnd++;
+            }
+            for (int i = index; i < groupEnd; i++) {
+                long start = System.nanoTime();
+                if (start >= globalDeadline) {
+                    return;
+                }
+                Task task = toRun.get(i);
+                long share = (globalDeadline - start) / (groupEnd - i);
+                long deadline = start + Math.min(share, task.maxDelayMs * 1_000_000);
+                boolean isComplete;
+                try {
+                    isComplete = task.process(deadline);
+                }
+                catch (Throwable ex) {
+                    Debug.echoError("Delayed block task '" + task.name + "' failed, and has been cancelled:");
+                    Debug.echoError(ex);
+                    tasks.remove(task);
+                    try {
+                        task.failed();
+                    }
+                    catch (Throwable ex2) {
+                        Debug.echoError(ex2);
+                    }
+                    continue;
+                }
+                if (isComplete) {
+                    tasks.remove(task);
+                    try {
+                        task.complete();
+                    }
+                    catch (Throwable ex) {
+                        Debug.echoError(ex);
+                    }
+                }
+            }
+            index = groupEnd;
+        }
+        if (tasks.isEmpty() && timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    public static MapTag describe() {
+        MapTag result = new MapTag();
+        result.putObject("budget_ms", new ElementTag(budgetMs));
+        result.putObject("last_tick_ms", new ElementTag(lastTickMs));
+        ListTag taskList = new ListTag();
+        for (Task task : tasks) {
+            taskList.addObject(task.describe());
+        }
+        result.putObject("tasks", taskList);
+        return result;
+    }
+}
@@ -1,8 +1,8 @@
 package com.denizenscript.denizen.utilities.blocks;
 
-import com.denizenscript.denizen.Denizen;
 import com.denizenscript.denizen.nms.NMSHandler;
 import com.denizenscript.denizen.nms.NMSVersion;
+import com.denizenscript.denizen.nms.interfaces.BlockHelper;
 import com.denizenscript.denizen.objects.*;
 import com.denizenscript.denizen.scripts.commands.world.SchematicCommand;
 import com.denizenscript.denizen.utilities.Utilities;
@@ -12,13 +12,15 @@ import com.denizenscript.denizencore.objects.core.ElementTag;
 import com.denizenscript.denizencore.objects.core.ListTag;
 import com.denizenscript.denizencore.objects.core.MapTag;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.util.Vector;
 
 import java.util.ArrayList;
@@ -50,7 +52,7 @@ public class CuboidBlockSet implements BlockSet {
         center_x = (int) (center.getX() - low.getX());
         center_y = (int) (center.getY() - low.getY());
         center_z = (int) (center.getZ() - low.getZ());
-        blocks = new FullBlockData[x_width * y_length * z_height];
+        blocks = new PalettedBlockStorage(x_width * y_length * z_height);
         int index = 0;
         double lowX = low.getBlockX() + 0.5, lowY = low.getBlockY() + 0.5, lowZ = low.getBlockZ() + 0.5;
         Location refLoc = low.clone();
@@ -64,13 +66,17 @@ public class CuboidBlockSet implements BlockSet {
                     if (block != STRUCTURE_VOID && mask != null && !mask.contains(block.data.getMaterial())) {
                         block = STRUCTURE_VOID;
                     }
-                    blocks[index++] = block;
+                    blocks.set(index++, block);
                 }
             }
         }
     }
 
     public void buildDelayed(AreaContainmentObject area, Location center, HashSet<Material> mask, Runnable runme, long maxDelayMs, boolean copyFlags) {
+        buildDelayed(area, center, mask, runme, null, maxDelayMs, copyFlags, 0);
+    }
+
+    public void buildDelayed(AreaContainmentObject area, Location center, HashSet<Material> mask, Runnable runme, Runnable onFailure, long maxDelayMs, boolean copyFlags, int priority) {
         hasFlags = copyFlags;
         CuboidTag boundary;
         if (area instanceof CuboidTag && ((CuboidTag) area).pairs.size() == 1) {
@@ -89,18 +95,15 @@ public class CuboidBlockSet implements BlockSet {
         center_y = (int) (center.getY() - low.getY());
         center_z = (int) (center.getZ() - low.getZ());
         final long goal = (long)x_width * y_length * z_height;
-        blocks = new FullBlockData[x_width * y_length * z_height];
+        blocks = new PalettedBlockStorage(x_width * y_length * z_height);
         double lowX = low.getBlockX() + 0.5, lowY = low.getBlockY() + 0.5, lowZ = low.getBlockZ() + 0.5;
         Location refLoc = low.clone();
-        new BukkitRunnable() {
-            int index = 0;
+        BlockWorkScheduler.ChunkOrderedCursor cursor = new BlockWorkScheduler.ChunkOrderedCursor(low.getBlockX(), low.getBlockZ(), x_width, y_length, z_height);
+        BlockWorkScheduler.submit(new BlockWorkScheduler.Task("schematic create", priority, maxDelayMs, goal) {
             @Override
-            public void run() {
-                long start = CoreUtilities.monotonicMillis();
-                while (index < goal) {
-                    long z = index % ((long) z_height);
-                    long y = ((index - z) % ((long)y_length * z_height)) / ((long) z_height);
-                    long x = (index - y - z) / ((long)y_length * z_height);
+            public boolean process(long deadlineNanos) {
+                while (!cursor.finished) {
+                    int x = cursor.x, y = cursor.y, z = cursor.z;
                     refLoc.setX(lowX + x);
                     refLoc.setY(lowY + y);
                     refLoc.setZ(lowZ + z);
@@ -108,24 +111,35 @@ public class CuboidBlockSet implements BlockSet {
                     if (block != STRUCTURE_VOID && mask != null && !mask.contains(block.data.getMaterial())) {
                         block = STRUCTURE_VOID;
                     }
-                    blocks[index] = block;
-                    index++;
-                    if (CoreUtilities.monotonicMillis() - start > maxDelayMs) {
-                        return;
+                    blocks.set(z + y * z_height + x * z_height * y_length, block);
+                    cursor.advance();
+                    done++;
+                    if (System.nanoTime() > deadlineNanos) {
+                        return cursor.finished;
                     }
                 }
+                return true;
+            }
+
+            @Override
+            public void complete() {
                 if (runme != null) {
                     runme.run();
                 }
-                cancel();
+            }
 
+            @Override
+            public void failed() {
+                if (onFailure != null) {
+                    onFailure.run();
+                }
             }
-        }.runTaskTimer(Denizen.getInstance(), 1, 1);
+        });
     }
 
     public AreaContainmentObject constraint = null;
 
-    public FullBlockData[] blocks = null;
+    public PalettedBlockStorage blocks = null;
 
     public boolean hasFlags = false;
 
@@ -149,7 +163,7 @@ public class CuboidBlockSet implements BlockSet {
 
     public CuboidBlockSet duplicate() {
         CuboidBlockSet result = new CuboidBlockSet();
-        result.blocks = blocks.clone();
+        result.blocks = blocks.duplicate();
         result.hasFlags = hasFlags;
         result.x_width = x_width;
         result.y_length = y_length;
@@ -163,9 +177,17 @@ public class CuboidBlockSet implements BlockSet {
         return result;
     }
 
+    /**
+     * Returns a full array of all blocks in the set.
+     * Note that this expands the compact palette storage into one object per block, so avoid using it for large sets.
+     */
     @Override
     public FullBlockData[] getBlocks() {
-        return blocks;
+        FullBlockData[] result = new FullBlockData[blocks.size];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = blocks.get(i);
+        }
+        return result;
     }
 
     public CuboidTag getCuboid(Location loc) {
@@ -298,43 +320,170 @@ public class CuboidBlockSet implements BlockSet {
         }
     }
 
+    public boolean canPasteDirect(InputParams input) {
+        return input.direct && input.fakeTo == null && NMSHandler.getVersion().isAtLeast(NMSVersion.v1_19);
+    }
+
+    public int getDirectChunkCount(InputParams input) {
+        int lowX = input.centerLocation.getBlockX() - center_x, lowZ = input.centerLocation.getBlockZ() - center_z;
+        return (((lowX + x_width - 1) >> 4) - (lowX >> 4) + 1) * (((lowZ + z_height - 1) >> 4) - (lowZ >> 4) + 1);
+    }
+
+    /**
+     * Pastes the part of this set that falls within a single chunk, writing block states directly into the chunk's sections (see BlockHelper#setBlocksDirect),
+     * then applies any tile entity data and flags, and resends the chunk to players once.
+     */
+    public void pasteChunkDirect(int chunkX, int chunkZ, InputParams input) {
+        World world = input.centerLocation.getWorld();
+        int lowX = input.centerLocation.getBlockX() - center_x, lowY = input.centerLocation.getBlockY() - center_y, lowZ = input.centerLocation.getBlockZ() - center_z;
+        int minX = Math.max(0, (chunkX << 4) - lowX), maxX = Math.min(x_width - 1, (chunkX << 4) + 15 - lowX);
+        int minZ = Math.max(0, (chunkZ << 4) - lowZ), maxZ = Math.min(z_height - 1, (chunkZ << 4) + 15 - lowZ);
+        int minY = Math.max(0, world.getMinHeight() - lowY), maxY = Math.min(y_length - 1, world.getMaxHeight() - 1 - lowY);
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            return;
+        }
+        Chunk chunk = world.getChunkAt(chunkX, chunkZ);
+        int maxCount = (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        int[] positions = new int[maxCount];
+        BlockData[] datas = new BlockData[maxCount];
+        int count = 0;
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    int index = z + y * z_height + x * z_height * y_length;
+                    int id = blocks.getId(index);
+                    if (id == 0) {
+                        continue;
+                    }
+                    BlockData data = blocks.palette.get(id);
+                    Material material = data.getMaterial();
+                    if (material == Material.STRUCTURE_VOID || (input.noAir && material == Material.AIR)) {
+                        continue;
+                    }
+                    int worldX = lowX + x, worldY = lowY + y, worldZ = lowZ + z;
+                    if (input.mask != null && !input.mask.contains(chunk.getBlock(worldX & 15, worldY, worldZ & 15).getType())) {
+                        continue;
+                    }
+                    positions[count] = BlockHelper.packChunkPosition(worldX, worldY, worldZ);
+                    datas[count] = data;
+                    count++;
+                }
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        NMSHandler.blockHelper.setBlocksDirect(chunk, positions, datas, count);
+        if (!blocks.tileEntities.isEmpty() || !blocks.flags.isEmpty()) {
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        int index = z + y * z_height + x * z_height * y_length;
+                        if (blocks.tileEntities.containsKey(index) || blocks.flags.containsKey(index)) {
+                            Block block = world.getBlockAt(lowX + x, lowY + y, lowZ + z);
+                            FullBlockData fullData = blocks.get(index);
+                            if (block.getBlockData().equals(fullData.data)) {
+                                fullData.applyTileEntityAndFlags(block);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        world.refreshChunk(chunkX, chunkZ);
+    }
+
     @Override
     public void setBlocksDelayed(final Runnable runme, final InputParams input, long maxDelayMs) {
+        int lowX = input.centerLocation.getBlockX() - center_x, lowZ = input.centerLocation.getBlockZ() - center_z;
+        if (canPasteDirect(input)) {
+            final int lowChunkX = lowX >> 4, lowChunkZ = lowZ >> 4;
+            final int chunksZ = ((lowZ + z_height - 1) >> 4) - lowChunkZ + 1;
+            BlockWorkScheduler.submit(new BlockWorkScheduler.Task("schematic paste", input.priority, maxDelayMs, getDirectChunkCount(input)) {
+                @Override
+                public boolean process(long deadlineNanos) {
+                    while (done < total) {
+                        pasteChunkDirect(lowChunkX + (int) (done / chunksZ), lowChunkZ + (int) (done % chunksZ), input);
+                        done++;
+                        if (System.nanoTime() > deadlineNanos) {
+                            break;
+                        }
+                    }
+                    return done >= total;
+                }
+
+                @Override
+                public void complete() {
+                    if (runme != null) {
+                        runme.run();
+                    }
+                }
+
+                @Override
+                public void failed() {
+                    if (input.onFailure != null) {
+                        input.onFailure.run();
+                    }
+                }
+            });
+            return;
+        }
         final long goal = (long)x_width * y_length * z_height;
-        new BukkitRunnable() {
-            int index = 0;
+        BlockWorkScheduler.ChunkOrderedCursor cursor = new BlockWorkScheduler.ChunkOrderedCursor(lowX, lowZ, x_width, y_length, z_height);
+        BlockWorkScheduler.submit(new BlockWorkScheduler.Task("schematic paste", input.priority, maxDelayMs, goal) {
             @Override
-            public void run() {
+            public boolean process(long deadlineNanos) {
                 SchematicCommand.noPhys = true;
-                long start = CoreUtilities.monotonicMillis();
-                while (index < goal) {
-                    int z = index % (z_height);
-                    int y = ((index - z) % (y_length * z_height)) / z_height;
-                    int x = (index - y - z) / (y_length * z_height);
-                    setBlockSingle(blocks[index], x, y, z, input);
-                    index++;
-                    if (CoreUtilities.monotonicMillis() - start > maxDelayMs) {
-                        SchematicCommand.noPhys = false;
-                        return;
+                try {
+                    while (!cursor.finished) {
+                        int x = cursor.x, y = cursor.y, z = cursor.z;
+                        setBlockSingle(blocks.get(z + y * z_height + x * z_height * y_length), x, y, z, input);
+                        cursor.advance();
+                        done++;
+                        if (System.nanoTime() > deadlineNanos) {
+                            return cursor.finished;
+                        }
                     }
+                    return true;
+                }
+                finally {
+                    SchematicCommand.noPhys = false;
                 }
-                SchematicCommand.noPhys = false;
-                cancel();
+            }
+
+            @Override
+            public void complete() {
                 if (runme != null) {
                     runme.run();
                 }
             }
-        }.runTaskTimer(Denizen.getInstance(), 1, 1);
+
+            @Override
+            public void failed() {
+                if (input.onFailure != null) {
+                    input.onFailure.run();
+                }
+            }
+        });
     }
 
     @Override
     public void setBlocks(InputParams input) {
+        if (canPasteDirect(input)) {
+            int lowX = input.centerLocation.getBlockX() - center_x, lowZ = input.centerLocation.getBlockZ() - center_z;
+            for (int chunkX = lowX >> 4; chunkX <= (lowX + x_width - 1) >> 4; chunkX++) {
+                for (int chunkZ = lowZ >> 4; chunkZ <= (lowZ + z_height - 1) >> 4; chunkZ++) {
+                    pasteChunkDirect(chunkX, chunkZ, input);
+                }
+            }
+            return;
+        }
         SchematicCommand.noPhys = true;
         int index = 0;
         for (int x = 0; x < x_width; x++) {
             for (int y = 0; y < y_length; y++) {
                 for (int z = 0; z < z_height; z++) {
-                    setBlockSingle(blocks[index], x, y, z, input);
+                    setBlockSingle(blocks.get(index), x, y, z, input);
                     index++;
                 }
             }
@@ -365,22 +514,19 @@ public class CuboidBlockSet implements BlockSet {
 
     public void rotateOne() {
         rotateEntitiesOne();
-        FullBlockData[] bd = new FullBlockData[blocks.length];
-        int index = 0;
+        int oldXWidth = x_width, oldZHeight = z_height, yLength = y_length;
         int cx = center_x;
         center_x = center_z;
-        center_z = x_width - 1 - cx;
-        for (int x = 0; x < z_height; x++) {
-            for (int y = 0; y < y_length; y++) {
-                for (int z = x_width - 1; z >= 0; z--) {
-                    bd[index++] = blockAt(z, y, x).rotateOne();
-                }
-            }
-        }
-        int xw = x_width;
-        x_width = z_height;
-        z_height = xw;
-        blocks = bd;
+        center_z = oldXWidth - 1 - cx;
+        // Old (x, y, z) becomes new (z, y, oldXWidth - 1 - x), with the new Z axis being the old X width
+        blocks = blocks.transform(index -> {
+            int z = index % oldZHeight;
+            int y = (index / oldZHeight) % yLength;
+            int x = index / (oldZHeight * yLength);
+            return (oldXWidth - 1 - x) + y * oldXWidth + z * oldXWidth * yLength;
+        }, data -> new FullBlockData(data).rotateOne().data);
+        x_width = oldZHeight;
+        z_height = oldXWidth;
     }
 
     public void flipEntities(int offsetMultiplier_X, int offsetMultiplier_Z) {
@@ -416,49 +562,34 @@ public class CuboidBlockSet implements BlockSet {
 
     public void flipX() {
         flipEntities(-1, 1);
-        FullBlockData[] bd = new FullBlockData[blocks.length];
-        int index = 0;
         center_x = x_width - center_x - 1;
-        for (int x = x_width - 1; x >= 0; x--) {
-            for (int y = 0; y < y_length; y++) {
-                for (int z = 0; z < z_height; z++) {
-                    bd[index++] = blockAt(x, y, z).flipX();
-                }
-            }
-        }
-        blocks = bd;
+        int xWidth = x_width, layerSize = z_height * y_length;
+        blocks = blocks.transform(index -> {
+            int x = index / layerSize;
+            return index + (xWidth - 1 - 2 * x) * layerSize;
+        }, data -> new FullBlockData(data).flipX().data);
     }
 
     public void flipY() {
-        FullBlockData[] bd = new FullBlockData[blocks.length];
-        int index = 0;
         center_y = y_length - center_y - 1;
-        for (int x = 0; x < x_width; x++) {
-            for (int y = y_length - 1; y >= 0; y--) {
-                for (int z = 0; z < z_height; z++) {
-                    bd[index++] = blockAt(x, y, z).flipY();
-                }
-            }
-        }
-        blocks = bd;
+        int yLength = y_length, zHeight = z_height;
+        blocks = blocks.transform(index -> {
+            int y = (index / zHeight) % yLength;
+            return index + (yLength - 1 - 2 * y) * zHeight;
+        }, data -> new FullBlockData(data).flipY().data);
     }
 
     public void flipZ() {
         flipEntities(1, -1);
-        FullBlockData[] bd = new FullBlockData[blocks.length];
-        int index = 0;
         center_z = z_height - center_z - 1;
-        for (int x = 0; x < x_width; x++) {
-            for (int y = 0; y < y_length; y++) {
-                for (int z = z_height - 1; z >= 0; z--) {
-                    bd[index++] = blockAt(x, y, z).flipZ();
-                }
-            }
-        }
-        blocks = bd;
+        int zHeight = z_height;
+        blocks = blocks.transform(index -> {
+            int z = index % zHeight;
+            return index + (zHeight - 1 - 2 * z);
+        }, data -> new FullBlockData(data).flipZ().data);
     }
 
     public FullBlockData blockAt(double X, double Y, double Z) {
-        return blocks[(int) (Z + Y * z_height + X * z_height * y_length)];
+        return blocks.get((int) (Z + Y * z_height + X * z_height * y_length));
     }
 }
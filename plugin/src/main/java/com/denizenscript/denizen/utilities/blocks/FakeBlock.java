@@ -8,8 +8,13 @@ import com.denizenscript.denizen.objects.MaterialTag;
 import com.denizenscript.denizen.objects.PlayerTag;
 import com.denizenscript.denizen.utilities.packets.NetworkInterceptHelper;
 import com.denizenscript.denizencore.objects.core.DurationTag;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.shorts.ShortOpenHashSet;
 import org.bukkit.Bukkit;
 import org.bukkit.World;
+import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.scheduler.BukkitTask;
 
@@ -20,22 +25,143 @@ import java.util.*;
  */
 public class FakeBlock {
 
+    /**
+     * Packs a block position into a long, in the same format as NMS 'BlockPos.asLong'.
+     */
+    public static long packPosition(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    /**
+     * Packs a chunk section position into a long, in the same format as NMS 'SectionPos.asLong'.
+     */
+    public static long packSection(int sectionX, int sectionY, int sectionZ) {
+        return ((long) (sectionX & 0x3FFFFF) << 42) | ((long) (sectionZ & 0x3FFFFF) << 20) | (sectionY & 0xFFFFF);
+    }
+
+    /**
+     * Packs a block position relative to its section into a short, in the same format as NMS 'SectionPos.sectionRelativePos'.
+     */
+    public static short packSectionRelative(int x, int y, int z) {
+        return (short) (((x & 15) << 8) | ((z & 15) << 4) | (y & 15));
+    }
+
+    /**
+     * The fake blocks within a single chunk section, sorted by section-relative position.
+     * The arrays are small and kept sorted, so lookups are an allocation-free binary search.
+     * Changes replace the whole (immutable) entry arrays at once, so the packet threads always see a matching pair of arrays.
+     */
+    public static class SectionBlocks {
+
+        public static final class Entries {
+
+            public final short[] positions;
+
+            public final FakeBlock[] blocks;
+
+            public Entries(short[] positions, FakeBlock[] blocks) {
+                this.positions = positions;
+                this.blocks = blocks;
+            }
+        }
+
+        public static final Entries EMPTY = new Entries(new short[0], new FakeBlock[0]);
+
+        public volatile Entries entries = EMPTY;
+
+        public FakeBlock get(short relative) {
+            Entries entries = this.entries;
+            int index = Arrays.binarySearch(entries.positions, relative);
+            return index >= 0 ? entries.blocks[index] : null;
+        }
+
+        public void add(short relative, FakeBlock block) {
+            Entries entries = this.entries;
+            short[] positions = entries.positions;
+            FakeBlock[] blocks = entries.blocks;
+            int index = Arrays.binarySearch(positions, relative);
+            if (index >= 0) {
+                FakeBlock[] newBlocks = blocks.clone();
+                newBlocks[index] = block;
+                this.entries = new Entries(positions, newBlocks);
+                return;
+            }
+            index = -(index + 1);
+            short[] newPositions = new short[positions.length + 1];
+            FakeBlock[] newBlocks = new FakeBlock[blocks.length + 1];
+            System.arraycopy(positions, 0, newPositions, 0, index);
+            System.arraycopy(blocks, 0, newBlocks, 0, index);
+            newPositions[index] = relative;
+            newBlocks[index] = block;
+            System.arraycopy(positions, index, newPositions, index + 1, positions.length - index);
+            System.arraycopy(blocks, index, newBlocks, index + 1, blocks.length - index);
+            this.entries = new Entries(newPositions, newBlocks);
+        }
+
+        /**
+         * Removes the block at the relative position (if any), and returns whether the section is now empty.
+         */
+        public boolean remove(short relative) {
+            Entries entries = this.entries;
+            short[] positions = entries.positions;
+            FakeBlock[] blocks = entries.blocks;
+            int index = Arrays.binarySearch(positions, relative);
+            if (index < 0) {
+                return positions.length == 0;
+            }
+            short[] newPositions = new short[positions.length - 1];
+            FakeBlock[] newBlocks = new FakeBlock[blocks.length - 1];
+            System.arraycopy(positions, 0, newPositions, 0, index);
+            System.arraycopy(blocks, 0, newBlocks, 0, index);
+            System.arraycopy(positions, index + 1, newPositions, index, newPositions.length - index);
+            System.arraycopy(blocks, index + 1, newBlocks, index, newBlocks.length - index);
+            this.entries = newPositions.length == 0 ? EMPTY : new Entries(newPositions, newBlocks);
+            return newPositions.length == 0;
+        }
+    }
+
+    /**
+     * Primitive-keyed lookups for the fake blocks of a FakeBlockMap within a single world, for use by the packet rewriters.
+     */
+    public static class WorldBlocks {
+
+        public Long2ObjectOpenHashMap<FakeBlock> byPosition = new Long2ObjectOpenHashMap<>();
+
+        public Long2ObjectOpenHashMap<SectionBlocks> bySection = new Long2ObjectOpenHashMap<>();
+    }
+
     public static class FakeBlockMap {
 
         public Map<LocationTag, FakeBlock> byLocation = new HashMap<>();
 
         public Map<ChunkCoordinate, List<FakeBlock>> byChunk = new HashMap<>();
 
+        public Map<String, WorldBlocks> byWorld = new HashMap<>();
+
         public FakeBlock getOrAdd(PlayerTag player, LocationTag location) {
+            return getOrAdd(player, null, location);
+        }
+
+        public FakeBlock getOrAdd(PlayerTag player, FakeBlockLayer layer, LocationTag location) {
             location = new LocationTag(location.getBlockX(), location.getBlockY(), location.getBlockZ(), location.getWorldName());
             FakeBlock block = byLocation.get(location);
             if (block != null) {
                 return block;
             }
-            block = new FakeBlock(player, location);
+            block = new FakeBlock(player, layer, location);
             byLocation.put(location, block);
             List<FakeBlock> chunkBlocks = byChunk.computeIfAbsent(block.chunkCoord, k -> new ArrayList<>());
             chunkBlocks.add(block);
+            WorldBlocks worldBlocks = byWorld.computeIfAbsent(location.getWorldName(), k -> new WorldBlocks());
+            int x = location.getBlockX(), y = location.getBlockY(), z = location.getBlockZ();
+            worldBlocks.byPosition.put(packPosition(x, y, z), block);
+            long sectionKey = packSection(x >> 4, y >> 4, z >> 4);
+            SectionBlocks section = worldBlocks.bySection.get(sectionKey);
+            if (section == null) {
+                section = new SectionBlocks();
+                worldBlocks.bySection.put(sectionKey, section);
+            }
+            section.add(packSectionRelative(x, y, z), block);
             return block;
         }
 
@@ -48,36 +174,335 @@ public class FakeBlock {
                         byChunk.remove(block.chunkCoord);
                     }
                 }
+                WorldBlocks worldBlocks = byWorld.get(block.location.getWorldName());
+                if (worldBlocks != null) {
+                    int x = block.location.getBlockX(), y = block.location.getBlockY(), z = block.location.getBlockZ();
+                    worldBlocks.byPosition.remove(packPosition(x, y, z));
+                    long sectionKey = packSection(x >> 4, y >> 4, z >> 4);
+                    SectionBlocks section = worldBlocks.bySection.get(sectionKey);
+                    if (section != null && section.remove(packSectionRelative(x, y, z))) {
+                        worldBlocks.bySection.remove(sectionKey);
+                    }
+                    if (worldBlocks.byPosition.isEmpty()) {
+                        byWorld.remove(block.location.getWorldName());
+                    }
+                }
+            }
+        }
+
+        public FakeBlock get(String worldName, long packedPosition) {
+            WorldBlocks worldBlocks = byWorld.get(worldName);
+            return worldBlocks == null ? null : worldBlocks.byPosition.get(packedPosition);
+        }
+
+        public SectionBlocks getSection(String worldName, long sectionKey) {
+            WorldBlocks worldBlocks = byWorld.get(worldName);
+            return worldBlocks == null ? null : worldBlocks.bySection.get(sectionKey);
+        }
+    }
+
+    /**
+     * A named set of fake blocks that is defined once and can be shown to any number of subscribed players.
+     * When a player is subscribed to multiple layers, higher priority layers take precedence over lower ones. The player's own fake blocks take precedence over all layers.
+     */
+    public static class FakeBlockLayer {
+
+        public FakeBlockLayer(String name) {
+            this.name = name;
+        }
+
+        public final String name;
+
+        public int priority = 0;
+
+        public final FakeBlockMap blocks = new FakeBlockMap();
+
+        public final Set<UUID> subscribers = new HashSet<>();
+
+        public boolean isUnused() {
+            return blocks.byLocation.isEmpty() && subscribers.isEmpty();
+        }
+
+        /**
+         * Queues a resend of every block in this layer to a single player (eg after they subscribe or unsubscribe).
+         */
+        public void resendAllTo(UUID id) {
+            Player player = Bukkit.getPlayer(id);
+            if (player == null) {
+                return;
+            }
+            String worldName = player.getWorld().getName();
+            for (FakeBlock block : blocks.byLocation.values()) {
+                if (block.location.getWorldName().equals(worldName)) {
+                    queueResend(player, block.location);
+                }
+            }
+        }
+
+        /**
+         * Queues a resend of every block in this layer to every subscribed player (eg after the layer's priority changes).
+         */
+        public void resendAllToSubscribers() {
+            for (UUID id : subscribers) {
+                resendAllTo(id);
             }
         }
     }
 
     public final static Map<UUID, FakeBlockMap> blocks = new HashMap<>();
 
+    public final static Map<String, FakeBlockLayer> layers = new HashMap<>();
+
+    /**
+     * The layers each player is subscribed to, sorted by priority (highest first).
+     */
+    public final static Map<UUID, List<FakeBlockLayer>> subscribedLayers = new HashMap<>();
+
+    public static Comparator<FakeBlockLayer> layerPriorityComparator = Comparator.comparingInt((FakeBlockLayer layer) -> layer.priority).reversed();
+
+    public static FakeBlockLayer getOrCreateLayer(String name) {
+        name = CoreUtilities.toLowerCase(name);
+        FakeBlockLayer layer = layers.get(name);
+        if (layer == null) {
+            layer = new FakeBlockLayer(name);
+            layers.put(name, layer);
+        }
+        return layer;
+    }
+
+    public static void removeLayerIfUnused(FakeBlockLayer layer) {
+        if (layer.isUnused()) {
+            layers.remove(layer.name);
+        }
+    }
+
+    public static void setLayerPriority(FakeBlockLayer layer, int priority) {
+        if (layer.priority == priority) {
+            return;
+        }
+        layer.priority = priority;
+        for (UUID id : layer.subscribers) {
+            List<FakeBlockLayer> playerLayers = subscribedLayers.get(id);
+            if (playerLayers != null) {
+                // Packet handlers iterate the current list off the main thread, so swap in a sorted copy rather than sorting it in place
+                List<FakeBlockLayer> sorted = new ArrayList<>(playerLayers);
+                sorted.sort(layerPriorityComparator);
+                subscribedLayers.put(id, sorted);
+            }
+        }
+        layer.resendAllToSubscribers();
+    }
+
+    /**
+     * Sets the exact list of layers a player is subscribed to, adding and removing subscriptions as needed.
+     */
+    public static void setSubscribedLayers(PlayerTag player, List<String> layerNames) {
+        NetworkInterceptHelper.enable();
+        UUID id = player.getUUID();
+        List<FakeBlockLayer> newLayers = new ArrayList<>(layerNames.size());
+        for (String name : layerNames) {
+            FakeBlockLayer layer = getOrCreateLayer(name);
+            if (!newLayers.contains(layer)) {
+                newLayers.add(layer);
+            }
+        }
+        List<FakeBlockLayer> oldLayers = subscribedLayers.remove(id);
+        if (oldLayers != null) {
+            for (FakeBlockLayer layer : oldLayers) {
+                if (!newLayers.contains(layer)) {
+                    layer.subscribers.remove(id);
+                    layer.resendAllTo(id);
+                    removeLayerIfUnused(layer);
+                }
+            }
+        }
+        if (newLayers.isEmpty()) {
+            return;
+        }
+        newLayers.sort(layerPriorityComparator);
+        subscribedLayers.put(id, newLayers);
+        for (FakeBlockLayer layer : newLayers) {
+            if (layer.subscribers.add(id)) {
+                layer.resendAllTo(id);
+            }
+        }
+    }
+
+    /**
+     * Removes all layer subscriptions for a player that is leaving (without resending anything, as there is nobody to send to).
+     */
+    public static void removeSubscriptions(UUID id) {
+        List<FakeBlockLayer> layers = subscribedLayers.remove(id);
+        if (layers == null) {
+            return;
+        }
+        for (FakeBlockLayer layer : layers) {
+            layer.subscribers.remove(id);
+            removeLayerIfUnused(layer);
+        }
+    }
+
+    public static boolean hasAnyFakeBlocks() {
+        return !blocks.isEmpty() || !subscribedLayers.isEmpty();
+    }
+
+    /**
+     * Returns the fake block a player sees at a location (either their own, or from their highest priority layer that has one), or null if none.
+     */
     public static FakeBlock getFakeBlockFor(UUID id, LocationTag location) {
         FakeBlockMap map = blocks.get(id);
-        if (map == null) {
-            return null;
+        if (map != null) {
+            FakeBlock block = map.byLocation.get(location);
+            if (block != null) {
+                return block;
+            }
+        }
+        List<FakeBlockLayer> playerLayers = subscribedLayers.get(id);
+        if (playerLayers != null) {
+            for (FakeBlockLayer layer : playerLayers) {
+                FakeBlock block = layer.blocks.byLocation.get(location);
+                if (block != null) {
+                    return block;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the fake block a player sees at a packed block position (see 'packPosition'), or null if none.
+     * Does not allocate, for use by the packet rewriters.
+     */
+    public static FakeBlock getFakeBlockFor(UUID id, String worldName, long packedPosition) {
+        FakeBlockMap map = blocks.get(id);
+        if (map != null) {
+            FakeBlock block = map.get(worldName, packedPosition);
+            if (block != null) {
+                return block;
+            }
+        }
+        List<FakeBlockLayer> playerLayers = subscribedLayers.get(id);
+        if (playerLayers != null) {
+            for (FakeBlockLayer layer : playerLayers) {
+                FakeBlock block = layer.blocks.get(worldName, packedPosition);
+                if (block != null) {
+                    return block;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether a player sees any fake blocks within a packed chunk section (see 'packSection').
+     */
+    public static boolean hasFakeBlocksInSection(UUID id, String worldName, long sectionKey) {
+        FakeBlockMap map = blocks.get(id);
+        if (map != null && map.getSection(worldName, sectionKey) != null) {
+            return true;
+        }
+        List<FakeBlockLayer> playerLayers = subscribedLayers.get(id);
+        if (playerLayers != null) {
+            for (FakeBlockLayer layer : playerLayers) {
+                if (layer.blocks.getSection(worldName, sectionKey) != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the fake block a player sees at a section-relative position (see 'packSectionRelative') within a packed chunk section, or null if none.
+     * Does not allocate, for use by the packet rewriters.
+     */
+    public static FakeBlock getFakeBlockInSection(UUID id, String worldName, long sectionKey, short relative) {
+        FakeBlockMap map = blocks.get(id);
+        if (map != null) {
+            SectionBlocks section = map.getSection(worldName, sectionKey);
+            FakeBlock block = section == null ? null : section.get(relative);
+            if (block != null) {
+                return block;
+            }
+        }
+        List<FakeBlockLayer> playerLayers = subscribedLayers.get(id);
+        if (playerLayers != null) {
+            for (FakeBlockLayer layer : playerLayers) {
+                SectionBlocks section = layer.blocks.getSection(worldName, sectionKey);
+                FakeBlock block = section == null ? null : section.get(relative);
+                if (block != null) {
+                    return block;
+                }
+            }
         }
-        return map.byLocation.get(location);
+        return null;
     }
 
+    public static boolean hasFakeBlocksInChunk(UUID id, ChunkCoordinate chunkCoord) {
+        FakeBlockMap map = blocks.get(id);
+        if (map != null && map.byChunk.containsKey(chunkCoord)) {
+            return true;
+        }
+        List<FakeBlockLayer> playerLayers = subscribedLayers.get(id);
+        if (playerLayers != null) {
+            for (FakeBlockLayer layer : playerLayers) {
+                if (layer.blocks.byChunk.containsKey(chunkCoord)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns all fake blocks a player sees within a chunk (their own, and from any subscribed layers), with only the highest precedence block for any given location.
+     */
     public static List<FakeBlock> getFakeBlocksFor(UUID id, ChunkCoordinate chunkCoord) {
         FakeBlockMap map = blocks.get(id);
-        if (map == null) {
-            return null;
+        List<FakeBlock> ownBlocks = map == null ? null : map.byChunk.get(chunkCoord);
+        List<FakeBlockLayer> playerLayers = subscribedLayers.get(id);
+        if (playerLayers == null) {
+            return ownBlocks;
         }
-        return map.byChunk.get(chunkCoord);
+        List<FakeBlock> result = null;
+        HashSet<LocationTag> seen = null;
+        for (FakeBlockLayer layer : playerLayers) {
+            List<FakeBlock> layerBlocks = layer.blocks.byChunk.get(chunkCoord);
+            if (layerBlocks == null) {
+                continue;
+            }
+            if (result == null) {
+                result = ownBlocks == null ? new ArrayList<>() : new ArrayList<>(ownBlocks);
+                seen = new HashSet<>(result.size() + layerBlocks.size());
+                for (FakeBlock block : result) {
+                    seen.add(block.location);
+                }
+            }
+            for (FakeBlock block : layerBlocks) {
+                if (seen.add(block.location)) {
+                    result.add(block);
+                }
+            }
+        }
+        return result == null ? ownBlocks : result;
     }
 
+    /**
+     * The player this fake block is shown to, or null if it is part of a layer.
+     */
     public final PlayerTag player;
+    /**
+     * The layer this fake block is part of, or null if it is shown to a single player.
+     */
+    public final FakeBlockLayer layer;
     public final LocationTag location;
     public final ChunkCoordinate chunkCoord;
     public MaterialTag material;
     public BukkitTask currentTask = null;
 
-    private FakeBlock(PlayerTag player, LocationTag location) {
+    private FakeBlock(PlayerTag player, FakeBlockLayer layer, LocationTag location) {
         this.player = player;
+        this.layer = layer;
         this.location = location;
         this.chunkCoord = new ChunkCoordinate(location);
     }
@@ -99,6 +524,19 @@ public class FakeBlock {
         }
     }
 
+    public static void showFakeBlockInLayer(FakeBlockLayer layer, LocationTag location, MaterialTag material, DurationTag duration, boolean sendNow) {
+        NetworkInterceptHelper.enable();
+        FakeBlock block = layer.blocks.getOrAdd(null, layer, location);
+        block.updateBlock(material, duration, sendNow);
+    }
+
+    public static void stopShowingInLayer(FakeBlockLayer layer, LocationTag location) {
+        FakeBlock block = layer.blocks.byLocation.get(location);
+        if (block != null) {
+            block.cancelBlock();
+        }
+    }
+
     public static void stopShowingTo(List<PlayerTag> players, final LocationTag location) {
         for (PlayerTag player : players) {
             FakeBlockMap playerBlocks = blocks.get(player.getPlayerEntity().getUniqueId());
@@ -111,8 +549,78 @@ public class FakeBlock {
         }
     }
 
+    /**
+     * Blocks that need to be resent to a single player, grouped by chunk section, collected over a tick and then sent as one section update packet per section.
+     * Resent blocks carry the real world state, and have any fake blocks applied by the fake block packet handlers on the way out, so the same path handles showing, changing, and hiding.
+     */
+    public static class PendingResend {
+
+        public String worldName;
+
+        public Long2ObjectOpenHashMap<ShortOpenHashSet> sections = new Long2ObjectOpenHashMap<>();
+    }
+
+    public static HashMap<UUID, PendingResend> pendingResends = new HashMap<>();
+
+    public static BukkitTask resendTask = null;
+
+    /**
+     * Queues a resend of the block at a location to a single player, to be sent at the end of the tick.
+     * Servers before 1.19 fall back to refreshing the whole chunk.
+     */
+    public static void queueResend(Player player, LocationTag location) {
+        if (!NMSHandler.getVersion().isAtLeast(NMSVersion.v1_19)) {
+            scheduleChunkRefresh(location.getWorld(), new ChunkCoordinate(location));
+            return;
+        }
+        String worldName = location.getWorldName();
+        // The player can't see blocks in other worlds, and a pending resend only holds one world's sections
+        if (!player.getWorld().getName().equals(worldName)) {
+            return;
+        }
+        PendingResend pending = pendingResends.get(player.getUniqueId());
+        if (pending == null || !pending.worldName.equals(worldName)) {
+            pending = new PendingResend();
+            pending.worldName = worldName;
+            pendingResends.put(player.getUniqueId(), pending);
+        }
+        int x = location.getBlockX(), y = location.getBlockY(), z = location.getBlockZ();
+        pending.sections.computeIfAbsent(packSection(x >> 4, y >> 4, z >> 4), k -> new ShortOpenHashSet()).add(packSectionRelative(x, y, z));
+        if (resendTask == null) {
+            resendTask = Bukkit.getScheduler().runTask(Denizen.getInstance(), FakeBlock::flushResends);
+        }
+    }
+
+    public static void flushResends() {
+        resendTask = null;
+        if (pendingResends.isEmpty()) {
+            return;
+        }
+        HashMap<UUID, PendingResend> toSend = pendingResends;
+        pendingResends = new HashMap<>();
+        for (Map.Entry<UUID, PendingResend> entry : toSend.entrySet()) {
+            Player player = Bukkit.getPlayer(entry.getKey());
+            PendingResend pending = entry.getValue();
+            if (player == null || !player.getWorld().getName().equals(pending.worldName)) {
+                continue;
+            }
+            World world = player.getWorld();
+            for (Long2ObjectMap.Entry<ShortOpenHashSet> section : pending.sections.long2ObjectEntrySet()) {
+                long key = section.getLongKey();
+                int sectionX = (int) (key >> 42), sectionY = (int) (key << 44 >> 44), sectionZ = (int) (key << 22 >> 42);
+                if (!world.isChunkLoaded(sectionX, sectionZ)) {
+                    continue;
+                }
+                NMSHandler.packetHelper.sendSectionBlockUpdates(player, sectionX, sectionY, sectionZ, section.getValue().toShortArray());
+            }
+        }
+    }
+
     public static HashMap<ChunkCoordinate, BukkitTask> scheduled = new HashMap<>();
 
+    /**
+     * Resends a whole chunk to every player that can see it. Only used on servers before 1.19, see 'queueResend'.
+     */
     public static void scheduleChunkRefresh(World world, ChunkCoordinate coord) {
         BukkitTask task = scheduled.get(coord);
         if (task != null && !task.isCancelled()) {
@@ -130,29 +638,67 @@ public class FakeBlock {
             currentTask = null;
         }
         material = null;
+        if (layer != null) {
+            layer.blocks.remove(this);
+            removeLayerIfUnused(layer);
+            if (location.getWorld().isChunkLoaded(chunkCoord.x, chunkCoord.z)) {
+                for (Player subscriber : getOnlineSubscribers()) {
+                    queueResend(subscriber, location);
+                    if (!NMSHandler.getVersion().isAtLeast(NMSVersion.v1_18)) {
+                        subscriber.sendBlockChange(location, location.getBlock().getBlockData());
+                    }
+                }
+            }
+            return;
+        }
         FakeBlockMap mapping = blocks.get(player.getUUID());
         mapping.remove(this);
         if (mapping.byChunk.isEmpty()) {
             blocks.remove(player.getUUID());
         }
         if (player.isOnline()) {
-            scheduleChunkRefresh(location.getWorld(), chunkCoord);
+            queueResend(player.getPlayerEntity(), location);
             if (!NMSHandler.getVersion().isAtLeast(NMSVersion.v1_18)) {
                 player.getPlayerEntity().sendBlockChange(location, location.getBlock().getBlockData());
             }
         }
     }
 
+    /**
+     * Returns the online players subscribed to this block's layer that are in the same world as the block.
+     */
+    public List<Player> getOnlineSubscribers() {
+        List<Player> result = new ArrayList<>(layer.subscribers.size());
+        for (UUID id : layer.subscribers) {
+            Player subscriber = Bukkit.getPlayer(id);
+            if (subscriber != null && subscriber.getWorld() == location.getWorld()) {
+                result.add(subscriber);
+            }
+        }
+        return result;
+    }
+
     private void updateBlock(MaterialTag material, DurationTag duration, boolean sendNow) {
         if (currentTask != null) {
             currentTask.cancel();
         }
         this.material = material;
-        if (player.hasChunkLoaded(location.getChunk())) {
+        if (layer != null) {
+            if (location.getWorld().isChunkLoaded(chunkCoord.x, chunkCoord.z)) {
+                boolean sendDirectly = sendNow || !NMSHandler.getVersion().isAtLeast(NMSVersion.v1_18);
+                for (Player subscriber : getOnlineSubscribers()) {
+                    if (sendDirectly) {
+                        subscriber.sendBlockChange(location, material.getModernData());
+                    }
+                    queueResend(subscriber, location);
+                }
+            }
+        }
+        else if (player.hasChunkLoaded(location.getChunk())) {
             if (sendNow || !NMSHandler.getVersion().isAtLeast(NMSVersion.v1_18)) {
                 player.getPlayerEntity().sendBlockChange(location, material.getModernData());
             }
-            scheduleChunkRefresh(location.getWorld(), chunkCoord);
+            queueResend(player.getPlayerEntity(), location);
         }
         if (duration != null && duration.getTicks() > 0) {
             currentTask = new BukkitRunnable() {
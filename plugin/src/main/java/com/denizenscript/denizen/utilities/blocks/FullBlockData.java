@@ -594,6 +594,13 @@ public class FullBlockData {
 
     public void set(Block block, boolean physics) {
         block.setBlockData(data, physics);
+        applyTileEntityAndFlags(block);
+    }
+
+    /**
+     * Applies only the tile entity data and flags of this block to the given block, without changing its block data.
+     */
+    public void applyTileEntityAndFlags(Block block) {
         if (tileEntityData != null) {
             NMSHandler.blockHelper.setNbtData(block, tileEntityData);
         }
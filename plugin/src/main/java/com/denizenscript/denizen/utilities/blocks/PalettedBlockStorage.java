@@ -0,0 +1,183 @@
+package com.denizenscript.denizen.utilities.blocks;
+
+import com.denizenscript.denizen.nms.util.jnbt.CompoundTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.IntUnaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * Compact storage for a fixed-size array of blocks, in the same style as Minecraft's own chunk sections:
+ * a palette of distinct BlockData values, plus one packed palette index per block.
+ * Tile entity data and flags are rare, so are kept in sparse side tables keyed by block index.
+ * Palette index 0 is always structure void (ie "no block").
+ */
+public class PalettedBlockStorage {
+
+    public static final int MIN_BITS = 4;
+
+    public final int size;
+
+    public final ArrayList<BlockData> palette;
+
+    public final HashMap<BlockData, Integer> paletteLookup;
+
+    public int bitsPerEntry;
+
+    public int valuesPerLong;
+
+    public long mask;
+
+    public long[] data;
+
+    public Int2ObjectOpenHashMap<CompoundTag> tileEntities = new Int2ObjectOpenHashMap<>();
+
+    public Int2ObjectOpenHashMap<MapTag> flags = new Int2ObjectOpenHashMap<>();
+
+    public PalettedBlockStorage(int size) {
+        this.size = size;
+        palette = new ArrayList<>();
+        paletteLookup = new HashMap<>();
+        palette.add(CuboidBlockSet.STRUCTURE_VOID.data);
+        paletteLookup.put(CuboidBlockSet.STRUCTURE_VOID.data, 0);
+        setBits(MIN_BITS);
+        data = new long[longsNeeded(size)];
+    }
+
+    private PalettedBlockStorage(PalettedBlockStorage copyFrom, boolean copyData) {
+        size = copyFrom.size;
+        palette = new ArrayList<>(copyFrom.palette);
+        paletteLookup = new HashMap<>(copyFrom.paletteLookup);
+        setBits(copyFrom.bitsPerEntry);
+        data = copyData ? copyFrom.data.clone() : new long[copyFrom.data.length];
+    }
+
+    private void setBits(int bits) {
+        bitsPerEntry = bits;
+        valuesPerLong = 64 / bits;
+        mask = (1L << bits) - 1;
+    }
+
+    private int longsNeeded(int count) {
+        return (count + valuesPerLong - 1) / valuesPerLong;
+    }
+
+    public int getId(int index) {
+        long value = data[index / valuesPerLong];
+        return (int) ((value >>> ((index % valuesPerLong) * bitsPerEntry)) & mask);
+    }
+
+    public void setId(int index, int id) {
+        int longIndex = index / valuesPerLong;
+        int shift = (index % valuesPerLong) * bitsPerEntry;
+        data[longIndex] = (data[longIndex] & ~(mask << shift)) | ((long) id << shift);
+    }
+
+    /**
+     * Returns the palette index for the given block data, adding it to the palette (and widening the packed data if needed) if it isn't present yet.
+     */
+    public int idFor(BlockData blockData) {
+        Integer id = paletteLookup.get(blockData);
+        if (id != null) {
+            return id;
+        }
+        int newId = palette.size();
+        palette.add(blockData);
+        paletteLookup.put(blockData, newId);
+        if (newId > mask) {
+            resize(bitsPerEntry + 1);
+        }
+        return newId;
+    }
+
+    private void resize(int newBits) {
+        long[] oldData = data;
+        int oldBits = bitsPerEntry, oldPerLong = valuesPerLong;
+        long oldMask = mask;
+        setBits(newBits);
+        data = new long[longsNeeded(size)];
+        for (int i = 0; i < size; i++) {
+            int id = (int) ((oldData[i / oldPerLong] >>> ((i % oldPerLong) * oldBits)) & oldMask);
+            if (id != 0) {
+                setId(i, id);
+            }
+        }
+    }
+
+    public BlockData getData(int index) {
+        return palette.get(getId(index));
+    }
+
+    public FullBlockData get(int index) {
+        int id = getId(index);
+        if (id == 0) {
+            return CuboidBlockSet.STRUCTURE_VOID;
+        }
+        return new FullBlockData(palette.get(id), tileEntities.get(index), flags.get(index));
+    }
+
+    public void set(int index, FullBlockData block) {
+        setId(index, block == CuboidBlockSet.STRUCTURE_VOID ? 0 : idFor(block.data));
+        setTileEntity(index, block.tileEntityData);
+        setFlags(index, block.flags);
+    }
+
+    public void setTileEntity(int index, CompoundTag tileEntity) {
+        if (tileEntity == null) {
+            tileEntities.remove(index);
+        }
+        else {
+            tileEntities.put(index, tileEntity);
+        }
+    }
+
+    public void setFlags(int index, MapTag flagMap) {
+        if (flagMap == null) {
+            flags.remove(index);
+        }
+        else {
+            flags.put(index, flagMap);
+        }
+    }
+
+    public PalettedBlockStorage duplicate() {
+        PalettedBlockStorage result = new PalettedBlockStorage(this, true);
+        result.tileEntities = new Int2ObjectOpenHashMap<>(tileEntities);
+        result.flags = new Int2ObjectOpenHashMap<>(flags);
+        return result;
+    }
+
+    /**
+     * Returns a new storage with every block moved to a new index, and every palette entry transformed once (eg for rotating or flipping).
+     * 'newIndexFor' maps each old block index to its new index. The data transform runs once per palette entry, not once per block.
+     */
+    public PalettedBlockStorage transform(IntUnaryOperator newIndexFor, UnaryOperator<BlockData> dataTransform) {
+        PalettedBlockStorage result = new PalettedBlockStorage(this, false);
+        int[] remap = new int[palette.size()];
+        for (int id = 1; id < remap.length; id++) {
+            BlockData original = palette.get(id);
+            BlockData transformed = dataTransform.apply(original);
+            remap[id] = transformed.equals(original) ? id : result.idFor(transformed);
+        }
+        for (int i = 0; i < size; i++) {
+            int id = getId(i);
+            if (id != 0) {
+                result.setId(newIndexFor.applyAsInt(i), remap[id]);
+            }
+        }
+        result.tileEntities = new Int2ObjectOpenHashMap<>(tileEntities.size());
+        for (Int2ObjectMap.Entry<CompoundTag> entry : tileEntities.int2ObjectEntrySet()) {
+            result.tileEntities.put(newIndexFor.applyAsInt(entry.getIntKey()), entry.getValue());
+        }
+        result.flags = new Int2ObjectOpenHashMap<>(flags.size());
+        for (Int2ObjectMap.Entry<MapTag> entry : flags.int2ObjectEntrySet()) {
+            result.flags.put(newIndexFor.applyAsInt(entry.getIntKey()), entry.getValue());
+        }
+        return result;
+    }
+}
@@ -1,6 +1,5 @@
 package com.denizenscript.denizen.utilities.blocks;
 
-import com.denizenscript.denizen.Denizen;
 import com.denizenscript.denizen.nms.NMSHandler;
 import com.denizenscript.denizen.nms.interfaces.BlockHelper;
 import com.denizenscript.denizen.nms.util.jnbt.*;
@@ -9,14 +8,11 @@ import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.objects.core.ListTag;
 import com.denizenscript.denizencore.objects.core.MapTag;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
-import org.bukkit.Bukkit;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import org.bukkit.Material;
 import org.bukkit.block.data.BlockData;
-import org.bukkit.util.BlockVector;
 
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -50,131 +46,212 @@ public class SpongeSchematicHelper {
         return data;
     }
 
-    public static class BoolHolder {
-        public boolean bool;
+    /**
+     * Fills the block data cache with the default state of every block material, so that most schematic palette entries resolve without any parsing.
+     */
+    public static void preloadBlockDataCache() {
+        for (Material material : Material.values()) {
+            if (material.isBlock() && !material.isLegacy()) {
+                BlockData data = material.createBlockData();
+                blockDataCache.putIfAbsent(data.getAsString(), data);
+            }
+        }
+    }
+
+    /**
+     * Returns the block data for a palette entry, parsing it only if it isn't cached yet.
+     * Safe to call from any thread, as block data parsing only reads registries (and the enum caches, which FullBlockData.init pre-fills).
+     */
+    public static BlockData getCachedBlockData(String key) {
+        return blockDataCache.computeIfAbsent(key, SpongeSchematicHelper::unstableParseMaterial);
+    }
+
+    public static String readNbtString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readShort() & 0xFFFF];
+        input.readFully(bytes);
+        return new String(bytes, NBTConstants.CHARSET);
+    }
+
+    public static void writeNbtString(DataOutputStream output, String text) throws IOException {
+        byte[] bytes = text.getBytes(NBTConstants.CHARSET);
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+
+    private static <T extends Tag> T castTag(String key, Tag tag, Class<T> expected) throws Exception {
+        if (!expected.isInstance(tag)) {
+            throw new Exception(key + " tag is not of tag type " + expected.getName());
+        }
+        return expected.cast(tag);
+    }
+
+    /**
+     * Decodes a varint-encoded Sponge 'BlockData' array straight from the stream into the block set's storage.
+     * Sponge order is X, then Z, then Y (X changes fastest), which differs from the CuboidBlockSet index order.
+     */
+    private static void readBlockData(DataInputStream input, int byteCount, CuboidBlockSet cbs, BlockData[] palette) throws Exception {
+        PalettedBlockStorage storage = cbs.blocks;
+        int[] storageIds = new int[palette.length];
+        Arrays.fill(storageIds, -1);
+        int x = 0, y = 0, z = 0, index = 0;
+        int read = 0;
+        while (read < byteCount) {
+            int value = 0;
+            int varintLength = 0;
+            int b;
+            do {
+                b = input.readUnsignedByte();
+                read++;
+                value |= (b & 127) << (varintLength++ * 7);
+                if (varintLength > 5) {
+                    throw new Exception("Schem file blocks tag data corrupted");
+                }
+            } while ((b & 128) == 128);
+            if (index++ >= storage.size) {
+                throw new Exception("Schem file blocks tag has more blocks than its size");
+            }
+            int storageId = 0;
+            if (value < palette.length && palette[value] != null) {
+                storageId = storageIds[value];
+                if (storageId == -1) {
+                    storageId = storage.idFor(palette[value]);
+                    storageIds[value] = storageId;
+                }
+            }
+            storage.setId(z + y * cbs.z_height + x * cbs.z_height * cbs.y_length, storageId);
+            if (++x == cbs.x_width) {
+                x = 0;
+                if (++z == cbs.z_height) {
+                    z = 0;
+                    y++;
+                }
+            }
+        }
     }
 
     // Referenced from WorldEdit source and Sponge schematic format v2 documentation
     // Some values are custom and specific to Denizen
+    // The file is read as a stream rather than as a full tag tree, so the (potentially huge) block data array is decoded straight into the block set.
+    // If the block data comes before the size or palette in the file, it has to be buffered until those are known.
     public static CuboidBlockSet fromSpongeStream(InputStream is) {
-        boolean isPrimary = Bukkit.isPrimaryThread();
         CuboidBlockSet cbs = new CuboidBlockSet();
-        try {
-            NBTInputStream nbtStream = new NBTInputStream(new GZIPInputStream(is));
-            NamedTag rootTag = nbtStream.readNamedTag();
-            nbtStream.close();
-            if (!rootTag.getName().equals("Schematic")) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(is), 65536))) {
+            NBTInputStream nbtStream = new NBTInputStream(input);
+            if ((input.readByte() & 0xFF) != NBTConstants.TYPE_COMPOUND || !readNbtString(input).equals("Schematic")) {
                 throw new Exception("Tag 'Schematic' does not exist or is not first!");
             }
-            CompoundTag schematicTag = (CompoundTag) rootTag.getTag();
-            Map<String, Tag> schematic = schematicTag.getValue();
-            if (schematic.containsKey("DenizenEntities")) {
-                String entities = stringifyTag(schematic.get("DenizenEntities"));
-                cbs.entities = ListTag.valueOf(entities, CoreUtilities.errorButNoDebugContext);
-            }
-            short width = getChildTag(schematic, "Width", ShortTag.class).getValue();
-            short length = getChildTag(schematic, "Length", ShortTag.class).getValue();
-            short height = getChildTag(schematic, "Height", ShortTag.class).getValue();
-            int originX = 0;
-            int originY = 0;
-            int originZ = 0;
-            if (schematic.containsKey("DenizenOffset")) {
-                // Note: "Offset" contains complete nonsense from WE, so just don't touch it.
-                int[] offsetArr = getChildTag(schematic, "DenizenOffset", IntArrayTag.class).getValue();
-                originX = offsetArr[0];
-                originY = offsetArr[1];
-                originZ = offsetArr[2];
-            }
-            cbs.x_width = width;
-            cbs.z_height = length;
-            cbs.y_length = height;
-            cbs.center_x = originX;
-            cbs.center_y = originY;
-            cbs.center_z = originZ;
-            cbs.blocks = new FullBlockData[width * length * height];
-            Map<String, Tag> paletteMap = getChildTag(schematic, "Palette", CompoundTag.class).getValue();
-            HashMap<Integer, BlockData> palette = new HashMap<>(256);
-            List<Map.Entry<Integer, String>> latePairs = isPrimary ? null : new ArrayList<>();
-            for (String key : paletteMap.keySet()) {
-                int id = getChildTag(paletteMap, key, IntTag.class).getValue();
-                if (isPrimary) {
-                    palette.put(id, blockDataCache.computeIfAbsent(key, SpongeSchematicHelper::unstableParseMaterial));
-                }
-                else {
-                    BlockData entry = blockDataCache.get(key);
-                    if (entry != null) {
-                        palette.put(id, entry);
-                    }
-                    else {
-                        latePairs.add(new AbstractMap.SimpleEntry<>(id, key));
-                    }
+            int width = -1, length = -1, height = -1;
+            BlockData[] palette = null;
+            byte[] bufferedBlocks = null;
+            boolean hasBlocks = false;
+            List<CompoundTag> tileEntities = new ArrayList<>();
+            Map<String, Tag> flags = null;
+            while (true) {
+                int type = input.readByte() & 0xFF;
+                if (type == NBTConstants.TYPE_END) {
+                    break;
                 }
-            }
-            if (!isPrimary && !latePairs.isEmpty()) {
-                BoolHolder bool = new BoolHolder();
-                Bukkit.getScheduler().runTask(Denizen.getInstance(), () -> {
-                    for (Map.Entry<Integer, String> pair : latePairs) {
-                        palette.put(pair.getKey(), blockDataCache.computeIfAbsent(pair.getValue(), SpongeSchematicHelper::unstableParseMaterial));
-                    }
-                    bool.bool = true;
-                });
-                for (int i = 0; i < 1000; i++) {
-                    Thread.sleep(50);
-                    if (bool.bool) {
+                String key = readNbtString(input);
+                switch (key) {
+                    case "Width":
+                        width = castTag(key, nbtStream.readTagPayload(type), ShortTag.class).getValue() & 0xFFFF;
+                        break;
+                    case "Length":
+                        length = castTag(key, nbtStream.readTagPayload(type), ShortTag.class).getValue() & 0xFFFF;
+                        break;
+                    case "Height":
+                        height = castTag(key, nbtStream.readTagPayload(type), ShortTag.class).getValue() & 0xFFFF;
+                        break;
+                    case "DenizenOffset":
+                        // Note: "Offset" contains complete nonsense from WE, so just don't touch it.
+                        int[] offsetArr = castTag(key, nbtStream.readTagPayload(type), IntArrayTag.class).getValue();
+                        cbs.center_x = offsetArr[0];
+                        cbs.center_y = offsetArr[1];
+                        cbs.center_z = offsetArr[2];
+                        break;
+                    case "DenizenEntities":
+                        cbs.entities = ListTag.valueOf(stringifyTag(nbtStream.readTagPayload(type)), CoreUtilities.errorButNoDebugContext);
+                        break;
+                    case "Palette":
+                        Map<String, Tag> paletteMap = castTag(key, nbtStream.readTagPayload(type), CompoundTag.class).getValue();
+                        int maxId = 0;
+                        for (Tag idTag : paletteMap.values()) {
+                            maxId = Math.max(maxId, castTag(key, idTag, IntTag.class).getValue());
+                        }
+                        palette = new BlockData[maxId + 1];
+                        for (Map.Entry<String, Tag> entry : paletteMap.entrySet()) {
+                            int id = ((IntTag) entry.getValue()).getValue();
+                            if (id >= 0) {
+                                palette[id] = getCachedBlockData(entry.getKey());
+                            }
+                        }
+                        break;
+                    case "BlockData":
+                        if (type != NBTConstants.TYPE_BYTE_ARRAY) {
+                            throw new Exception(key + " tag is not of tag type " + ByteArrayTag.class.getName());
+                        }
+                        int byteCount = input.readInt();
+                        if (width >= 0 && length >= 0 && height >= 0 && palette != null) {
+                            cbs.x_width = width;
+                            cbs.z_height = length;
+                            cbs.y_length = height;
+                            cbs.blocks = new PalettedBlockStorage(width * length * height);
+                            readBlockData(input, byteCount, cbs, palette);
+                        }
+                        else {
+                            bufferedBlocks = new byte[byteCount];
+                            input.readFully(bufferedBlocks);
+                        }
+                        hasBlocks = true;
+                        break;
+                    case "BlockEntities":
+                        for (Tag tag : castTag(key, nbtStream.readTagPayload(type), JNBTListTag.class).getValue()) {
+                            if (tag instanceof CompoundTag compound) {
+                                tileEntities.add(compound);
+                            }
+                        }
+                        break;
+                    case "DenizenFlags":
+                        flags = castTag(key, nbtStream.readTagPayload(type), CompoundTag.class).getValue();
+                        break;
+                    default:
+                        nbtStream.readTagPayload(type);
                         break;
-                    }
                 }
             }
-            Map<BlockVector, Map<String, Tag>> tileEntitiesMap = new HashMap<>();
-            if (schematic.containsKey("BlockEntities")) {
-                List<Tag> tileEntities = getChildTag(schematic, "BlockEntities", JNBTListTag.class).getValue();
-                for (Tag tag : tileEntities) {
-                    if (!(tag instanceof CompoundTag)) {
-                        continue;
-                    }
-                    CompoundTag t = (CompoundTag) tag;
-                    int[] pos = getChildTag(t.getValue(), "Pos", IntArrayTag.class).getValue();
-                    int x = pos[0];
-                    int y = pos[1];
-                    int z = pos[2];
-                    BlockVector vec = new BlockVector(x, y, z);
-                    tileEntitiesMap.put(vec, t.getValue());
-                }
+            if (width < 0) {
+                throw new Exception("Schem file is missing a 'Width' tag");
             }
-            byte[] blocks = getChildTag(schematic, "BlockData", ByteArrayTag.class).getValue();
-            int i = 0;
-            int index = 0;
-            while (i < blocks.length) {
-                int value = 0;
-                int varintLength = 0;
-                while (true) {
-                    value |= (blocks[i] & 127) << (varintLength++ * 7);
-                    if (varintLength > 5) {
-                        throw new Exception("Schem file blocks tag data corrupted");
-                    }
-                    if ((blocks[i] & 128) != 128) {
-                        i++;
-                        break;
-                    }
-                    i++;
-                }
-                FullBlockData block = new FullBlockData(palette.get(value));
-                int y = index / (width * length);
-                int z = (index % (width * length)) / width;
-                int x = (index % (width * length)) % width;
-                int cbsIndex = z + y * cbs.z_height + x * cbs.z_height * cbs.y_length;
-                BlockVector pt = new BlockVector(x, y, z);
-                if (tileEntitiesMap.containsKey(pt)) {
-                    block.tileEntityData = NMSHandler.instance.createCompoundTag(tileEntitiesMap.get(pt));
+            if (length < 0) {
+                throw new Exception("Schem file is missing a 'Length' tag");
+            }
+            if (height < 0) {
+                throw new Exception("Schem file is missing a 'Height' tag");
+            }
+            if (palette == null) {
+                throw new Exception("Schem file is missing a 'Palette' tag");
+            }
+            if (!hasBlocks) {
+                throw new Exception("Schem file is missing a 'BlockData' tag");
+            }
+            if (bufferedBlocks != null) {
+                cbs.x_width = width;
+                cbs.z_height = length;
+                cbs.y_length = height;
+                cbs.blocks = new PalettedBlockStorage(width * length * height);
+                readBlockData(new DataInputStream(new ByteArrayInputStream(bufferedBlocks)), bufferedBlocks.length, cbs, palette);
+            }
+            for (CompoundTag tileEntity : tileEntities) {
+                int[] pos = castTag("Pos", tileEntity.getValue().get("Pos"), IntArrayTag.class).getValue();
+                int x = pos[0], y = pos[1], z = pos[2];
+                if (x >= 0 && y >= 0 && z >= 0 && x < width && y < height && z < length) {
+                    cbs.blocks.setTileEntity(z + y * cbs.z_height + x * cbs.z_height * cbs.y_length, tileEntity);
                 }
-                cbs.blocks[cbsIndex] = block;
-                index++;
             }
-            if (schematic.containsKey("DenizenFlags")) {
-                Map<String, Tag> flags = getChildTag(schematic, "DenizenFlags", CompoundTag.class).getValue();
+            if (flags != null) {
                 for (Map.Entry<String, Tag> flagData : flags.entrySet()) {
                     int flagIndex = Integer.parseInt(flagData.getKey());
-                    cbs.blocks[flagIndex].flags = MapTag.valueOf(stringifyTag(flagData.getValue()), CoreUtilities.noDebugContext);
+                    cbs.blocks.setFlags(flagIndex, MapTag.valueOf(stringifyTag(flagData.getValue()), CoreUtilities.noDebugContext));
                 }
             }
         }
@@ -184,77 +261,93 @@ public class SpongeSchematicHelper {
         return cbs;
     }
 
-    private static <T extends Tag> T getChildTag(Map<String, Tag> items, String key, Class<T> expected) throws Exception {
-        if (!items.containsKey(key)) {
-            throw new Exception("Schem file is missing a '" + key + "' tag");
+    public static int varIntLength(int value) {
+        int length = 1;
+        while ((value & -128) != 0) {
+            value >>>= 7;
+            length++;
         }
-        Tag tag = items.get(key);
-        if (!expected.isInstance(tag)) {
-            throw new Exception(key + " tag is not of tag type " + expected.getName());
-        }
-        return expected.cast(tag);
+        return length;
     }
 
+    // The block data array is written straight to the output stream, rather than built up in memory first.
+    // Its length has to be known up front, so the palette is built (and the encoded size counted) in a first pass over the block ids.
     public static void saveToSpongeStream(CuboidBlockSet blockSet, OutputStream os) {
         try {
-            HashMap<String, Tag> schematic = new HashMap<>();
-            schematic.put("Width", new ShortTag((short) (blockSet.x_width)));
-            schematic.put("Length", new ShortTag((short) (blockSet.z_height)));
-            schematic.put("Height", new ShortTag((short) (blockSet.y_length)));
-            schematic.put("DenizenOffset", new IntArrayTag(new int[] {blockSet.center_x, blockSet.center_y, blockSet.center_z}));
-            if (blockSet.entities != null) {
-                schematic.put("DenizenEntities", new ByteArrayTag(blockSet.entities.toString().getBytes(StandardCharsets.UTF_8)));
+            PalettedBlockStorage storage = blockSet.blocks;
+            int[] counts = new int[storage.palette.size()];
+            for (int i = 0; i < storage.size; i++) {
+                counts[storage.getId(i)]++;
             }
+            int[] fileIds = new int[counts.length];
             Map<String, Tag> palette = new HashMap<>();
-            ByteArrayOutputStream blocksBuffer = new ByteArrayOutputStream((blockSet.x_width) * (blockSet.y_length) * (blockSet.z_height));
-            ArrayList<Tag> tileEntities = new ArrayList<>();
-            int paletteMax = 0;
+            long blockBytes = 0;
+            for (int id = 0; id < counts.length; id++) {
+                if (counts[id] == 0) {
+                    continue;
+                }
+                String dataStr = storage.palette.get(id).getAsString();
+                Tag blockIdTag = palette.get(dataStr);
+                if (blockIdTag == null) {
+                    blockIdTag = new IntTag(palette.size());
+                    palette.put(dataStr, blockIdTag);
+                }
+                fileIds[id] = ((IntTag) blockIdTag).getValue();
+                blockBytes += (long) counts[id] * varIntLength(fileIds[id]);
+            }
+            if (blockBytes > Integer.MAX_VALUE) {
+                throw new Exception("Schematic is too large to save");
+            }
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(os), 65536));
+            NBTOutputStream stream = new NBTOutputStream(output);
+            output.writeByte(NBTConstants.TYPE_COMPOUND);
+            writeNbtString(output, "Schematic");
+            stream.writeNamedTag("Width", new ShortTag((short) (blockSet.x_width)));
+            stream.writeNamedTag("Length", new ShortTag((short) (blockSet.z_height)));
+            stream.writeNamedTag("Height", new ShortTag((short) (blockSet.y_length)));
+            stream.writeNamedTag("DenizenOffset", new IntArrayTag(new int[] {blockSet.center_x, blockSet.center_y, blockSet.center_z}));
+            if (blockSet.entities != null) {
+                stream.writeNamedTag("DenizenEntities", new ByteArrayTag(blockSet.entities.toString().getBytes(StandardCharsets.UTF_8)));
+            }
+            stream.writeNamedTag("PaletteMax", new IntTag(palette.size()));
+            stream.writeNamedTag("Palette", NMSHandler.instance.createCompoundTag(palette));
+            output.writeByte(NBTConstants.TYPE_BYTE_ARRAY);
+            writeNbtString(output, "BlockData");
+            output.writeInt((int) blockBytes);
             for (int y = 0; y < blockSet.y_length; y++) {
                 for (int z = 0; z < blockSet.z_height; z++) {
                     for (int x = 0; x < blockSet.x_width; x++) {
-                        int cbsIndex = z + y * blockSet.z_height + x * blockSet.z_height * blockSet.y_length;
-                        FullBlockData bd = blockSet.blocks[cbsIndex];
-                        String dataStr = bd.data.getAsString();
-                        Tag blockIdTag = palette.get(dataStr);
-                        if (blockIdTag == null) {
-                            blockIdTag = new IntTag(paletteMax++);
-                            palette.put(dataStr, blockIdTag);
-                        }
-                        int blockId = ((IntTag) blockIdTag).getValue();
+                        int blockId = fileIds[storage.getId(z + y * blockSet.z_height + x * blockSet.z_height * blockSet.y_length)];
                         while ((blockId & -128) != 0) {
-                            blocksBuffer.write(blockId & 127 | 128);
+                            output.write(blockId & 127 | 128);
                             blockId >>>= 7;
                         }
-                        blocksBuffer.write(blockId);
-                        CompoundTag rawTag = bd.tileEntityData;
-                        if (rawTag != null) {
-                            HashMap<String, Tag> values = new HashMap<>(rawTag.getValue());
-                            values.put("Pos", new IntArrayTag(new int[] { x, y, z }));
-                            CompoundTag tileEntityTag = NMSHandler.instance.createCompoundTag(values);
-                            tileEntities.add(tileEntityTag);
-                        }
+                        output.write(blockId);
                     }
                 }
             }
-            schematic.put("PaletteMax", new IntTag(paletteMax));
-            schematic.put("Palette", NMSHandler.instance.createCompoundTag(palette));
-            schematic.put("BlockData", new ByteArrayTag(blocksBuffer.toByteArray()));
-            schematic.put("BlockEntities", new JNBTListTag(CompoundTag.class, tileEntities));
+            ArrayList<Tag> tileEntities = new ArrayList<>(storage.tileEntities.size());
+            for (Int2ObjectMap.Entry<CompoundTag> entry : storage.tileEntities.int2ObjectEntrySet()) {
+                int cbsIndex = entry.getIntKey();
+                int x = cbsIndex / (blockSet.z_height * blockSet.y_length);
+                int y = (cbsIndex / blockSet.z_height) % blockSet.y_length;
+                int z = cbsIndex % blockSet.z_height;
+                HashMap<String, Tag> values = new HashMap<>(entry.getValue().getValue());
+                values.put("Pos", new IntArrayTag(new int[] { x, y, z }));
+                tileEntities.add(NMSHandler.instance.createCompoundTag(values));
+            }
+            stream.writeNamedTag("BlockEntities", new JNBTListTag(CompoundTag.class, tileEntities));
             if (blockSet.hasFlags) {
                 Map<String, Tag> flagMap = new HashMap<>();
-                for (int i = 0; i < blockSet.blocks.length; i++) {
-                    if (blockSet.blocks[i].flags != null) {
-                        flagMap.put(String.valueOf(i), new ByteArrayTag(blockSet.blocks[i].flags.toString().getBytes(StandardCharsets.UTF_8)));
-                    }
+                for (Int2ObjectMap.Entry<MapTag> flags : storage.flags.int2ObjectEntrySet()) {
+                    flagMap.put(String.valueOf(flags.getIntKey()), new ByteArrayTag(flags.getValue().toString().getBytes(StandardCharsets.UTF_8)));
                 }
                 if (!flagMap.isEmpty()) {
-                    schematic.put("DenizenFlags", NMSHandler.instance.createCompoundTag(flagMap));
+                    stream.writeNamedTag("DenizenFlags", NMSHandler.instance.createCompoundTag(flagMap));
                 }
             }
-            CompoundTag schematicTag = NMSHandler.instance.createCompoundTag(schematic);
-            NBTOutputStream stream = new NBTOutputStream(new GZIPOutputStream(os));
-            stream.writeNamedTag("Schematic", schematicTag);
-            os.flush();
+            output.writeByte(NBTConstants.TYPE_END);
+            output.flush();
             stream.close();
         }
         catch (Exception ex) {
@@ -5,15 +5,24 @@ import com.denizenscript.denizen.nms.NMSHandler;
 import com.denizenscript.denizen.objects.EntityTag;
 import com.denizenscript.denizen.utilities.packets.NetworkInterceptHelper;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
+import it.unimi.dsi.fastutil.ints.Int2BooleanOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import org.bukkit.Bukkit;
+import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDeathEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 
 public class HideEntitiesHelper {
 
@@ -27,6 +36,29 @@ public class HideEntitiesHelper {
 
         public HashSet<String> matchersHidden = new HashSet<>();
 
+        /**
+         * Cached results of 'matchersHidden' checks, by entity ID. Synchronized on itself, as packet handlers read it off the main thread.
+         */
+        public final Int2BooleanOpenHashMap matcherVerdicts = new Int2BooleanOpenHashMap();
+
+        public void addMatcher(String matcher) {
+            if (matchersHidden.add(matcher)) {
+                clearVerdicts();
+            }
+        }
+
+        public void removeMatcher(String matcher) {
+            if (matchersHidden.remove(matcher)) {
+                clearVerdicts();
+            }
+        }
+
+        public void clearVerdicts() {
+            synchronized (matcherVerdicts) {
+                matcherVerdicts.clear();
+            }
+        }
+
         public boolean shouldHideViaMatcher(Entity entity) {
             if (entity == null) {
                 return false;
@@ -35,18 +67,36 @@ public class HideEntitiesHelper {
                 if (overridinglyShow.contains(entity.getUniqueId())) {
                     return false;
                 }
-                EntityTag entityTag = new EntityTag(entity);
-                for (String matchable : matchersHidden) {
-                    if (entityTag.tryAdvancedMatcher(matchable, CoreUtilities.noDebugContext)) {
-                        if (entity instanceof Player) {
-                            Player thisPlayer = Bukkit.getPlayer(player);
-                            if (thisPlayer != null && thisPlayer.canSee((Player) entity)) {
-                                thisPlayer.hidePlayer(Denizen.getInstance(), (Player) entity);
-                            }
-                        }
-                        return true;
+                int id = entity.getEntityId();
+                boolean hide;
+                synchronized (matcherVerdicts) {
+                    if (matcherVerdicts.containsKey(id)) {
+                        verdictCacheHits.increment();
+                        hide = matcherVerdicts.get(id);
+                    }
+                    else {
+                        verdictCacheMisses.increment();
+                        hide = matchesAnyHidden(entity);
+                        matcherVerdicts.put(id, hide);
+                    }
+                }
+                if (hide && entity instanceof Player) {
+                    Player thisPlayer = Bukkit.getPlayer(player);
+                    if (thisPlayer != null && thisPlayer.canSee((Player) entity)) {
+                        thisPlayer.hidePlayer(Denizen.getInstance(), (Player) entity);
                     }
                 }
+                return hide;
+            }
+            return false;
+        }
+
+        public boolean matchesAnyHidden(Entity entity) {
+            EntityTag entityTag = new EntityTag(entity);
+            for (String matchable : matchersHidden) {
+                if (entityTag.tryAdvancedMatcher(matchable, CoreUtilities.noDebugContext)) {
+                    return true;
+                }
             }
             return false;
         }
@@ -72,6 +122,51 @@ public class HideEntitiesHelper {
 
     public static HashSet<UUID> defaultHidden = new HashSet<>();
 
+    public static final LongAdder verdictCacheHits = new LongAdder(), verdictCacheMisses = new LongAdder();
+
+    public static final int VERDICT_SWEEP_TICKS = 20 * 60;
+
+    /**
+     * Drops any cached matcher-hide results for an entity, for all players. Call when something a matcher might check changes (eg the entity's flags).
+     */
+    public static void invalidateEntity(int entityId) {
+        for (PlayerHideMap map : playerHides.values()) {
+            if (!map.matchersHidden.isEmpty()) {
+                synchronized (map.matcherVerdicts) {
+                    map.matcherVerdicts.remove(entityId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops cached matcher-hide results for entities that no longer exist, to catch removals that don't fire any event (eg item pickups, plugin removals).
+     */
+    public static void sweepVerdicts() {
+        IntOpenHashSet liveIds = null;
+        for (PlayerHideMap map : playerHides.values()) {
+            synchronized (map.matcherVerdicts) {
+                if (map.matcherVerdicts.isEmpty()) {
+                    continue;
+                }
+                if (liveIds == null) {
+                    liveIds = new IntOpenHashSet();
+                    for (World world : Bukkit.getWorlds()) {
+                        for (Entity entity : world.getEntities()) {
+                            liveIds.add(entity.getEntityId());
+                        }
+                    }
+                }
+                IntIterator iterator = map.matcherVerdicts.keySet().iterator();
+                while (iterator.hasNext()) {
+                    if (!liveIds.contains(iterator.nextInt())) {
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+    }
+
     public static boolean hasAnyHides() {
         return !playerHides.isEmpty() || !defaultHidden.isEmpty();
     }
@@ -158,6 +253,27 @@ public class HideEntitiesHelper {
 
     public static class EnforcePlayerHides implements Listener {
 
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onEntityDeath(EntityDeathEvent event) {
+            invalidateEntity(event.getEntity().getEntityId());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onEntitiesUnload(EntitiesUnloadEvent event) {
+            for (Entity entity : event.getEntities()) {
+                invalidateEntity(entity.getEntityId());
+            }
+        }
+
+        @EventHandler
+        public void onPlayerQuit(PlayerQuitEvent event) {
+            PlayerHideMap map = playerHides.get(event.getPlayer().getUniqueId());
+            if (map != null) {
+                map.clearVerdicts();
+            }
+            invalidateEntity(event.getPlayer().getEntityId());
+        }
+
         @EventHandler
         public void onPlayerJoin(PlayerJoinEvent event) {
             for (UUID id : defaultHidden) {
@@ -202,6 +318,7 @@ public class HideEntitiesHelper {
         if (EPH == null) {
             EPH = new EnforcePlayerHides();
             Bukkit.getPluginManager().registerEvents(EPH, Denizen.getInstance());
+            Bukkit.getScheduler().runTaskTimer(Denizen.getInstance(), HideEntitiesHelper::sweepVerdicts, VERDICT_SWEEP_TICKS, VERDICT_SWEEP_TICKS);
         }
     }
 }
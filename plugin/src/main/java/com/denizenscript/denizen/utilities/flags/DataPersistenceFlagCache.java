@@ -0,0 +1,144 @@
+package com.denizenscript.denizen.utilities.flags;
+
+import com.denizenscript.denizen.Denizen;
+import com.denizenscript.denizencore.objects.core.MapTag;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.entity.Entity;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.persistence.PersistentDataHolder;
+
+import java.util.HashMap;
+import java.util.UUID;
+
+/**
+ * Write-through cache of decoded flag root maps for PersistentDataContainer-backed flag trackers (entities and chunks).
+ * Avoids re-parsing the stored flag text on every read. Only used on the main thread.
+ * Entries are replaced by 'setRootMap', removed by key removal, and dropped entirely when the holder (entity or chunk) unloads.
+ */
+public class DataPersistenceFlagCache implements Listener {
+
+    public record ChunkKey(UUID world, int x, int z) {
+    }
+
+    /**
+     * Placeholder value for keys that are known to not exist in the holder.
+     */
+    public static final MapTag NOT_PRESENT = new MapTag();
+
+    public static boolean enabled = true;
+
+    public static long hits = 0, misses = 0, invalidations = 0;
+
+    public static HashMap<Object, HashMap<String, MapTag>> cache = new HashMap<>();
+
+    /**
+     * Returns the cache key for a holder, or null if the holder type is not cacheable.
+     */
+    public static Object getHolderKey(PersistentDataHolder holder) {
+        if (holder instanceof Entity entity) {
+            return entity.getUniqueId();
+        }
+        else if (holder instanceof Chunk chunk) {
+            return new ChunkKey(chunk.getWorld().getUID(), chunk.getX(), chunk.getZ());
+        }
+        return null;
+    }
+
+    public static boolean canUse() {
+        return enabled && Bukkit.isPrimaryThread();
+    }
+
+    /**
+     * Returns the cached map (or NOT_PRESENT), or null if there is no cached value.
+     */
+    public static MapTag get(Object holderKey, String key) {
+        HashMap<String, MapTag> holderCache = cache.get(holderKey);
+        MapTag result = holderCache == null ? null : holderCache.get(key);
+        if (result == null) {
+            misses++;
+        }
+        else {
+            hits++;
+        }
+        return result;
+    }
+
+    public static void put(Object holderKey, String key, MapTag map) {
+        cache.computeIfAbsent(holderKey, k -> new HashMap<>()).put(key, map == null ? NOT_PRESENT : map);
+    }
+
+    public static void invalidate(Object holderKey, String key) {
+        HashMap<String, MapTag> holderCache = cache.get(holderKey);
+        if (holderCache != null && holderCache.remove(key) != null) {
+            invalidations++;
+            if (holderCache.isEmpty()) {
+                cache.remove(holderKey);
+            }
+        }
+    }
+
+    /**
+     * Invalidates a single key for a holder. Safe to call from any thread.
+     */
+    public static void invalidate(PersistentDataHolder holder, String key) {
+        if (cache.isEmpty()) {
+            return;
+        }
+        Object holderKey = getHolderKey(holder);
+        if (holderKey == null) {
+            return;
+        }
+        if (Bukkit.isPrimaryThread()) {
+            invalidate(holderKey, key);
+        }
+        else {
+            Bukkit.getScheduler().runTask(Denizen.getInstance(), () -> invalidate(holderKey, key));
+        }
+    }
+
+    public static void invalidateHolder(Object holderKey) {
+        if (holderKey != null && cache.remove(holderKey) != null) {
+            invalidations++;
+        }
+    }
+
+    public static void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Drops cache entries for entities that no longer exist (eg were removed without dying or unloading).
+     */
+    public static void cleanStale() {
+        cache.keySet().removeIf(key -> key instanceof UUID id && Bukkit.getEntity(id) == null);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        invalidateHolder(getHolderKey(event.getChunk()));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesUnload(EntitiesUnloadEvent event) {
+        for (Entity entity : event.getEntities()) {
+            invalidateHolder(entity.getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityDeath(EntityDeathEvent event) {
+        invalidateHolder(event.getEntity().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        clear();
+    }
+}
@@ -35,21 +35,55 @@ public class DataPersistenceFlagTracker extends MapTagBasedFlagTracker {
         return allowedKeyText.trimToMatches(CoreUtilities.toLowerCase(input));
     }
 
+    private Object cacheKey;
+
+    /**
+     * Returns the key for this tracker's holder within the DataPersistenceFlagCache, or null if the cache can't be used right now.
+     */
+    public Object getCacheKey() {
+        if (!DataPersistenceFlagCache.canUse()) {
+            return null;
+        }
+        if (cacheKey == null) {
+            cacheKey = DataPersistenceFlagCache.getHolderKey(holder);
+        }
+        return cacheKey;
+    }
+
     @Override
     public MapTag getRootMap(String key) {
-        return (MapTag) DataPersistenceHelper.getDenizenKey(holder, keyPrefix + cleanKeyName(key));
+        String fullKey = keyPrefix + cleanKeyName(key);
+        Object cacheKey = getCacheKey();
+        if (cacheKey != null) {
+            MapTag cached = DataPersistenceFlagCache.get(cacheKey, fullKey);
+            if (cached != null) {
+                return cached == DataPersistenceFlagCache.NOT_PRESENT ? null : cached;
+            }
+        }
+        ObjectTag value = DataPersistenceHelper.getDenizenKey(holder, fullKey);
+        MapTag result = value instanceof MapTag map ? map : null;
+        if (cacheKey != null) {
+            DataPersistenceFlagCache.put(cacheKey, fullKey, result);
+        }
+        return result;
     }
 
     @Override
     public void setRootMap(String key, MapTag map) {
+        String fullKey = keyPrefix + cleanKeyName(key);
         if (map == null) {
-            DataPersistenceHelper.removeDenizenKey(holder, keyPrefix + cleanKeyName(key));
-            return;
+            DataPersistenceHelper.removeDenizenKey(holder, fullKey);
+        }
+        else {
+            if (map.containsKey(expirationString) || map.getObject(valueString) instanceof MapTag) {
+                holder.getPersistentDataContainer().set(expireNeededKey, PersistentDataType.STRING, "true");
+            }
+            DataPersistenceHelper.setDenizenKey(holder, fullKey, map);
         }
-        if (map.containsKey(expirationString) || map.getObject(valueString) instanceof MapTag) {
-            holder.getPersistentDataContainer().set(expireNeededKey, PersistentDataType.STRING, "true");
+        Object cacheKey = getCacheKey();
+        if (cacheKey != null) {
+            DataPersistenceFlagCache.put(cacheKey, fullKey, map);
         }
-        DataPersistenceHelper.setDenizenKey(holder, keyPrefix + cleanKeyName(key), map);
     }
 
     @Override
@@ -75,6 +109,7 @@ public class DataPersistenceFlagTracker extends MapTagBasedFlagTracker {
             }
             if (isExpired(((MapTag) map).getObject(expirationString))) {
                 holder.getPersistentDataContainer().remove(key);
+                DataPersistenceFlagCache.invalidate(holder, key.getKey());
                 containsAnyToCheck = true;
                 continue;
             }
@@ -82,6 +117,7 @@ public class DataPersistenceFlagTracker extends MapTagBasedFlagTracker {
             if (subValue instanceof MapTag) {
                 if (doClean((MapTag) subValue)) {
                     holder.getPersistentDataContainer().set(key, DataPersistenceHelper.PERSISTER_TYPE, map);
+                    DataPersistenceFlagCache.invalidate(holder, key.getKey());
                 }
                 containsAnyToCheck = true;
             }
@@ -1,16 +1,116 @@
 package com.denizenscript.denizen.utilities.flags;
 
+import com.denizenscript.denizen.Denizen;
 import com.denizenscript.denizen.objects.LocationTag;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.NamespacedKey;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 import org.bukkit.persistence.PersistentDataContainer;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.function.Consumer;
 
-public class LocationFlagSearchHelper {
+/**
+ * Helper for finding flagged block locations within a chunk.
+ * Maintains an in-memory per-chunk index of flag name to packed block positions, built lazily the first time a loaded chunk is searched,
+ * kept current by the LocationTag flag write path (see LocationFlagTracker), and dropped when the chunk unloads.
+ * The index may contain stale positions (eg after an expired flag is cleaned), so every hit is still confirmed against the real flag data.
+ */
+public class LocationFlagSearchHelper implements Listener {
+
+    public static final String KEY_PREFIX = "flag_tracker_";
+
+    public static HashMap<DataPersistenceFlagCache.ChunkKey, HashMap<String, LongOpenHashSet>> chunkIndices = new HashMap<>();
+
+    public static long packPosition(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    public static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    public static int unpackY(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    public static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    public static DataPersistenceFlagCache.ChunkKey getKey(Chunk chunk) {
+        return new DataPersistenceFlagCache.ChunkKey(chunk.getWorld().getUID(), chunk.getX(), chunk.getZ());
+    }
+
+    /**
+     * Builds the index for a chunk by reading every location flag key in its data container once.
+     */
+    public static HashMap<String, LongOpenHashSet> buildIndex(Chunk chunk) {
+        HashMap<String, LongOpenHashSet> index = new HashMap<>();
+        for (NamespacedKey key : chunk.getPersistentDataContainer().getKeys()) {
+            if (key.getNamespace().equals("denizen") && key.getKey().startsWith(KEY_PREFIX)) {
+                List<String> split = CoreUtilities.split(key.getKey(), '_', 6);
+                if (split.size() == 6) {
+                    try {
+                        long packed = packPosition(Integer.parseInt(split.get(2)), Integer.parseInt(split.get(3)), Integer.parseInt(split.get(4)));
+                        index.computeIfAbsent(split.get(5), k -> new LongOpenHashSet()).add(packed);
+                    }
+                    catch (NumberFormatException ex) {
+                        // Ignore malformed keys, same as a direct scan would.
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    public static HashMap<String, LongOpenHashSet> getIndex(Chunk chunk) {
+        DataPersistenceFlagCache.ChunkKey key = getKey(chunk);
+        HashMap<String, LongOpenHashSet> index = chunkIndices.get(key);
+        if (index == null) {
+            index = buildIndex(chunk);
+            chunkIndices.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * Call when a location flag is set or removed, to keep the chunk's index current (if one is built).
+     */
+    public static void onFlagChanged(Chunk chunk, int x, int y, int z, String flagName, boolean present) {
+        if (!Bukkit.isPrimaryThread()) {
+            DataPersistenceFlagCache.ChunkKey key = getKey(chunk);
+            Bukkit.getScheduler().runTask(Denizen.getInstance(), () -> chunkIndices.remove(key));
+            return;
+        }
+        HashMap<String, LongOpenHashSet> index = chunkIndices.get(getKey(chunk));
+        if (index == null) {
+            return;
+        }
+        long packed = packPosition(x, y, z);
+        if (present) {
+            index.computeIfAbsent(flagName, k -> new LongOpenHashSet()).add(packed);
+        }
+        else {
+            LongOpenHashSet positions = index.get(flagName);
+            if (positions != null) {
+                positions.remove(packed);
+                if (positions.isEmpty()) {
+                    index.remove(flagName);
+                }
+            }
+        }
+    }
 
     public static void getFlaggedLocations(Chunk chunk, String flagName, Consumer<Location> handleLocation) {
         int subKeyIndex = flagName.indexOf('.');
@@ -18,10 +118,35 @@ public class LocationFlagSearchHelper {
         if (subKeyIndex != -1) {
             flagName = flagName.substring(0, subKeyIndex);
         }
+        if (!Bukkit.isPrimaryThread()) {
+            scanFlaggedLocations(chunk, flagName, fullPath, handleLocation);
+            return;
+        }
+        LongOpenHashSet positions = getIndex(chunk).get(flagName);
+        if (positions == null || positions.isEmpty()) {
+            return;
+        }
+        Location ref = new Location(chunk.getWorld(), 0, 0, 0);
+        // Copy first, as the handler may modify flags in this chunk
+        long[] packedPositions = positions.toLongArray();
+        for (long packed : packedPositions) {
+            ref.setX(unpackX(packed));
+            ref.setY(unpackY(packed));
+            ref.setZ(unpackZ(packed));
+            if (new LocationTag(ref).getFlagTracker().hasFlag(fullPath)) {
+                handleLocation.accept(ref);
+            }
+        }
+    }
+
+    /**
+     * Fallback direct scan of the chunk's data container, used when the index can't be safely used (ie off the main thread).
+     */
+    public static void scanFlaggedLocations(Chunk chunk, String flagName, String fullPath, Consumer<Location> handleLocation) {
         PersistentDataContainer container = chunk.getPersistentDataContainer();
         Location ref = new Location(chunk.getWorld(), 0, 0, 0);
         for (NamespacedKey key : container.getKeys()) {
-            if (key.getNamespace().equals("denizen") && key.getKey().startsWith("flag_tracker_") && key.getKey().endsWith(flagName)) {
+            if (key.getNamespace().equals("denizen") && key.getKey().startsWith(KEY_PREFIX) && key.getKey().endsWith(flagName)) {
                 List<String> split = CoreUtilities.split(key.getKey(), '_', 6);
                 if (split.size() == 6 && split.get(5).equals(flagName)) {
                     ref.setX(Integer.parseInt(split.get(2)));
@@ -34,4 +159,16 @@ public class LocationFlagSearchHelper {
             }
         }
     }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        if (!chunkIndices.isEmpty()) {
+            chunkIndices.remove(getKey(event.getChunk()));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        chunkIndices.keySet().removeIf(key -> key.world().equals(event.getWorld().getUID()));
+    }
 }
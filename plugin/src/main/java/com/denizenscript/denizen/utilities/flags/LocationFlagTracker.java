@@ -0,0 +1,29 @@
+package com.denizenscript.denizen.utilities.flags;
+
+import com.denizenscript.denizencore.objects.core.MapTag;
+import org.bukkit.Chunk;
+
+/**
+ * Flag tracker for a single block location, stored within the chunk's data container.
+ * Keeps the per-chunk flagged location index in LocationFlagSearchHelper current.
+ */
+public class LocationFlagTracker extends DataPersistenceFlagTracker {
+
+    public LocationFlagTracker(Chunk chunk, int x, int y, int z) {
+        super(chunk, LocationFlagSearchHelper.KEY_PREFIX + x + "_" + y + "_" + z + "_");
+        this.chunk = chunk;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public Chunk chunk;
+
+    public int x, y, z;
+
+    @Override
+    public void setRootMap(String key, MapTag map) {
+        super.setRootMap(key, map);
+        LocationFlagSearchHelper.onFlagChanged(chunk, x, y, z, cleanKeyName(key), map != null);
+    }
+}
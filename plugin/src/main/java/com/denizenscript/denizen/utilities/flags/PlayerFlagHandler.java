@@ -126,6 +126,7 @@ public class PlayerFlagHandler implements Listener {
         }
         cache.tracker.modified = false;
         String text = cache.tracker.toString();
+        PlayerFlagIndex.update(id, cache.tracker);
         cache.savingNow.set(true);
         new BukkitRunnable() {
             @Override
@@ -178,6 +179,7 @@ public class PlayerFlagHandler implements Listener {
             if (cache.tracker != null && !CoreConfiguration.skipAllFlagCleanings) {
                 cache.tracker.doTotalClean();
             }
+            PlayerFlagIndex.update(id, cache.tracker);
         }
         else {
             if (CoreConfiguration.debugVerbose) {
@@ -248,6 +250,7 @@ public class PlayerFlagHandler implements Listener {
                         if (newCache.tracker != null && !CoreConfiguration.skipAllFlagCleanings) {
                             newCache.tracker.doTotalClean();
                         }
+                        PlayerFlagIndex.update(id, newCache.tracker);
                     });
                     future.complete(null);
                 }
@@ -279,6 +282,7 @@ public class PlayerFlagHandler implements Listener {
                 flags.tracker.modified = false;
                 final UUID id = entry.getKey();
                 final String data = flags.tracker.toString();
+                PlayerFlagIndex.update(id, flags.tracker);
                 Runnable doSave = () -> {
                     saveFlags(id, data);
                     flags.savingNow.set(false);
@@ -0,0 +1,290 @@
+package com.denizenscript.denizen.utilities.flags;
+
+import com.denizenscript.denizen.Denizen;
+import com.denizenscript.denizencore.flags.AbstractFlagTracker;
+import com.denizenscript.denizencore.flags.SavableMapFlagTracker;
+import com.denizenscript.denizencore.objects.core.TimeTag;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import org.bukkit.Bukkit;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Persistent index of which players have which top-level flags (and when each flag expires), so that queries over all players (like 'server.players_flagged')
+ * don't need to load every player's flag file.
+ * Updated on the main thread whenever a player's flags are loaded or saved, saved to disk alongside other Denizen saves, and rebuilt from the flag files in the background
+ * when the index file is missing or when requested.
+ */
+public class PlayerFlagIndex {
+
+    public static final int FORMAT_VERSION = 1;
+
+    public static File indexFile;
+
+    /**
+     * False until the index has been loaded or rebuilt. While false, queries must fall back to reading flag files directly.
+     */
+    public static boolean ready = false;
+
+    public static boolean rebuilding = false;
+
+    public static boolean dirty = false;
+
+    /**
+     * Lowercase top-level flag name, to player, to expiration time in milliseconds (or 0 for never).
+     */
+    public static HashMap<String, Object2LongOpenHashMap<UUID>> byFlag = new HashMap<>();
+
+    /**
+     * Player, to lowercase top-level flag name, to expiration time. The exact inverse of 'byFlag'.
+     */
+    public static HashMap<UUID, Object2LongOpenHashMap<String>> byPlayer = new HashMap<>();
+
+    /**
+     * Updates made while the index is being loaded or rebuilt, which are re-applied on top of the new index once it's in place (as it may have been read before they happened).
+     */
+    public static HashMap<UUID, Object2LongOpenHashMap<String>> pendingUpdates = new HashMap<>();
+
+    public static String topLevelName(String flagName) {
+        int dot = flagName.indexOf('.');
+        return CoreUtilities.toLowerCase(dot == -1 ? flagName : flagName.substring(0, dot));
+    }
+
+    /**
+     * Reads a tracker's top-level flags and their expiration times. Safe to call from any thread, as long as the tracker isn't being modified at the same time.
+     */
+    public static Object2LongOpenHashMap<String> readFlags(AbstractFlagTracker tracker) {
+        Collection<String> names = tracker.listAllFlags();
+        Object2LongOpenHashMap<String> result = new Object2LongOpenHashMap<>(names.size());
+        for (String name : names) {
+            TimeTag expiration = tracker.getFlagExpirationTime(name);
+            result.put(CoreUtilities.toLowerCase(name), expiration == null ? 0 : expiration.millis());
+        }
+        return result;
+    }
+
+    private static void put(HashMap<String, Object2LongOpenHashMap<UUID>> byFlag, HashMap<UUID, Object2LongOpenHashMap<String>> byPlayer, UUID id, Object2LongOpenHashMap<String> flags) {
+        Object2LongOpenHashMap<String> old = flags.isEmpty() ? byPlayer.remove(id) : byPlayer.put(id, flags);
+        if (old != null) {
+            for (String name : old.keySet()) {
+                if (!flags.containsKey(name)) {
+                    Object2LongOpenHashMap<UUID> players = byFlag.get(name);
+                    if (players != null) {
+                        players.removeLong(id);
+                        if (players.isEmpty()) {
+                            byFlag.remove(name);
+                        }
+                    }
+                }
+            }
+        }
+        for (Object2LongMap.Entry<String> flag : flags.object2LongEntrySet()) {
+            byFlag.computeIfAbsent(flag.getKey(), k -> new Object2LongOpenHashMap<>()).put(id, flag.getLongValue());
+        }
+    }
+
+    /**
+     * Updates the index entry for a player from their current flag tracker. If called off the main thread, the update is scheduled to happen on the main thread.
+     */
+    public static void update(UUID id, AbstractFlagTracker tracker) {
+        if (tracker == null) {
+            return;
+        }
+        if (!Bukkit.isPrimaryThread()) {
+            Bukkit.getScheduler().runTask(Denizen.getInstance(), () -> update(id, tracker));
+            return;
+        }
+        Object2LongOpenHashMap<String> flags = readFlags(tracker);
+        put(byFlag, byPlayer, id, flags);
+        if (!ready || rebuilding) {
+            pendingUpdates.put(id, flags);
+        }
+        dirty = true;
+    }
+
+    /**
+     * Returns all players the index lists as having the given top-level flag (not expired), or null if the index isn't ready yet.
+     */
+    public static Set<UUID> getPlayersWith(String flagName) {
+        if (!ready) {
+            return null;
+        }
+        Object2LongOpenHashMap<UUID> players = byFlag.get(topLevelName(flagName));
+        if (players == null) {
+            return Collections.emptySet();
+        }
+        long now = TimeTag.now().millis();
+        HashSet<UUID> result = new HashSet<>(players.size());
+        for (Object2LongMap.Entry<UUID> entry : players.object2LongEntrySet()) {
+            long expiration = entry.getLongValue();
+            if (expiration == 0 || expiration > now) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Re-applies the index entries of every player whose flags are currently loaded, as those are more recent than anything on disk.
+     */
+    private static void applyLoadedTrackers() {
+        for (Map.Entry<UUID, PlayerFlagHandler.CachedPlayerFlag> entry : PlayerFlagHandler.playerFlagTrackerCache.entrySet()) {
+            if (!entry.getValue().loadingNow.get()) {
+                update(entry.getKey(), entry.getValue().tracker);
+            }
+        }
+    }
+
+    private static void replaceWith(HashMap<String, Object2LongOpenHashMap<UUID>> newByFlag, HashMap<UUID, Object2LongOpenHashMap<String>> newByPlayer) {
+        for (Map.Entry<UUID, Object2LongOpenHashMap<String>> update : pendingUpdates.entrySet()) {
+            put(newByFlag, newByPlayer, update.getKey(), update.getValue());
+        }
+        pendingUpdates.clear();
+        byFlag = newByFlag;
+        byPlayer = newByPlayer;
+        ready = true;
+        applyLoadedTrackers();
+        dirty = true;
+    }
+
+    /**
+     * Loads the index file in the background, or starts a rebuild if there isn't a valid one.
+     */
+    public static void loadAsync(File file) {
+        indexFile = file;
+        Bukkit.getScheduler().runTaskAsynchronously(Denizen.getInstance(), () -> {
+            HashMap<String, Object2LongOpenHashMap<UUID>> newByFlag = new HashMap<>();
+            HashMap<UUID, Object2LongOpenHashMap<String>> newByPlayer = new HashMap<>();
+            boolean loaded = false;
+            if (file.exists()) {
+                try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                    if (input.readInt() == FORMAT_VERSION) {
+                        int playerCount = input.readInt();
+                        for (int i = 0; i < playerCount; i++) {
+                            UUID id = new UUID(input.readLong(), input.readLong());
+                            int flagCount = input.readInt();
+                            Object2LongOpenHashMap<String> flags = new Object2LongOpenHashMap<>(flagCount);
+                            for (int f = 0; f < flagCount; f++) {
+                                String name = input.readUTF();
+                                flags.put(name, input.readLong());
+                            }
+                            put(newByFlag, newByPlayer, id, flags);
+                        }
+                        loaded = true;
+                    }
+                }
+                catch (Throwable ex) {
+                    Debug.echoError("Player flag index file is invalid, and will be rebuilt:");
+                    Debug.echoError(ex);
+                }
+            }
+            if (loaded) {
+                Bukkit.getScheduler().runTask(Denizen.getInstance(), () -> replaceWith(newByFlag, newByPlayer));
+            }
+            else {
+                Bukkit.getScheduler().runTask(Denizen.getInstance(), PlayerFlagIndex::rebuild);
+            }
+        });
+    }
+
+    /**
+     * Rebuilds the whole index from the player flag files in the background. Must be called on the main thread.
+     */
+    public static void rebuild() {
+        if (rebuilding) {
+            return;
+        }
+        rebuilding = true;
+        File folder = PlayerFlagHandler.dataFolder;
+        Debug.log("Rebuilding player flag index...");
+        Bukkit.getScheduler().runTaskAsynchronously(Denizen.getInstance(), () -> {
+            HashMap<String, Object2LongOpenHashMap<UUID>> newByFlag = new HashMap<>();
+            HashMap<UUID, Object2LongOpenHashMap<String>> newByPlayer = new HashMap<>();
+            long start = CoreUtilities.monotonicMillis();
+            File[] files = folder.listFiles((dir, name) -> name.endsWith(".dat"));
+            if (files != null) {
+                for (File file : files) {
+                    UUID id;
+                    try {
+                        id = UUID.fromString(file.getName().substring(0, file.getName().length() - ".dat".length()));
+                    }
+                    catch (IllegalArgumentException ex) {
+                        continue;
+                    }
+                    try {
+                        SavableMapFlagTracker tracker = SavableMapFlagTracker.loadFlagFile(new File(folder, id.toString()).getPath(), false);
+                        if (tracker != null) {
+                            put(newByFlag, newByPlayer, id, readFlags(tracker));
+                        }
+                    }
+                    catch (Throwable ex) {
+                        Debug.echoError("Failed to read flags of player " + id + " for the player flag index:");
+                        Debug.echoError(ex);
+                    }
+                }
+            }
+            long time = CoreUtilities.monotonicMillis() - start;
+            Bukkit.getScheduler().runTask(Denizen.getInstance(), () -> {
+                rebuilding = false;
+                replaceWith(newByFlag, newByPlayer);
+                Debug.log("Player flag index rebuilt: " + newByPlayer.size() + " players with flags, took " + time + "ms.");
+                save(false);
+            });
+        });
+    }
+
+    /**
+     * Saves the index to disk if it has changed. Must be called on the main thread.
+     */
+    public static void save(boolean lockUntilDone) {
+        if (!ready || !dirty || indexFile == null) {
+            return;
+        }
+        dirty = false;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(byPlayer.size());
+            for (Map.Entry<UUID, Object2LongOpenHashMap<String>> player : byPlayer.entrySet()) {
+                output.writeLong(player.getKey().getMostSignificantBits());
+                output.writeLong(player.getKey().getLeastSignificantBits());
+                output.writeInt(player.getValue().size());
+                for (Object2LongMap.Entry<String> flag : player.getValue().object2LongEntrySet()) {
+                    output.writeUTF(flag.getKey());
+                    output.writeLong(flag.getLongValue());
+                }
+            }
+        }
+        catch (IOException ex) {
+            Debug.echoError(ex);
+            return;
+        }
+        byte[] data = bytes.toByteArray();
+        File file = indexFile;
+        Runnable write = () -> {
+            synchronized (PlayerFlagIndex.class) {
+                try {
+                    File temp = new File(file.getPath() + ".tmp");
+                    Files.write(temp.toPath(), data);
+                    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                catch (IOException ex) {
+                    Debug.echoError("Failed to save player flag index:");
+                    Debug.echoError(ex);
+                }
+            }
+        };
+        if (lockUntilDone) {
+            write.run();
+        }
+        else {
+            Bukkit.getScheduler().runTaskAsynchronously(Denizen.getInstance(), write);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.denizenscript.denizen.utilities.implementation;
 
 import com.denizenscript.denizen.Denizen;
+import com.denizenscript.denizen.utilities.FormattedTextHelper;
 import com.denizenscript.denizen.utilities.Settings;
+import com.denizenscript.denizen.events.BukkitScriptEvent;
 import com.denizenscript.denizen.events.bukkit.ScriptReloadEvent;
 import com.denizenscript.denizen.objects.*;
 import com.denizenscript.denizen.scripts.containers.core.*;
@@ -9,6 +11,7 @@ import com.denizenscript.denizen.tags.BukkitTagContext;
 import com.denizenscript.denizen.utilities.Utilities;
 import com.denizenscript.denizen.utilities.debugging.DebugConsoleSender;
 import com.denizenscript.denizen.utilities.flags.PlayerFlagHandler;
+import com.denizenscript.denizen.utilities.inventory.CompiledItemMatcher;
 import com.denizenscript.denizencore.objects.core.VectorObject;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizen.utilities.depends.Depends;
@@ -73,6 +76,12 @@ public class DenizenCoreImplementation implements DenizenImplementation {
         }
         // Give map image downloads a new chance
         DenizenMapManager.failedUrls.clear();
+        // Parsed text may reference item scripts that are about to change
+        synchronized (FormattedTextHelper.parseCache) {
+            FormattedTextHelper.parseCache.clear();
+        }
+        // Switch text may have changed, so recompile area checks
+        BukkitScriptEvent.compiledInChecks.clear();
     }
 
     @Override
@@ -178,6 +187,8 @@ public class DenizenCoreImplementation implements DenizenImplementation {
         EntityScriptHelper.scripts.clear();
         ItemScriptHelper.item_scripts.clear();
         ItemScriptHelper.item_scripts_by_hash_id.clear();
+        ItemScriptHelper.itemScriptIdentityCache.clear();
+        CompiledItemMatcher.cache.clear();
     }
 
     @Override
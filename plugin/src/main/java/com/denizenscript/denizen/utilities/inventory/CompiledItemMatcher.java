@@ -0,0 +1,141 @@
+package com.denizenscript.denizen.utilities.inventory;
+
+import com.denizenscript.denizen.events.BukkitScriptEvent;
+import com.denizenscript.denizen.objects.ItemTag;
+import com.denizenscript.denizen.objects.MaterialTag;
+import com.denizenscript.denizencore.events.ScriptEvent;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.PropertyMatchHelper;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A single item matcher (one entry of an 'advanced matcher' list, see ItemTag.advancedMatches) pre-processed for repeated use:
+ * the matcher type is decided once, 'raw_exact:' targets are parsed once, and property/name match helpers are built once.
+ * Compiled matchers are cached by matcher text, and the cache is cleared whenever scripts are reloaded (as 'raw_exact:' targets may be script items).
+ */
+public class CompiledItemMatcher {
+
+    public enum Type { ITEM_FLAGGED, ITEM_ENCHANTED, RAW_EXACT, POTION, SCRIPT, PROPERTIES, GENERAL }
+
+    public static final int MAX_CACHE_SIZE = 1024;
+
+    public static final ConcurrentHashMap<String, CompiledItemMatcher> cache = new ConcurrentHashMap<>();
+
+    public static CompiledItemMatcher get(String matcher) {
+        CompiledItemMatcher compiled = cache.get(matcher);
+        if (compiled == null) {
+            if (cache.size() >= MAX_CACHE_SIZE) {
+                cache.clear();
+            }
+            compiled = new CompiledItemMatcher(matcher);
+            cache.put(matcher, compiled);
+        }
+        return compiled;
+    }
+
+    public final String matcher;
+
+    public final Type type;
+
+    /**
+     * The part of the matcher after the prefix, for prefixed types.
+     */
+    public String argument;
+
+    /**
+     * The identity of the 'raw_exact:' target item at a quantity of 1, or null if the target isn't a valid item.
+     */
+    public String rawExactIdentity;
+
+    public PropertyMatchHelper<ItemTag> propertyHelper;
+
+    /**
+     * The material the matcher names exactly (if any), which lets the general check skip the full material matcher.
+     */
+    public Material exactMaterial;
+
+    public ScriptEvent.MatchHelper scriptNameMatcher;
+
+    public CompiledItemMatcher(String matcher) {
+        this.matcher = matcher;
+        String matcherLow = CoreUtilities.toLowerCase(matcher);
+        if (matcherLow.startsWith("item_flagged:")) {
+            type = Type.ITEM_FLAGGED;
+            argument = matcher.substring("item_flagged:".length());
+        }
+        else if (matcherLow.startsWith("item_enchanted:")) {
+            type = Type.ITEM_ENCHANTED;
+            argument = matcher.substring("item_enchanted:".length());
+        }
+        else if (matcherLow.startsWith("raw_exact:")) {
+            type = Type.RAW_EXACT;
+            ItemTag compareItem = ItemTag.valueOf(matcher.substring("raw_exact:".length()), CoreUtilities.errorButNoDebugContext);
+            rawExactIdentity = compareItem == null ? null : compareItem.identifySingle();
+        }
+        else if (matcherLow.equals("potion")) {
+            type = Type.POTION;
+        }
+        else if (matcherLow.equals("script")) {
+            type = Type.SCRIPT;
+        }
+        else if (matcher.contains("[") && matcher.endsWith("]")) {
+            type = Type.PROPERTIES;
+            propertyHelper = PropertyMatchHelper.getPropertyMatchHelper(ItemTag.class, matcher, (actual, compare) -> {
+                return actual.getBukkitMaterial() == compare.getBukkitMaterial();
+            });
+        }
+        else {
+            type = Type.GENERAL;
+        }
+        if (type == Type.POTION || type == Type.SCRIPT || type == Type.GENERAL) {
+            scriptNameMatcher = BukkitScriptEvent.createMatcher(matcher);
+            if (type == Type.GENERAL) {
+                exactMaterial = Material.getMaterial(CoreUtilities.toUpperCase(matcher));
+            }
+        }
+    }
+
+    public boolean doesMatch(ItemTag item) {
+        switch (type) {
+            case ITEM_FLAGGED:
+                if (item.getBukkitMaterial().isAir()) {
+                    return false;
+                }
+                return BukkitScriptEvent.coreFlaggedCheck(argument, item.getFlagTracker());
+            case ITEM_ENCHANTED:
+                if (item.getBukkitMaterial().isAir() || !item.getItemMeta().hasEnchants()) {
+                    return false;
+                }
+                for (Enchantment enchant : item.getItemMeta().getEnchants().keySet()) {
+                    if (BukkitScriptEvent.runGenericCheck(argument, enchant.getKey().getKey())) {
+                        return true;
+                    }
+                }
+                return false;
+            case RAW_EXACT:
+                return rawExactIdentity != null && rawExactIdentity.equals(item.identifySingle());
+            case PROPERTIES:
+                return propertyHelper != null && propertyHelper.doesMatch(item);
+            case POTION:
+                if (CoreUtilities.toLowerCase(item.getBukkitMaterial().name()).contains("potion")) {
+                    return true;
+                }
+                break;
+        }
+        // Past this point, checks need the item's script (if any)
+        String scriptName = item.getScriptName();
+        if (type == Type.SCRIPT && scriptName != null) {
+            return true;
+        }
+        if (scriptName != null && scriptNameMatcher.doesMatch(scriptName)) {
+            return true;
+        }
+        if (exactMaterial != null) {
+            return scriptName == null && item.getBukkitMaterial() == exactMaterial;
+        }
+        return MaterialTag.advancedMatchesInternal(item.getBukkitMaterial(), matcher, scriptName == null);
+    }
+}
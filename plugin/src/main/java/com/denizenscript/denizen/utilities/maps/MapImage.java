@@ -1,8 +1,10 @@
 package com.denizenscript.denizen.utilities.maps;
 
+import com.denizenscript.denizen.Denizen;
 import com.denizenscript.denizen.nms.NMSHandler;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizen.objects.PlayerTag;
+import org.bukkit.Bukkit;
 import org.bukkit.map.MapCanvas;
 import org.bukkit.map.MapPalette;
 import org.bukkit.map.MapView;
@@ -13,15 +15,18 @@ import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.ImageConsumer;
 import java.lang.reflect.Field;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Hashtable;
 import java.util.Map;
 import java.util.UUID;
 
 public class MapImage extends MapObject {
 
-    public byte[] cachedImageData = null;
+    public volatile byte[] cachedImageData = null;
     public Image imageForCache = null;
+    public volatile boolean needsConversion = true;
+    public boolean converting = false;
+    public boolean dither = false;
     public Image image;
     public ImageIcon imageIcon;
     public int width = 0;
@@ -48,6 +53,7 @@ public class MapImage extends MapObject {
         data.put("width", width);
         data.put("height", height);
         data.put("image", fileTag);
+        data.put("dither", dither);
         return data;
     }
 
@@ -82,7 +88,7 @@ public class MapImage extends MapObject {
                     @Override
                     public void setPixels(int x, int y, int w, int h, ColorModel model, byte[] pixels, int off, int scansize) {
                         // When the internal pixels are updated, the cache is no longer current.
-                        cachedImageData = null;
+                        needsConversion = true;
                         renderer.hasChanged = true;
                     }
 
@@ -111,19 +117,13 @@ public class MapImage extends MapObject {
                 return;
             }
             // Use custom functions to draw image to allow transparency and reduce lag intensely
-            byte[] bytes;
-            if (cachedImageData == null || image != imageForCache) {
-                bytes = imageToBytes(image, width, height);
-                if (bytes == null) {
-                    Debug.echoError("Image loading failed (bad imageToBytes) for image " + fileTag);
-                    disabled = true;
-                    return;
-                }
-                cachedImageData = bytes;
-                imageForCache = image;
+            if ((needsConversion || image != imageForCache) && !converting) {
+                startConversion();
             }
-            else {
-                bytes = cachedImageData;
+            byte[] bytes = cachedImageData;
+            if (bytes == null) {
+                // First conversion is still running, the renderer will be marked as changed when it's done
+                return;
             }
             int x = getX(player);
             int y = getY(player);
@@ -134,8 +134,43 @@ public class MapImage extends MapObject {
         }
     }
 
+    /**
+     * Converts the current image to map colors on an async worker thread, then swaps the result in on the main thread.
+     * Any frame updates that arrive while converting are picked up by the next render.
+     */
+    public void startConversion() {
+        converting = true;
+        needsConversion = false;
+        Image toConvert = image;
+        imageForCache = image;
+        int convertWidth = width, convertHeight = height;
+        boolean convertDither = dither;
+        Bukkit.getScheduler().runTaskAsynchronously(Denizen.getInstance(), () -> {
+            byte[] result = null;
+            try {
+                result = imageToBytes(toConvert, convertWidth, convertHeight, convertDither);
+            }
+            catch (Throwable ex) {
+                Debug.echoError(ex);
+            }
+            byte[] finalResult = result;
+            Bukkit.getScheduler().runTask(Denizen.getInstance(), () -> {
+                converting = false;
+                if (finalResult == null) {
+                    Debug.echoError("Image loading failed (bad imageToBytes) for image " + fileTag);
+                    disabled = true;
+                    return;
+                }
+                cachedImageData = finalResult;
+                renderer.hasChanged = true;
+            });
+        });
+    }
+
     private static final Color[] bukkitColors;
 
+    private static final int[] bukkitColorsRGB;
+
     static {
         Color[] colors = null;
         try {
@@ -147,46 +182,147 @@ public class MapImage extends MapObject {
             Debug.echoError(e);
         }
         bukkitColors = colors;
+        bukkitColorsRGB = new int[colors == null ? 0 : colors.length];
+        for (int i = 0; i < bukkitColorsRGB.length; i++) {
+            bukkitColorsRGB[i] = colors[i].getRGB() & 0xFFFFFF;
+        }
+    }
+
+    /**
+     * Lookup table from 18-bit RGB (6 bits per channel) to the nearest map palette color, built once on first use.
+     * Warmed up in the background at startup (see 'warmUp'), so that the first map render doesn't have to wait for it on the main thread.
+     */
+    public static class PaletteTable {
+
+        public static final int[] PALETTE_RGB = bukkitColorsRGB;
+
+        public static final byte[] TABLE;
+
+        /**
+         * Does nothing, but forces the table to be built (on the calling thread) if it hasn't been yet.
+         */
+        public static void warmUp() {
+        }
+
+        static {
+            TABLE = new byte[64 * 64 * 64];
+            for (int r = 0; r < 64; r++) {
+                for (int g = 0; g < 64; g++) {
+                    for (int b = 0; b < 64; b++) {
+                        // Match from the center of each bucket
+                        TABLE[(r << 12) | (g << 6) | b] = findClosest((r << 2) | 2, (g << 2) | 2, (b << 2) | 2);
+                    }
+                }
+            }
+        }
+    }
+
+    public static int tableIndex(int rgb) {
+        return ((rgb >> 6) & 0x3F000) | ((rgb >> 4) & 0xFC0) | ((rgb >> 2) & 0x3F);
     }
 
     public static byte[] imageToBytes(Image image, int width, int height) {
+        return imageToBytes(image, width, height, false);
+    }
+
+    public static byte[] imageToBytes(Image image, int width, int height, boolean dither) {
         BufferedImage temp = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
         Graphics2D graphics = temp.createGraphics();
         graphics.drawImage(image, 0, 0, width, height, null);
         graphics.dispose();
         int[] pixels = new int[width * height];
         temp.getRGB(0, 0, width, height, pixels, 0, width);
-        byte[] result = new byte[width * height];
+        return dither ? pixelsToBytesDithered(pixels, width, height) : pixelsToBytes(pixels);
+    }
+
+    public static byte[] pixelsToBytes(int[] pixels) {
+        byte[] table = PaletteTable.TABLE;
+        byte[] result = new byte[pixels.length];
         for (int i = 0; i < pixels.length; i++) {
-            result[i] = matchColor(new Color(pixels[i], true));
+            int argb = pixels[i];
+            result[i] = (argb >>> 24) < 128 ? 0 : table[tableIndex(argb)];
         }
         return result;
     }
 
-    public static HashMap<Color, Byte> colorCache = new HashMap<>(1024);
+    /**
+     * Converts pixels to map colors with Floyd-Steinberg dithering. Transparent pixels neither receive nor spread error.
+     */
+    public static byte[] pixelsToBytesDithered(int[] pixels, int width, int height) {
+        byte[] table = PaletteTable.TABLE;
+        int[] palette = PaletteTable.PALETTE_RGB;
+        byte[] result = new byte[pixels.length];
+        // Accumulated error (times 16) for the current and next rows, 3 channels per pixel, with a padding pixel on either side
+        int[] current = new int[(width + 2) * 3];
+        int[] next = new int[(width + 2) * 3];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = y * width + x;
+                int argb = pixels[i];
+                if ((argb >>> 24) < 128) {
+                    result[i] = 0;
+                    continue;
+                }
+                int e = (x + 1) * 3;
+                int r = clampColor(((argb >> 16) & 0xFF) + current[e] / 16);
+                int g = clampColor(((argb >> 8) & 0xFF) + current[e + 1] / 16);
+                int b = clampColor((argb & 0xFF) + current[e + 2] / 16);
+                byte match = table[tableIndex((r << 16) | (g << 8) | b)];
+                result[i] = match;
+                int matched = palette[match & 0xFF];
+                spreadError(current, next, e, r - ((matched >> 16) & 0xFF));
+                spreadError(current, next, e + 1, g - ((matched >> 8) & 0xFF));
+                spreadError(current, next, e + 2, b - (matched & 0xFF));
+            }
+            int[] swap = current;
+            current = next;
+            next = swap;
+            Arrays.fill(next, 0);
+        }
+        return result;
+    }
+
+    public static void spreadError(int[] current, int[] next, int index, int error) {
+        current[index + 3] += error * 7;
+        next[index - 3] += error * 3;
+        next[index] += error * 5;
+        next[index + 3] += error;
+    }
+
+    public static int clampColor(int value) {
+        return value < 0 ? 0 : Math.min(value, 255);
+    }
 
     public static byte matchColor(Color color) {
         if (color.getAlpha() < 128) {
             return 0;
         }
-        Byte result = colorCache.get(color);
-        if (result != null) {
-            return result;
-        }
+        return PaletteTable.TABLE[tableIndex(color.getRGB())];
+    }
+
+    public static byte findClosest(int red, int green, int blue) {
         int index = 0;
-        double best = -1;
-        for (int i = 4; i < bukkitColors.length; i++) {
-            double distance = getDistance(color, bukkitColors[i]);
+        int best = -1;
+        for (int i = 4; i < bukkitColorsRGB.length; i++) {
+            int distance = getDistance(red, green, blue, bukkitColorsRGB[i]);
             if (distance < best || best == -1) {
                 best = distance;
                 index = i;
             }
         }
-        byte gotten = (byte) (index < 128 ? index : -129 + (index - 127));
-        if (colorCache.size() < 1024 * 16) {
-            colorCache.put(color, gotten);
-        }
-        return gotten;
+        return (byte) (index < 128 ? index : -129 + (index - 127));
+    }
+
+    /**
+     * Same as 'getDistance(Color, Color)' multiplied by 512, which keeps it exact in int math.
+     */
+    public static int getDistance(int red, int green, int blue, int rgb) {
+        int otherRed = (rgb >> 16) & 0xFF;
+        int redSum = red + otherRed;
+        int r = red - otherRed;
+        int g = green - ((rgb >> 8) & 0xFF);
+        int b = blue - (rgb & 0xFF);
+        return (1024 + redSum) * r * r + 2048 * g * g + (1534 - redSum) * b * b;
     }
 
     public static double getDistance(Color c1, Color c2) {
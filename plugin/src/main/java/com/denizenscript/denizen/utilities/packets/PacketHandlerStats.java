@@ -0,0 +1,49 @@
+package com.denizenscript.denizen.utilities.packets;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Usage counters for a single outbound packet handler stage (a Denizen packet interceptor, or the script event stage).
+ * Updated from network threads, so all counters are thread-safe adders.
+ */
+public class PacketHandlerStats {
+
+    public static final List<PacketHandlerStats> allStats = new CopyOnWriteArrayList<>();
+
+    public static PacketHandlerStats register(String name) {
+        PacketHandlerStats stats = new PacketHandlerStats(name);
+        allStats.add(stats);
+        return stats;
+    }
+
+    public final String name;
+
+    public final LongAdder calls = new LongAdder(), drops = new LongAdder(), errors = new LongAdder(), nanos = new LongAdder();
+
+    public PacketHandlerStats(String name) {
+        this.name = name;
+    }
+
+    public void record(long startNanos, boolean dropped) {
+        nanos.add(System.nanoTime() - startNanos);
+        calls.increment();
+        if (dropped) {
+            drops.increment();
+        }
+    }
+
+    public void recordError(long startNanos) {
+        nanos.add(System.nanoTime() - startNanos);
+        calls.increment();
+        errors.increment();
+    }
+
+    public void reset() {
+        calls.reset();
+        drops.reset();
+        errors.reset();
+        nanos.reset();
+    }
+}
@@ -4,7 +4,6 @@ import com.denizenscript.denizen.nms.v1_18.Handler;
 import com.denizenscript.denizen.nms.v1_18.helpers.PacketHelperImpl;
 import com.denizenscript.denizen.nms.abstracts.Sidebar;
 import com.denizenscript.denizen.utilities.FormattedTextHelper;
-import com.denizenscript.denizen.utilities.Utilities;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import net.md_5.bungee.api.ChatColor;
 import net.minecraft.network.chat.MutableComponent;
@@ -20,8 +19,6 @@ import net.minecraft.world.scores.criteria.ObjectiveCriteria;
 import org.bukkit.entity.Player;
 
 import java.lang.reflect.Constructor;
-import java.util.ArrayList;
-import java.util.List;
 
 public class SidebarImpl extends Sidebar {
 
@@ -39,61 +36,57 @@ public class SidebarImpl extends Sidebar {
         }
     }
 
-    public Objective obj1;
-    public Objective obj2;
+    public Objective obj;
+
+    public PlayerTeam[] teams = new PlayerTeam[MAX_LENGTH];
 
     public SidebarImpl(Player player) {
         super(player);
         MutableComponent chatComponentTitle = Handler.componentToNMS(FormattedTextHelper.parse(title, ChatColor.WHITE));
-        this.obj1 = new Objective(dummyScoreboard, "dummy_1", dummyCriteria, chatComponentTitle, ObjectiveCriteria.RenderType.INTEGER);
-        this.obj2 = new Objective(dummyScoreboard, "dummy_2", dummyCriteria, chatComponentTitle, ObjectiveCriteria.RenderType.INTEGER);
+        this.obj = new Objective(dummyScoreboard, "dummy_1", dummyCriteria, chatComponentTitle, ObjectiveCriteria.RenderType.INTEGER);
     }
 
     @Override
     protected void setDisplayName(String title) {
-        if (this.obj1 != null) {
+        if (this.obj != null) {
             MutableComponent chatComponentTitle = Handler.componentToNMS(FormattedTextHelper.parse(title, ChatColor.WHITE));
-            this.obj1.setDisplayName(chatComponentTitle);
-            this.obj2.setDisplayName(chatComponentTitle);
+            this.obj.setDisplayName(chatComponentTitle);
         }
     }
 
-    public List<PlayerTeam> generatedTeams = new ArrayList<>();
+    @Override
+    protected void sendObjective(int mode) {
+        PacketHelperImpl.send(player, new ClientboundSetObjectivePacket(this.obj, mode));
+    }
+
+    @Override
+    protected void sendDisplaySlot() {
+        PacketHelperImpl.send(player, new ClientboundSetDisplayObjectivePacket(1, this.obj));
+    }
 
     @Override
-    public void sendUpdate() {
-        List<PlayerTeam> oldTeams = generatedTeams;
-        generatedTeams = new ArrayList<>();
-        PacketHelperImpl.send(player, new ClientboundSetObjectivePacket(this.obj1, 0));
-        for (int i = 0; i < this.lines.length; i++) {
-            String line = this.lines[i];
-            if (line == null) {
-                break;
+    protected void sendLine(int index, boolean isNew, boolean textChanged, boolean scoreChanged) {
+        String lineId = lineIds[index];
+        if (textChanged) {
+            PlayerTeam team = teams[index];
+            if (team == null) {
+                team = new PlayerTeam(dummyScoreboard, lineId);
+                team.getPlayers().add(lineId);
+                teams[index] = team;
             }
-            String lineId = Utilities.generateRandomColors(8);
-            PlayerTeam team = new PlayerTeam(dummyScoreboard, lineId);
-            team.getPlayers().add(lineId);
-            team.setPlayerPrefix(Handler.componentToNMS(FormattedTextHelper.parse(line, ChatColor.WHITE)));
-            generatedTeams.add(team);
-            PacketHelperImpl.send(player, ClientboundSetPlayerTeamPacket.createAddOrModifyPacket(team, true));
-            PacketHelperImpl.send(player, new ClientboundSetScorePacket(ServerScoreboard.Method.CHANGE, obj1.getName(), lineId, this.scores[i]));
+            team.setPlayerPrefix(Handler.componentToNMS(FormattedTextHelper.parse(this.lines[index], ChatColor.WHITE)));
+            PacketHelperImpl.send(player, ClientboundSetPlayerTeamPacket.createAddOrModifyPacket(team, isNew));
         }
-        PacketHelperImpl.send(player, new ClientboundSetDisplayObjectivePacket(1, this.obj1));
-        PacketHelperImpl.send(player, new ClientboundSetObjectivePacket(this.obj2, 1));
-        Objective temp = this.obj2;
-        this.obj2 = this.obj1;
-        this.obj1 = temp;
-        for (PlayerTeam team : oldTeams) {
-            PacketHelperImpl.send(player, ClientboundSetPlayerTeamPacket.createRemovePacket(team));
+        if (scoreChanged) {
+            PacketHelperImpl.send(player, new ClientboundSetScorePacket(ServerScoreboard.Method.CHANGE, obj.getName(), lineId, this.scores[index]));
         }
     }
 
     @Override
-    public void remove() {
-        for (PlayerTeam team : generatedTeams) {
-            PacketHelperImpl.send(player, ClientboundSetPlayerTeamPacket.createRemovePacket(team));
+    protected void removeLine(int index) {
+        PacketHelperImpl.send(player, new ClientboundSetScorePacket(ServerScoreboard.Method.REMOVE, obj.getName(), lineIds[index], 0));
+        if (teams[index] != null) {
+            PacketHelperImpl.send(player, ClientboundSetPlayerTeamPacket.createRemovePacket(teams[index]));
         }
-        generatedTeams.clear();
-        PacketHelperImpl.send(player, new ClientboundSetObjectivePacket(this.obj2, 1));
     }
 }
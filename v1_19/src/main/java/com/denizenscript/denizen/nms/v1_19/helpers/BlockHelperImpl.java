@@ -30,11 +30,16 @@ import net.minecraft.world.entity.Entity;
 import net.minecraft.world.level.BaseSpawner;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.SpawnData;
+import net.minecraft.world.level.block.EntityBlock;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.entity.SpawnerBlockEntity;
 import net.minecraft.world.level.block.state.BlockBehaviour;
 import net.minecraft.world.level.block.state.properties.NoteBlockInstrument;
 import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.levelgen.Heightmap;
+import net.minecraft.world.level.lighting.LevelLightEngine;
 import net.minecraft.world.level.chunk.ChunkStatus;
 import net.minecraft.world.level.material.PushReaction;
 import org.bukkit.*;
@@ -42,6 +47,7 @@ import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.CreatureSpawner;
 import org.bukkit.block.Skull;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.craftbukkit.v1_19_R3.CraftChunk;
 import org.bukkit.craftbukkit.v1_19_R3.CraftServer;
 import org.bukkit.craftbukkit.v1_19_R3.CraftWorld;
@@ -359,4 +365,50 @@ public class BlockHelperImpl implements BlockHelper {
             PacketHelperImpl.send(player, tagsPacket);
         }
     }
+
+    @Override
+    public void setBlocksDirect(Chunk chunk, int[] positions, BlockData[] blocks, int count) {
+        LevelChunk nmsChunk = (LevelChunk) ((CraftChunk) chunk).getHandle(ChunkStatus.FULL);
+        ServerLevel level = ((CraftWorld) chunk.getWorld()).getHandle();
+        LevelLightEngine lightEngine = level.getChunkSource().getLightEngine();
+        int baseX = chunk.getX() << 4, baseZ = chunk.getZ() << 4;
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        for (int i = 0; i < count; i++) {
+            int packed = positions[i];
+            int x = packed & 15, y = packed >> 8, z = (packed >> 4) & 15;
+            net.minecraft.world.level.block.state.BlockState state = ((CraftBlockData) blocks[i]).getState();
+            LevelChunkSection section = nmsChunk.getSection(nmsChunk.getSectionIndex(y));
+            boolean wasEmpty = section.hasOnlyAir();
+            net.minecraft.world.level.block.state.BlockState oldState = section.setBlockState(x, y & 15, z, state, false);
+            if (oldState == state) {
+                continue;
+            }
+            pos.set(baseX + x, y, baseZ + z);
+            boolean isEmpty = section.hasOnlyAir();
+            if (wasEmpty != isEmpty) {
+                lightEngine.updateSectionStatus(pos, isEmpty);
+            }
+            for (Map.Entry<Heightmap.Types, Heightmap> heightmap : nmsChunk.getHeightmaps()) {
+                heightmap.getValue().update(x, y, z, state);
+            }
+            if (oldState.hasBlockEntity() && !oldState.is(state.getBlock())) {
+                nmsChunk.removeBlockEntity(pos);
+            }
+            if (state.hasBlockEntity()) {
+                BlockEntity blockEntity = nmsChunk.getBlockEntity(pos, LevelChunk.EntityCreationType.CHECK);
+                if (blockEntity == null) {
+                    blockEntity = ((EntityBlock) state.getBlock()).newBlockEntity(pos.immutable(), state);
+                    if (blockEntity != null) {
+                        nmsChunk.addAndRegisterBlockEntity(blockEntity);
+                    }
+                }
+                else {
+                    blockEntity.setBlockState(state);
+                }
+            }
+            level.onBlockStateChange(pos.immutable(), oldState, state);
+            lightEngine.checkBlock(pos);
+        }
+        nmsChunk.setUnsaved(true);
+    }
 }
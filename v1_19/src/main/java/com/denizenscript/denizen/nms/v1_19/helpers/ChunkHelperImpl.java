@@ -8,20 +8,26 @@ import com.denizenscript.denizencore.utilities.ReflectionHelper;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import net.minecraft.core.Holder;
 import net.minecraft.core.QuartPos;
+import net.minecraft.core.SectionPos;
 import net.minecraft.server.level.ServerChunkCache;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.LevelHeightAccessor;
 import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.chunk.*;
 import net.minecraft.world.level.levelgen.Heightmap;
 import org.bukkit.World;
 import org.bukkit.Chunk;
 import org.bukkit.craftbukkit.v1_19_R3.CraftChunk;
 import org.bukkit.craftbukkit.v1_19_R3.CraftWorld;
+import org.bukkit.craftbukkit.v1_19_R3.block.data.CraftBlockData;
+import org.bukkit.block.data.BlockData;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
+import java.util.IdentityHashMap;
+import java.util.function.Predicate;
 
 public class ChunkHelperImpl implements ChunkHelper {
 
@@ -113,4 +119,46 @@ public class ChunkHelperImpl implements ChunkHelper {
             datapaletteblock.release();
         }
     }
+
+    @Override
+    public boolean forEachMatchingBlock(Chunk chunk, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, Predicate<BlockData> test, BlockPositionConsumer handler) {
+        ChunkAccess nmsChunk = ((CraftChunk) chunk).getHandle(ChunkStatus.FULL);
+        IdentityHashMap<BlockState, Boolean> verdicts = new IdentityHashMap<>();
+        Predicate<BlockState> stateTest = (state) -> {
+            Boolean verdict = verdicts.get(state);
+            if (verdict == null) {
+                verdict = test.test(CraftBlockData.fromData(state));
+                verdicts.put(state, verdict);
+            }
+            return verdict;
+        };
+        int baseX = chunk.getX() << 4, baseZ = chunk.getZ() << 4;
+        int fromX = Math.max(minX - baseX, 0), toX = Math.min(maxX - baseX, 15);
+        int fromZ = Math.max(minZ - baseZ, 0), toZ = Math.min(maxZ - baseZ, 15);
+        if (fromX > toX || fromZ > toZ) {
+            return true;
+        }
+        LevelChunkSection[] sections = nmsChunk.getSections();
+        for (int i = 0; i < sections.length; i++) {
+            int sectionMinY = SectionPos.sectionToBlockCoord(nmsChunk.getSectionYFromSectionIndex(i));
+            int fromY = Math.max(minY - sectionMinY, 0), toY = Math.min(maxY - sectionMinY, 15);
+            if (fromY > toY) {
+                continue;
+            }
+            PalettedContainer<BlockState> states = sections[i].getStates();
+            if (!states.maybeHas(stateTest)) {
+                continue;
+            }
+            for (int x = fromX; x <= toX; x++) {
+                for (int y = fromY; y <= toY; y++) {
+                    for (int z = fromZ; z <= toZ; z++) {
+                        if (stateTest.test(states.get(x, y, z))) {
+                            handler.accept(baseX + x, sectionMinY + y, baseZ + z);
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
 }
@@ -22,7 +22,9 @@ import com.denizenscript.denizencore.utilities.ReflectionHelper;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import io.netty.buffer.Unpooled;
 import net.md_5.bungee.api.ChatColor;
+import it.unimi.dsi.fastutil.shorts.ShortArraySet;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.protocol.Packet;
@@ -42,6 +44,8 @@ import net.minecraft.world.entity.monster.EnderMan;
 import net.minecraft.world.entity.monster.Spider;
 import net.minecraft.world.inventory.AbstractContainerMenu;
 import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.chunk.LevelChunk;
 import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.level.saveddata.maps.MapItemSavedData;
 import net.minecraft.world.scores.PlayerTeam;
@@ -193,6 +197,31 @@ public class PacketHelperImpl implements PacketHelper {
         showTileEntityData(player, location, 3, compoundTag);
     }
 
+    @Override
+    public void sendSectionBlockUpdates(Player player, int sectionX, int sectionY, int sectionZ, short[] positions) {
+        ServerLevel level = ((CraftWorld) player.getWorld()).getHandle();
+        LevelChunk chunk = level.getChunkSource().getChunkNow(sectionX, sectionZ);
+        if (chunk == null) {
+            return;
+        }
+        int sectionIndex = chunk.getSectionIndexFromSectionY(sectionY);
+        if (sectionIndex < 0 || sectionIndex >= chunk.getSections().length) {
+            return;
+        }
+        ShortArraySet changed = new ShortArraySet(positions);
+        send(player, new ClientboundSectionBlocksUpdatePacket(SectionPos.of(sectionX, sectionY, sectionZ), changed, chunk.getSection(sectionIndex), false));
+        for (short relative : positions) {
+            BlockPos pos = new BlockPos((sectionX << 4) + ((relative >> 8) & 15), (sectionY << 4) + (relative & 15), (sectionZ << 4) + ((relative >> 4) & 15));
+            BlockEntity blockEntity = chunk.getBlockEntity(pos);
+            if (blockEntity != null) {
+                Packet<?> updatePacket = blockEntity.getUpdatePacket();
+                if (updatePacket != null) {
+                    send(player, updatePacket);
+                }
+            }
+        }
+    }
+
     @Override
     public void showTabListHeaderFooter(Player player, String header, String footer) {
         Component cHeader = Handler.componentToNMS(FormattedTextHelper.parse(header, ChatColor.WHITE));
@@ -10,7 +10,6 @@ import com.denizenscript.denizen.nms.v1_19.impl.ProfileEditorImpl;
 import com.denizenscript.denizen.nms.v1_19.impl.blocks.BlockLightImpl;
 import com.denizenscript.denizen.nms.v1_19.impl.entities.EntityFakePlayerImpl;
 import com.denizenscript.denizen.nms.v1_19.impl.network.packets.PacketOutChatImpl;
-import com.denizenscript.denizen.objects.LocationTag;
 import com.denizenscript.denizen.objects.PlayerTag;
 import com.denizenscript.denizen.scripts.commands.entity.*;
 import com.denizenscript.denizen.scripts.commands.player.DisguiseCommand;
@@ -346,7 +345,7 @@ public class DenizenNetworkManagerImpl extends Connection {
             }
             return true;
         }
-        if (PlayerReceivesPacketScriptEvent.instance.eventData.isEnabled) {
+        if (PlayerReceivesPacketScriptEvent.instance.eventData.isEnabled && PlayerReceivesPacketScriptEvent.isListenedFor(packet.getClass())) {
             if (PlayerReceivesPacketScriptEvent.fireFor(player.getBukkitEntity(), packet)) {
                 if (NMSHandler.debugPackets) {
                     doPacketOutput("DENIED PACKET " + packet.getClass().getCanonicalName() + " DENIED FROM SEND TO " + player.getScoreboardName() + " due to event");
@@ -1247,15 +1246,11 @@ public class DenizenNetworkManagerImpl extends Connection {
     }
 
     public boolean processShowFakeForPacket(Packet<?> packet, PacketSendListener genericfuturelistener) {
-        if (FakeBlock.blocks.isEmpty()) {
+        if (!FakeBlock.hasAnyFakeBlocks()) {
             return false;
         }
         try {
             if (packet instanceof ClientboundLevelChunkWithLightPacket) {
-                FakeBlock.FakeBlockMap map = FakeBlock.blocks.get(player.getUUID());
-                if (map == null) {
-                    return false;
-                }
                 int chunkX = ((ClientboundLevelChunkWithLightPacket) packet).getX();
                 int chunkZ = ((ClientboundLevelChunkWithLightPacket) packet).getZ();
                 ChunkCoordinate chunkCoord = new ChunkCoordinate(chunkX, chunkZ, player.getLevel().getWorld().getName());
@@ -1268,30 +1263,30 @@ public class DenizenNetworkManagerImpl extends Connection {
                 return true;
             }
             else if (packet instanceof ClientboundSectionBlocksUpdatePacket) {
-                FakeBlock.FakeBlockMap map = FakeBlock.blocks.get(player.getUUID());
-                if (map == null) {
+                SectionPos coord = (SectionPos) SECTIONPOS_MULTIBLOCKCHANGE.get(packet);
+                UUID uuid = player.getUUID();
+                String worldName = player.getLevel().getWorld().getName();
+                long sectionKey = coord.asLong();
+                if (!FakeBlock.hasFakeBlocksInSection(uuid, worldName, sectionKey)) {
                     return false;
                 }
-                SectionPos coord = (SectionPos) SECTIONPOS_MULTIBLOCKCHANGE.get(packet);
-                ChunkCoordinate coordinateDenizen = new ChunkCoordinate(coord.getX(), coord.getZ(), player.getLevel().getWorld().getName());
-                if (!map.byChunk.containsKey(coordinateDenizen)) {
+                short[] originalOffsetArray = (short[]) OFFSETARRAY_MULTIBLOCKCHANGE.get(packet);
+                int firstHit = -1;
+                for (int i = 0; i < originalOffsetArray.length; i++) {
+                    if (FakeBlock.getFakeBlockInSection(uuid, worldName, sectionKey, originalOffsetArray[i]) != null) {
+                        firstHit = i;
+                        break;
+                    }
+                }
+                if (firstHit == -1) {
                     return false;
                 }
+                // Only copy the packet when it actually contains a fake block, as the decoded copy owns fresh arrays that are safe to modify
                 ClientboundSectionBlocksUpdatePacket newPacket = new ClientboundSectionBlocksUpdatePacket(copyPacket(packet));
-                LocationTag location = new LocationTag(player.getLevel().getWorld(), 0, 0, 0);
-                short[] originalOffsetArray = (short[])OFFSETARRAY_MULTIBLOCKCHANGE.get(newPacket);
-                BlockState[] originalDataArray = (BlockState[])BLOCKARRAY_MULTIBLOCKCHANGE.get(newPacket);
-                short[] offsetArray = Arrays.copyOf(originalOffsetArray, originalOffsetArray.length);
-                BlockState[] dataArray = Arrays.copyOf(originalDataArray, originalDataArray.length);
-                OFFSETARRAY_MULTIBLOCKCHANGE.set(newPacket, offsetArray);
-                BLOCKARRAY_MULTIBLOCKCHANGE.set(newPacket, dataArray);
-                for (int i = 0; i < offsetArray.length; i++) {
-                    short offset = offsetArray[i];
-                    BlockPos pos = coord.relativeToBlockPos(offset);
-                    location.setX(pos.getX());
-                    location.setY(pos.getY());
-                    location.setZ(pos.getZ());
-                    FakeBlock block = map.byLocation.get(location);
+                short[] offsetArray = (short[]) OFFSETARRAY_MULTIBLOCKCHANGE.get(newPacket);
+                BlockState[] dataArray = (BlockState[]) BLOCKARRAY_MULTIBLOCKCHANGE.get(newPacket);
+                for (int i = firstHit; i < offsetArray.length; i++) {
+                    FakeBlock block = FakeBlock.getFakeBlockInSection(uuid, worldName, sectionKey, offsetArray[i]);
                     if (block != null) {
                         dataArray[i] = FakeBlockHelper.getNMSState(block);
                     }
@@ -1301,8 +1296,7 @@ public class DenizenNetworkManagerImpl extends Connection {
             }
             else if (packet instanceof ClientboundBlockUpdatePacket) {
                 BlockPos pos = ((ClientboundBlockUpdatePacket) packet).getPos();
-                LocationTag loc = new LocationTag(player.getLevel().getWorld(), pos.getX(), pos.getY(), pos.getZ());
-                FakeBlock block = FakeBlock.getFakeBlockFor(player.getUUID(), loc);
+                FakeBlock block = FakeBlock.getFakeBlockFor(player.getUUID(), player.getLevel().getWorld().getName(), pos.asLong());
                 if (block != null) {
                     ClientboundBlockUpdatePacket newPacket = new ClientboundBlockUpdatePacket(((ClientboundBlockUpdatePacket) packet).getPos(), FakeBlockHelper.getNMSState(block));
                     oldManager.send(newPacket, genericfuturelistener);
@@ -7,6 +7,7 @@ import com.denizenscript.denizen.nms.v1_20.impl.ProfileEditorImpl;
 import com.denizenscript.denizen.nms.v1_20.impl.network.handlers.packet.*;
 import com.denizenscript.denizen.utilities.Settings;
 import com.denizenscript.denizen.utilities.packets.NetworkInterceptCodeGen;
+import com.denizenscript.denizen.utilities.packets.PacketHandlerStats;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.ReflectionHelper;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
@@ -69,17 +70,58 @@ public class DenizenNetworkManagerImpl extends Connection {
         Packet<ClientGamePacketListener> handlePacket(DenizenNetworkManagerImpl networkManager, T packet) throws Exception;
     }
 
-    public static final Map<Class<? extends Packet<ClientGamePacketListener>>, List<PacketHandler<?>>> packetHandlers = new HashMap<>();
+    public record RegisteredPacketHandler(PacketHandler<Packet<ClientGamePacketListener>> handler, PacketHandlerStats stats) {
+    }
+
+    public static final RegisteredPacketHandler[] NO_HANDLERS = new RegisteredPacketHandler[0];
+
+    public static final Map<Class<? extends Packet<ClientGamePacketListener>>, List<RegisteredPacketHandler>> packetHandlers = new HashMap<>();
+
+    /**
+     * Immutable handler chain per exact packet class, built from 'packetHandlers' on first use of each class, and rebuilt whenever a handler is registered.
+     */
+    public static volatile ClassValue<RegisteredPacketHandler[]> handlerChains = createHandlerChains();
+
+    public static PacketHandlerStats scriptEventStats = PacketHandlerStats.register("PlayerReceivesPacketScriptEvent");
+
+    public static ClassValue<RegisteredPacketHandler[]> createHandlerChains() {
+        return new ClassValue<>() {
+            @Override
+            protected RegisteredPacketHandler[] computeValue(Class<?> type) {
+                List<RegisteredPacketHandler> handlers = packetHandlers.get(type);
+                return handlers == null ? NO_HANDLERS : handlers.toArray(NO_HANDLERS);
+            }
+        };
+    }
+
+    public static String getHandlerSourceName(Object handler) {
+        String name = handler.getClass().getName();
+        int lambdaIndex = name.indexOf("$$");
+        if (lambdaIndex != -1) {
+            name = name.substring(0, lambdaIndex);
+        }
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    public static <T extends Packet<ClientGamePacketListener>> void registerPacketHandler(Class<T> packetClass, PacketHandler<T> handler, Object source) {
+        List<RegisteredPacketHandler> handlers = packetHandlers.computeIfAbsent(packetClass, k -> new ArrayList<>());
+        String name = getHandlerSourceName(source) + " - " + packetClass.getSimpleName();
+        if (handlers.size() > 0) {
+            name += " #" + (handlers.size() + 1);
+        }
+        handlers.add(new RegisteredPacketHandler((PacketHandler<Packet<ClientGamePacketListener>>) handler, PacketHandlerStats.register(name)));
+        handlerChains = createHandlerChains();
+    }
 
     public static <T extends Packet<ClientGamePacketListener>> void registerPacketHandler(Class<T> packetClass, PacketHandler<T> handler) {
-        packetHandlers.computeIfAbsent(packetClass, k -> new ArrayList<>()).add(handler);
+        registerPacketHandler(packetClass, handler, handler);
     }
 
     public static <T extends Packet<ClientGamePacketListener>> void registerPacketHandler(Class<T> packetClass, BiConsumer<DenizenNetworkManagerImpl, T> handler) {
         registerPacketHandler(packetClass, (networkManager, packet) -> {
             handler.accept(networkManager, packet);
             return packet;
-        });
+        }, handler);
     }
 
     public final Connection oldManager;
@@ -353,33 +395,37 @@ public class DenizenNetworkManagerImpl extends Connection {
         if (packet == null) {
             return null;
         }
-        List<PacketHandler<?>> packetHandlers = DenizenNetworkManagerImpl.packetHandlers.get(packet.getClass());
-        if (packetHandlers != null) {
-            for (PacketHandler<?> _packetHandler : packetHandlers) {
-                PacketHandler<Packet<ClientGamePacketListener>> packetHandler = (PacketHandler<Packet<ClientGamePacketListener>>) _packetHandler;
-                Packet<ClientGamePacketListener> processed;
-                try {
-                    processed = packetHandler.handlePacket(this, packet);
-                }
-                catch (Exception ex) {
-                    Debug.echoError("Packet handler for " + packet.getClass().getCanonicalName() + " threw an exception:");
-                    Debug.echoError(ex);
-                    continue;
-                }
-                if (processed == null) {
-                    if (NMSHandler.debugPackets) {
-                        doPacketOutput("DENIED PACKET - " + packet.getClass().getCanonicalName() + " DENIED FROM SEND TO " + player.getScoreboardName());
-                    }
-                    return null;
+        for (RegisteredPacketHandler packetHandler : handlerChains.get(packet.getClass())) {
+            Packet<ClientGamePacketListener> processed;
+            long start = System.nanoTime();
+            try {
+                processed = packetHandler.handler.handlePacket(this, packet);
+            }
+            catch (Exception ex) {
+                packetHandler.stats.recordError(start);
+                Debug.echoError("Packet handler for " + packet.getClass().getCanonicalName() + " threw an exception:");
+                Debug.echoError(ex);
+                continue;
+            }
+            packetHandler.stats.record(start, processed == null);
+            if (processed == null) {
+                if (NMSHandler.debugPackets) {
+                    doPacketOutput("DENIED PACKET - " + packet.getClass().getCanonicalName() + " DENIED FROM SEND TO " + player.getScoreboardName());
                 }
-                packet = processed;
+                return null;
             }
+            packet = processed;
         }
-        if (PlayerReceivesPacketScriptEvent.instance.eventData.isEnabled & PlayerReceivesPacketScriptEvent.fireFor(player.getBukkitEntity(), packet)) {
-            if (NMSHandler.debugPackets) {
-                doPacketOutput("DENIED PACKET - " + packet.getClass().getCanonicalName() + " DENIED FROM SEND TO " + player.getScoreboardName() + " due to event");
+        if (PlayerReceivesPacketScriptEvent.instance.eventData.isEnabled && PlayerReceivesPacketScriptEvent.isListenedFor(packet.getClass())) {
+            long start = System.nanoTime();
+            boolean cancelled = PlayerReceivesPacketScriptEvent.fireFor(player.getBukkitEntity(), packet);
+            scriptEventStats.record(start, cancelled);
+            if (cancelled) {
+                if (NMSHandler.debugPackets) {
+                    doPacketOutput("DENIED PACKET - " + packet.getClass().getCanonicalName() + " DENIED FROM SEND TO " + player.getScoreboardName() + " due to event");
+                }
+                return null;
             }
-            return null;
         }
         return packet;
     }
@@ -3,7 +3,6 @@ package com.denizenscript.denizen.nms.v1_20.impl.network.handlers.packet;
 import com.denizenscript.denizen.nms.v1_20.ReflectionMappingsInfo;
 import com.denizenscript.denizen.nms.v1_20.impl.network.handlers.DenizenNetworkManagerImpl;
 import com.denizenscript.denizen.nms.v1_20.impl.network.handlers.FakeBlockHelper;
-import com.denizenscript.denizen.objects.LocationTag;
 import com.denizenscript.denizen.utilities.blocks.ChunkCoordinate;
 import com.denizenscript.denizen.utilities.blocks.FakeBlock;
 import com.denizenscript.denizencore.utilities.ReflectionHelper;
@@ -15,8 +14,8 @@ import net.minecraft.network.protocol.game.*;
 import net.minecraft.world.level.block.state.BlockState;
 
 import java.lang.reflect.Field;
-import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 
 public class FakeBlocksPacketHandlers {
 
@@ -31,15 +30,11 @@ public class FakeBlocksPacketHandlers {
     public static Field BLOCKARRAY_MULTIBLOCKCHANGE = ReflectionHelper.getFields(ClientboundSectionBlocksUpdatePacket.class).get(ReflectionMappingsInfo.ClientboundSectionBlocksUpdatePacket_states, BlockState[].class);
 
     public static Packet<ClientGamePacketListener> processShowFakeForPacket(DenizenNetworkManagerImpl networkManager, Packet<ClientGamePacketListener> packet) {
-        if (FakeBlock.blocks.isEmpty()) {
+        if (!FakeBlock.hasAnyFakeBlocks()) {
             return packet;
         }
         try {
             if (packet instanceof ClientboundLevelChunkWithLightPacket) {
-                FakeBlock.FakeBlockMap map = FakeBlock.blocks.get(networkManager.player.getUUID());
-                if (map == null) {
-                    return packet;
-                }
                 int chunkX = ((ClientboundLevelChunkWithLightPacket) packet).getX();
                 int chunkZ = ((ClientboundLevelChunkWithLightPacket) packet).getZ();
                 ChunkCoordinate chunkCoord = new ChunkCoordinate(chunkX, chunkZ, networkManager.player.level().getWorld().getName());
@@ -51,30 +46,30 @@ public class FakeBlocksPacketHandlers {
                 return newPacket;
             }
             else if (packet instanceof ClientboundSectionBlocksUpdatePacket) {
-                FakeBlock.FakeBlockMap map = FakeBlock.blocks.get(networkManager.player.getUUID());
-                if (map == null) {
+                SectionPos coord = (SectionPos) SECTIONPOS_MULTIBLOCKCHANGE.get(packet);
+                UUID uuid = networkManager.player.getUUID();
+                String worldName = networkManager.player.level().getWorld().getName();
+                long sectionKey = coord.asLong();
+                if (!FakeBlock.hasFakeBlocksInSection(uuid, worldName, sectionKey)) {
                     return packet;
                 }
-                SectionPos coord = (SectionPos) SECTIONPOS_MULTIBLOCKCHANGE.get(packet);
-                ChunkCoordinate coordinateDenizen = new ChunkCoordinate(coord.getX(), coord.getZ(), networkManager.player.level().getWorld().getName());
-                if (!map.byChunk.containsKey(coordinateDenizen)) {
+                short[] originalOffsetArray = (short[]) OFFSETARRAY_MULTIBLOCKCHANGE.get(packet);
+                int firstHit = -1;
+                for (int i = 0; i < originalOffsetArray.length; i++) {
+                    if (FakeBlock.getFakeBlockInSection(uuid, worldName, sectionKey, originalOffsetArray[i]) != null) {
+                        firstHit = i;
+                        break;
+                    }
+                }
+                if (firstHit == -1) {
                     return packet;
                 }
+                // Only copy the packet when it actually contains a fake block, as the decoded copy owns fresh arrays that are safe to modify
                 ClientboundSectionBlocksUpdatePacket newPacket = ClientboundSectionBlocksUpdatePacket.STREAM_CODEC.decode(DenizenNetworkManagerImpl.copyPacket((ClientboundSectionBlocksUpdatePacket) packet, ClientboundSectionBlocksUpdatePacket.STREAM_CODEC));
-                LocationTag location = new LocationTag(networkManager.player.level().getWorld(), 0, 0, 0);
-                short[] originalOffsetArray = (short[])OFFSETARRAY_MULTIBLOCKCHANGE.get(newPacket);
-                BlockState[] originalDataArray = (BlockState[])BLOCKARRAY_MULTIBLOCKCHANGE.get(newPacket);
-                short[] offsetArray = Arrays.copyOf(originalOffsetArray, originalOffsetArray.length);
-                BlockState[] dataArray = Arrays.copyOf(originalDataArray, originalDataArray.length);
-                OFFSETARRAY_MULTIBLOCKCHANGE.set(newPacket, offsetArray);
-                BLOCKARRAY_MULTIBLOCKCHANGE.set(newPacket, dataArray);
-                for (int i = 0; i < offsetArray.length; i++) {
-                    short offset = offsetArray[i];
-                    BlockPos pos = coord.relativeToBlockPos(offset);
-                    location.setX(pos.getX());
-                    location.setY(pos.getY());
-                    location.setZ(pos.getZ());
-                    FakeBlock block = map.byLocation.get(location);
+                short[] offsetArray = (short[]) OFFSETARRAY_MULTIBLOCKCHANGE.get(newPacket);
+                BlockState[] dataArray = (BlockState[]) BLOCKARRAY_MULTIBLOCKCHANGE.get(newPacket);
+                for (int i = firstHit; i < offsetArray.length; i++) {
+                    FakeBlock block = FakeBlock.getFakeBlockInSection(uuid, worldName, sectionKey, offsetArray[i]);
                     if (block != null) {
                         dataArray[i] = FakeBlockHelper.getNMSState(block);
                     }
@@ -83,8 +78,7 @@ public class FakeBlocksPacketHandlers {
             }
             else if (packet instanceof ClientboundBlockUpdatePacket) {
                 BlockPos pos = ((ClientboundBlockUpdatePacket) packet).getPos();
-                LocationTag loc = new LocationTag(networkManager.player.level().getWorld(), pos.getX(), pos.getY(), pos.getZ());
-                FakeBlock block = FakeBlock.getFakeBlockFor(networkManager.player.getUUID(), loc);
+                FakeBlock block = FakeBlock.getFakeBlockFor(networkManager.player.getUUID(), networkManager.player.level().getWorld().getName(), pos.asLong());
                 if (block != null) {
                     ClientboundBlockUpdatePacket newPacket = new ClientboundBlockUpdatePacket(((ClientboundBlockUpdatePacket) packet).getPos(), FakeBlockHelper.getNMSState(block));
                     return newPacket;
@@ -260,6 +260,36 @@ public class ItemHelperImpl extends ItemHelper {
         return customData != null ? CompoundTagImpl.fromNMSTag(customData.getUnsafe()) : null;
     }
 
+    public static final Field CraftItemStack_handle = ReflectionHelper.getFields(CraftItemStack.class).get("handle", net.minecraft.world.item.ItemStack.class);
+
+    /**
+     * Returns the item's custom data component, read directly from the NMS handle when possible (rather than copying the item).
+     */
+    public static CustomData getLiveCustomData(ItemStack item) {
+        if (item instanceof CraftItemStack) {
+            try {
+                net.minecraft.world.item.ItemStack handle = (net.minecraft.world.item.ItemStack) CraftItemStack_handle.get(item);
+                return handle != null ? handle.get(DataComponents.CUSTOM_DATA) : null;
+            }
+            catch (Throwable ex) {
+                Debug.echoError(ex);
+            }
+        }
+        return CraftItemStack.asNMSCopy(item).get(DataComponents.CUSTOM_DATA);
+    }
+
+    @Override
+    public String getCustomDataString(ItemStack item, String key) {
+        CustomData customData = getLiveCustomData(item);
+        return customData != null ? customData.getUnsafe().getString(key) : null;
+    }
+
+    @Override
+    public Object getCustomDataIdentity(ItemStack item) {
+        // CustomData is immutable, any change to an item's custom data replaces the component instance
+        return item instanceof CraftItemStack ? getLiveCustomData(item) : null;
+    }
+
     @Override
     public ItemStack setCustomData(ItemStack item, CompoundTag data) {
         net.minecraft.world.item.ItemStack nmsItemStack = CraftItemStack.asNMSCopy(item);